@@ -0,0 +1,44 @@
+/* Copyright (c) 2015-2016 MIT 6.005 course staff, all rights reserved.
+ * Redistribution of original or derived work requires permission of course staff.
+ */
+package graph;
+
+/**
+ * An immutable table of the heaviest two-edge paths of a graph: for every
+ * pair of vertices (from, to) joined by a path from -> bridge -> to, the
+ * bridge whose path has the largest weight, where the weight of a path is
+ * the sum of the weights of its two edges.
+ * 
+ * <p>Implementations differ in how the table is computed and stored, see
+ * {@link TwoHopIndex}.
+ * 
+ * @param <L> type of vertex labels, must be immutable
+ */
+public interface BridgeTable<L> {
+    
+    /**
+     * Get the bridge of the heaviest two-edge path between two vertices.
+     * 
+     * @param from label of the first vertex
+     * @param to label of the last vertex
+     * @return the bridge b of the heaviest path from -> b -> to, or null if
+     *         there is no such path
+     */
+    public L bridge(L from, L to);
+    
+    /**
+     * Get the weight of the heaviest two-edge path between two vertices.
+     * 
+     * @param from label of the first vertex
+     * @param to label of the last vertex
+     * @return the summed weight of the heaviest path from -> b -> to, or 0
+     *         if there is no such path
+     */
+    public int weight(L from, L to);
+    
+    /**
+     * @return the number of pairs of vertices joined by a two-edge path
+     */
+    public int size();
+    
+}
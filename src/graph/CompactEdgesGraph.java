@@ -0,0 +1,529 @@
+/* Copyright (c) 2015-2016 MIT 6.005 course staff, all rights reserved.
+ * Redistribution of original or derived work requires permission of course staff.
+ */
+package graph;
+
+import java.util.AbstractMap;
+import java.util.AbstractSet;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.HashMap;
+import java.util.Iterator;
+import java.util.List;
+import java.util.Map;
+import java.util.NoSuchElementException;
+import java.util.Set;
+
+/**
+ * An implementation of Graph that stores its edges as a struct of arrays.
+ *
+ * <p>Every vertex gets an int id, and every edge is a slot in parallel int
+ * arrays of source ids, target ids and weights, so an edge costs three ints
+ * instead of an object, plus two ints that chain it into the lists of edges
+ * out of its source and into its target. Changing a weight writes the
+ * weight array in place; removed slots and vertex ids are kept on free
+ * lists and reused, so counting adjacencies does not allocate per edge once
+ * the arrays have grown.
+ *
+ * <p>Finding an edge by its endpoints goes through an open-addressing table
+ * of slot numbers, hashed on the source and target ids of each slot and
+ * compared against the slot arrays, so the endpoints are not stored twice.
+ * The table is kept between 3/8 and 3/4 full, 5 to 11 bytes per edge, so
+ * with the 20 bytes of the five slot arrays an edge costs about 25 to 31
+ * bytes once the arrays are full, and up to twice the array part while
+ * they wait for edges after doubling.
+ *
+ * <p>Removing an edge walks the out-list of its source and the in-list of
+ * its target to unlink it, so it takes O(degree) time.
+ *
+ * @param <L> type of vertex labels in this graph, must be immutable
+ */
+public class CompactEdgesGraph<L> implements Graph<L> {
+    private static final int NONE = -1;
+
+    // vertex store, indexed by vertex id
+    private final List<L> labels;
+    private final Map<L, Integer> ids;
+    private final Set<L> vertexView;
+    private int[] firstOut;
+    private int[] firstIn;
+    private int[] outDegree;
+    private int[] inDegree;
+    private int freeVertex = NONE;
+
+    // edge store, indexed by edge slot
+    private int[] sources;
+    private int[] targets;
+    private int[] weights;
+    private int[] nextOut;
+    private int[] nextIn;
+    private int usedSlots;
+    private int freeSlot = NONE;
+    // open addressing table of live edge slots, NONE where unused,
+    // hashed on (sources[slot], targets[slot])
+    private int[] slotTable;
+    private int edgeCount;
+    // views returned by targets() and sources(), indexed by vertex id,
+    // made on first use
+    private final List<AdjacencyView> outViews;
+    private final List<AdjacencyView> inViews;
+
+    // Abstraction function:
+    //   represents the weighted directed graph whose vertices are the keys
+    //   of ids, with an edge from labels.get(sources[e]) to
+    //   labels.get(targets[e]) with weight weights[e] for every slot e in
+    //   slotTable
+    // Representation invariant:
+    //   ids.get(labels.get(v)) == v for every live vertex id v; the ids
+    //     of removed vertices have a null label and are chained through
+    //     firstOut starting at freeVertex
+    //   the vertex arrays all have the same length >= labels.size()
+    //   slotTable holds exactly the live slots e < usedSlots, edgeCount of
+    //     them, and weights[e] > 0 for those; no two live slots have the
+    //     same (sources[e], targets[e])
+    //   slotTable.length is a power of two and > edgeCount * 4 / 3; every
+    //     live slot is in slotTable at or after (with wrap-around) the
+    //     position of its hash with no NONE position in between
+    //   the free slots below usedSlots have weight 0 and are chained
+    //     through nextOut starting at freeSlot
+    //   the live slots out of vertex v are chained through nextOut starting
+    //     at firstOut[v], outDegree[v] of them; likewise into v through
+    //     nextIn, firstIn[v] and inDegree[v]
+    //   the edge arrays all have the same length >= usedSlots
+    //   vertexView is a read-only view of ids.keySet()
+    //   outViews and inViews have labels.size() elements; element v is
+    //     null or a view of the edges out of (into) labels.get(v), and is
+    //     null for removed vertex ids
+    // Safety from rep exposure:
+    //   All fields are private; the arrays, labels and ids are
+    //   never returned. vertices() returns a read-only view, sources() and
+    //   targets() return read-only views that only read from the rep
+
+    /** Make an empty graph. */
+    public CompactEdgesGraph() {
+        this(0, 0);
+    }
+
+    /**
+     * Make an empty graph presized to hold some vertices and edges without
+     * growing its arrays.
+     *
+     * @param expectedVertices number of vertices expected, >= 0
+     * @param expectedEdges number of edges expected, >= 0
+     */
+    public CompactEdgesGraph(int expectedVertices, int expectedEdges) {
+        assert expectedVertices >= 0 && expectedEdges >= 0;
+        final int vertexCapacity = Math.max(16, expectedVertices);
+        final int edgeCapacity = Math.max(16, expectedEdges);
+        labels = new ArrayList<>(vertexCapacity);
+        ids = new HashMap<>(vertexCapacity * 4 / 3 + 1);
+        vertexView = Collections.unmodifiableSet(ids.keySet());
+        outViews = new ArrayList<>(vertexCapacity);
+        inViews = new ArrayList<>(vertexCapacity);
+        firstOut = new int[vertexCapacity];
+        firstIn = new int[vertexCapacity];
+        outDegree = new int[vertexCapacity];
+        inDegree = new int[vertexCapacity];
+        sources = new int[edgeCapacity];
+        targets = new int[edgeCapacity];
+        weights = new int[edgeCapacity];
+        nextOut = new int[edgeCapacity];
+        nextIn = new int[edgeCapacity];
+        int tableSize = 16;
+        while (tableSize * 3 / 4 <= expectedEdges) {
+            tableSize *= 2;
+        }
+        slotTable = new int[tableSize];
+        Arrays.fill(slotTable, NONE);
+    }
+
+    private void checkRep() {
+        assert labels.size() <= firstOut.length;
+        assert outViews.size() == labels.size() && inViews.size() == labels.size();
+        assert ids.size() <= labels.size();
+        assert edgeCount <= usedSlots && usedSlots <= sources.length;
+        assert edgeCount * 4 < slotTable.length * 3;
+    }
+
+    //helper code
+    /** Returns the id of label, adding a new vertex if there is none */
+    private int idOrNew(L label) {
+        final Integer id = ids.get(label);
+        if ( id != null ) {
+            return id;
+        }
+        final int newId;
+        if ( freeVertex != NONE ) {
+            newId = freeVertex;
+            freeVertex = firstOut[newId];
+            labels.set(newId, label);
+        } else {
+            newId = labels.size();
+            labels.add(label);
+            outViews.add(null);
+            inViews.add(null);
+            if ( newId == firstOut.length ) {
+                final int capacity = newId * 2;
+                firstOut = Arrays.copyOf(firstOut, capacity);
+                firstIn = Arrays.copyOf(firstIn, capacity);
+                outDegree = Arrays.copyOf(outDegree, capacity);
+                inDegree = Arrays.copyOf(inDegree, capacity);
+            }
+        }
+        firstOut[newId] = NONE;
+        firstIn[newId] = NONE;
+        outDegree[newId] = 0;
+        inDegree[newId] = 0;
+        ids.put(label, newId);
+        return newId;
+    }
+    /** Returns the slot of the edge from source id to target id, or NONE */
+    private int slotOf(Integer source, Integer target) {
+        if ( source == null || target == null ) {
+            return NONE;
+        }
+        return findSlot(source, target);
+    }
+    /** Returns the slotTable position where the edge from source to target hashes */
+    private int homeOf(int source, int target) {
+        final long mixed = (((long) source << 32) | (target & 0xFFFFFFFFL)) * 0x9E3779B97F4A7C15L;
+        return (int) (mixed ^ (mixed >>> 32)) & (slotTable.length - 1);
+    }
+    /** Returns the live slot of the edge from source id to target id, or NONE */
+    private int findSlot(int source, int target) {
+        final int mask = slotTable.length - 1;
+        for (int position = homeOf(source, target); slotTable[position] != NONE;
+                position = (position + 1) & mask) {
+            final int slot = slotTable[position];
+            if ( sources[slot] == source && targets[slot] == target ) {
+                return slot;
+            }
+        }
+        return NONE;
+    }
+    /** Adds a slot whose edge is not in slotTable yet, growing the table if needed */
+    private void indexSlot(int slot) {
+        if ( (edgeCount + 1) * 4 >= slotTable.length * 3 ) {
+            final int[] oldTable = slotTable;
+            slotTable = new int[oldTable.length * 2];
+            Arrays.fill(slotTable, NONE);
+            for (int oldSlot : oldTable) {
+                if ( oldSlot != NONE ) {
+                    placeSlot(oldSlot);
+                }
+            }
+        }
+        placeSlot(slot);
+        edgeCount++;
+    }
+    /** Puts slot at the first free position from its hash on */
+    private void placeSlot(int slot) {
+        final int mask = slotTable.length - 1;
+        int position = homeOf(sources[slot], targets[slot]);
+        while (slotTable[position] != NONE) {
+            position = (position + 1) & mask;
+        }
+        slotTable[position] = slot;
+    }
+    /**
+     * Removes a live slot from slotTable, shifting back the slots probed
+     * past it so that no tombstone is left behind; reads its endpoints, so
+     * must be called before the slot is reused
+     */
+    private void unindexSlot(int slot) {
+        final int mask = slotTable.length - 1;
+        int hole = homeOf(sources[slot], targets[slot]);
+        while (slotTable[hole] != slot) {
+            hole = (hole + 1) & mask;
+        }
+        for (int position = (hole + 1) & mask; slotTable[position] != NONE; position = (position + 1) & mask) {
+            final int moved = slotTable[position];
+            final int home = homeOf(sources[moved], targets[moved]);
+            // a slot can fill the hole if its probe sequence passes through it
+            if ( ((position - home) & mask) >= ((position - hole) & mask) ) {
+                slotTable[hole] = moved;
+                hole = position;
+            }
+        }
+        slotTable[hole] = NONE;
+        edgeCount--;
+    }
+    /** Stores a new edge in a free slot and chains it into both its lists */
+    private void linkEdge(int source, int target, int weight) {
+        final int slot;
+        if ( freeSlot != NONE ) {
+            slot = freeSlot;
+            freeSlot = nextOut[slot];
+        } else {
+            slot = usedSlots++;
+            if ( slot == sources.length ) {
+                final int capacity = slot * 2;
+                sources = Arrays.copyOf(sources, capacity);
+                targets = Arrays.copyOf(targets, capacity);
+                weights = Arrays.copyOf(weights, capacity);
+                nextOut = Arrays.copyOf(nextOut, capacity);
+                nextIn = Arrays.copyOf(nextIn, capacity);
+            }
+        }
+        sources[slot] = source;
+        targets[slot] = target;
+        weights[slot] = weight;
+        nextOut[slot] = firstOut[source];
+        firstOut[source] = slot;
+        outDegree[source]++;
+        nextIn[slot] = firstIn[target];
+        firstIn[target] = slot;
+        inDegree[target]++;
+        indexSlot(slot);
+    }
+    /** Unchains the edge in slot from both its lists and frees the slot */
+    private void unlinkEdge(int slot) {
+        final int source = sources[slot];
+        final int target = targets[slot];
+        unindexSlot(slot);
+        if ( firstOut[source] == slot ) {
+            firstOut[source] = nextOut[slot];
+        } else {
+            int previous = firstOut[source];
+            while (nextOut[previous] != slot) {
+                previous = nextOut[previous];
+            }
+            nextOut[previous] = nextOut[slot];
+        }
+        if ( firstIn[target] == slot ) {
+            firstIn[target] = nextIn[slot];
+        } else {
+            int previous = firstIn[target];
+            while (nextIn[previous] != slot) {
+                previous = nextIn[previous];
+            }
+            nextIn[previous] = nextIn[slot];
+        }
+        outDegree[source]--;
+        inDegree[target]--;
+        weights[slot] = 0;
+        nextOut[slot] = freeSlot;
+        freeSlot = slot;
+    }
+
+    /** Returns true if vertex label is added */
+    @Override public boolean add(L vertex) {
+        if ( ids.containsKey(vertex) ) {
+            return false;
+        }
+        idOrNew(vertex);
+        checkRep();
+        return true;
+    }
+
+    @Override public int set(L source, L target, int weight) {
+        assert weight >= 0;
+        if ( weight == 0 ) {
+            final int slot = slotOf(ids.get(source), ids.get(target));
+            if ( slot == NONE ) {
+                return 0;
+            }
+            final int previousWeight = weights[slot];
+            unlinkEdge(slot);
+            checkRep();
+            return previousWeight;
+        }
+        final int sourceId = idOrNew(source);
+        final int targetId = idOrNew(target);
+        final int slot = findSlot(sourceId, targetId);
+        if ( slot != NONE ) {
+            final int previousWeight = weights[slot];
+            weights[slot] = weight;
+            return previousWeight;
+        }
+        linkEdge(sourceId, targetId, weight);
+        checkRep();
+        return 0;
+    }
+
+    /** Adds delta to the weight in place, in one index lookup for an existing edge */
+    @Override public int increment(L source, L target, int delta) {
+        final int slot = slotOf(ids.get(source), ids.get(target));
+        if ( slot == NONE ) {
+            assert delta >= 0;
+            return set(source, target, delta);
+        }
+        final int previousWeight = weights[slot];
+        assert previousWeight + delta >= 0;
+        if ( previousWeight + delta == 0 ) {
+            unlinkEdge(slot);
+            checkRep();
+        } else {
+            weights[slot] = previousWeight + delta;
+        }
+        return previousWeight;
+    }
+
+    /** Removes vertex and its edges in O(sum of the degrees of its neighbours) time */
+    @Override public boolean remove(L vertex) {
+        final Integer id = ids.remove(vertex);
+        if ( id == null ) {
+            return false;
+        }
+        while (firstOut[id] != NONE) {
+            unlinkEdge(firstOut[id]);
+        }
+        while (firstIn[id] != NONE) {
+            unlinkEdge(firstIn[id]);
+        }
+        labels.set(id, null);
+        outViews.set(id, null);
+        inViews.set(id, null);
+        firstOut[id] = freeVertex;
+        freeVertex = id;
+        checkRep();
+        return true;
+    }
+
+    @Override public Set<L> vertices() {
+        return vertexView;
+    }
+    /**
+     * Returns a read-only live view of the sources of target, the same one
+     * on every call while target is in this graph. Callers that only walk
+     * the sources once should use forEachSource, which makes no entries.
+     */
+    @Override public Map<L, Integer> sources(L target) {
+        return viewOf(target, false);
+    }
+    /**
+     * Returns a read-only live view of the targets of source, the same one
+     * on every call while source is in this graph. Callers that only walk
+     * the targets once should use forEachTarget, which makes no entries.
+     */
+    @Override public Map<L, Integer> targets(L source) {
+        return viewOf(source, true);
+    }
+    //helper code
+    /** Returns the cached view of label's edges, making it if needed */
+    private AdjacencyView viewOf(L label, boolean outgoing) {
+        final Integer id = ids.get(label);
+        if ( id == null ) {
+            return new AdjacencyView(label, outgoing);
+        }
+        final List<AdjacencyView> views = outgoing ? outViews : inViews;
+        AdjacencyView view = views.get(id);
+        if ( view == null ) {
+            view = new AdjacencyView(label, outgoing);
+            views.set(id, view);
+        }
+        return view;
+    }
+    @Override public void forEachSource(L target, IntWeightConsumer<? super L> action) {
+        final Integer id = ids.get(target);
+        if ( id == null ) {
+            return;
+        }
+        for (int slot = firstIn[id]; slot != NONE; slot = nextIn[slot]) {
+            action.accept(labels.get(sources[slot]), weights[slot]);
+        }
+    }
+    @Override public void forEachTarget(L source, IntWeightConsumer<? super L> action) {
+        final Integer id = ids.get(source);
+        if ( id == null ) {
+            return;
+        }
+        for (int slot = firstOut[id]; slot != NONE; slot = nextOut[slot]) {
+            action.accept(labels.get(targets[slot]), weights[slot]);
+        }
+    }
+    /** Visits the edges in slot order, skipping free slots */
+    @Override public boolean forEachEdge(EdgeVisitor<? super L> visitor) {
+        for (int slot = 0; slot < usedSlots; slot++) {
+            if ( weights[slot] > 0
+                    && !visitor.visit(labels.get(sources[slot]), labels.get(targets[slot]), weights[slot]) ) {
+                return false;
+            }
+        }
+        return true;
+    }
+
+    /**
+     * Returns the string representation of this graph
+     *
+     * The string contains one line per edge, in the same form as
+     * ConcreteEdgesGraph:
+     *      source -> target: weight
+     *
+     * @return string rep of this graph containing all its edges,
+     *         "Empty Graph" if graph has no edges
+     */
+    @Override public String toString() {
+        final StringBuilder rep = new StringBuilder();
+        forEachEdge((source, target, weight) -> {
+            if ( rep.length() > 0 ) {
+                rep.append('\n');
+            }
+            rep.append(source).append(" -> ").append(target).append(": ").append(weight);
+            return true;
+        });
+        return rep.length() == 0 ? "Empty Graph" : rep.toString();
+    }
+
+    /**
+     * Read-only live view of the edges out of or into one vertex, walking
+     * its chain of slots. The vertex is looked up by label on every access,
+     * so the view stays correct after the vertex is removed or re-added.
+     *
+     * This class is internal to the rep of CompactEdgesGraph.
+     */
+    private class AdjacencyView extends AbstractMap<L, Integer> {
+        private final L label;
+        private final boolean outgoing;
+
+        AdjacencyView(L label, boolean outgoing) {
+            this.label = label;
+            this.outgoing = outgoing;
+        }
+        @Override public Integer get(Object key) {
+            final Integer id = ids.get(label);
+            final Integer other = ids.get(key);
+            final int slot = outgoing ? slotOf(id, other) : slotOf(other, id);
+            return slot == NONE ? null : weights[slot];
+        }
+        @Override public boolean containsKey(Object key) {
+            return get(key) != null;
+        }
+        @Override public int size() {
+            final Integer id = ids.get(label);
+            if ( id == null ) {
+                return 0;
+            }
+            return outgoing ? outDegree[id] : inDegree[id];
+        }
+        @Override public Set<Map.Entry<L, Integer>> entrySet() {
+            return new AbstractSet<Map.Entry<L, Integer>>() {
+                @Override public int size() {
+                    return AdjacencyView.this.size();
+                }
+                @Override public Iterator<Map.Entry<L, Integer>> iterator() {
+                    final Integer id = ids.get(label);
+                    final int first = id == null ? NONE : outgoing ? firstOut[id] : firstIn[id];
+                    return new Iterator<Map.Entry<L, Integer>>() {
+                        private int slot = first;
+
+                        @Override public boolean hasNext() {
+                            return slot != NONE;
+                        }
+                        @Override public Map.Entry<L, Integer> next() {
+                            if ( slot == NONE ) {
+                                throw new NoSuchElementException();
+                            }
+                            final L neighbour = labels.get(outgoing ? targets[slot] : sources[slot]);
+                            final Map.Entry<L, Integer> entry =
+                                    new AbstractMap.SimpleImmutableEntry<>(neighbour, weights[slot]);
+                            slot = outgoing ? nextOut[slot] : nextIn[slot];
+                            return entry;
+                        }
+                    };
+                }
+            };
+        }
+    }
+}
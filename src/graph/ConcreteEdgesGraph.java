@@ -3,9 +3,14 @@
  */
 package graph;
 
+import java.util.AbstractMap;
+import java.util.AbstractSet;
 import java.util.ArrayList;
+import java.util.Collection;
 import java.util.Collections;
+import java.util.HashMap;
 import java.util.HashSet;
+import java.util.Iterator;
 import java.util.List;
 import java.util.Map;
 import java.util.Set;
@@ -18,8 +23,11 @@ import java.util.stream.Collectors;
  */
 public class ConcreteEdgesGraph<L> implements Graph<L> {
     
-    private final Set<L> vertices = new HashSet<>();
-    private final List<Edge<L>> edges = new ArrayList<>();
+    private final Set<L> vertices;
+    private final List<Edge<L>> edges;
+    // vertex -> positions in edges of the edges into and out of it
+    private final Map<L, Adjacency> adjacencies;
+    private final Set<L> vertexView;
     
     // Abstraction function:
     //   represents all edges in a graph as a pair of connected vertices
@@ -28,29 +36,62 @@ public class ConcreteEdgesGraph<L> implements Graph<L> {
     //   vertices is a set of objects of type L
     //   edges is a list of distinct weighted Edges made by 
     //      distinct pairs of vertices(no pair of vertices exists more than once).   
-    //   An edge must be connected to at least v number of vertices, for example,
-    //     2 edges require at least 3 vertices, 5 edges require at least 4 vertices
-    //     vertices.size() >= Math.ceil(Math.sqrt(2*edges.size) + 0.5)
-    //     (source) https://math.stackexchange.com/a/1954272
+    //   An edge must be connected to at least v number of vertices. Edges are
+    //     directed and a vertex may have an edge to itself, so v vertices
+    //     allow at most v*v edges, for example,
+    //     2 edges require at least 2 vertices, 5 edges require at least 3 vertices
+    //     vertices.size() >= Math.ceil(Math.sqrt(edges.size))
+    //   adjacencies has exactly one entry per vertex in vertices
+    //   every edge in edges at position i is indexed exactly twice:
+    //     adjacencies.get(source).targetPositions.get(target) == i and
+    //     adjacencies.get(target).sourcePositions.get(source) == i
+    //   vertexView is a read-only view of vertices
     //
     // Safety from rep exposure:
     //   All fields are private and final
-    //   vertices and edges are mutable types, so operations use defensive copies and
-    //   immutable wrappers to avoid sharing the rep's objects to clients
+    //   vertices, edges and adjacencies are mutable and never returned;
+    //   nothing is copied on the way out, clients get live views instead
+    //   vertices() returns vertexView, an unmodifiable wrapper of vertices
+    //   sources() and targets() return the WeightViews of an Adjacency:
+    //     put() and remove() are unsupported, their entry iterators do not
+    //     support remove() and yield immutable entries, and they read only
+    //     the labels and Integer positions of adjacencies and the immutable
+    //     Edges of edges; so a client can observe later changes through a
+    //     view but cannot change the rep with it
+    //   labels are of type L, required to be immutable
     
     public ConcreteEdgesGraph(){
+        this(0, 0);
+    }
+    /**
+     * Make an empty graph presized to hold some vertices and edges
+     * without resizing.
+     * 
+     * @param expectedVertices number of vertices expected, >= 0
+     * @param expectedEdges number of edges expected, >= 0
+     */
+    public ConcreteEdgesGraph(int expectedVertices, int expectedEdges){
+        assert expectedVertices >= 0 && expectedEdges >= 0;
+        final int vertexCapacity = Math.max(16, expectedVertices * 4 / 3 + 1);
+        vertices = new HashSet<>(vertexCapacity);
+        edges = new ArrayList<>(Math.max(10, expectedEdges));
+        adjacencies = new HashMap<>(vertexCapacity);
+        vertexView = Collections.unmodifiableSet(vertices);
     }
     private void checkRep(){
         final int sizeOfEdges = edges.size();
         final int sizeOfVertices = vertices.size();
-        int minNumberOfVertices = 
-                sizeOfEdges == 0 ? 0 : (int)Math.ceil(Math.sqrt(2 * sizeOfEdges) + 0.5);
+        int minNumberOfVertices = (int)Math.ceil(Math.sqrt(sizeOfEdges));
         
         assert sizeOfVertices >= minNumberOfVertices;  
     }
     /** Returns true if vertex label is added*/
     @Override public boolean add(L vertex) {
-        return vertices.add(vertex);
+        if ( !vertices.add(vertex) ) {
+            return false;
+        }
+        adjacencies.put(vertex, new Adjacency());
+        return true;
     }    
     @Override public int set(L source, L target, int weight) {
         assert weight >= 0;
@@ -64,87 +105,223 @@ public class ConcreteEdgesGraph<L> implements Graph<L> {
             if ( indexOfEdge < 0 ) {
                 add(source);
                 add(target);
+                indexEdge(newEdge, edges.size());
                 edges.add(newEdge);
             } else {
                 previousEdge = edges.set(indexOfEdge, newEdge);
                 previousWeight = previousEdge.getWeight();
             }
         } else if ( weight == 0 && indexOfEdge >= 0) {
-            previousEdge = edges.remove(indexOfEdge);
+            previousEdge = removeEdgeAt(indexOfEdge);
             previousWeight = previousEdge.getWeight();
         }
         checkRep();
         return previousWeight;
     }
+    @Override public int increment(L source, L target, int delta) {
+        final int indexOfEdge = indexOfEdgeInEdges(source, target);
+        if ( indexOfEdge < 0 ) {
+            assert delta >= 0;
+            if ( delta > 0 ) {
+                add(source);
+                add(target);
+                final Edge<L> newEdge = new Edge<>(source, target, delta);
+                indexEdge(newEdge, edges.size());
+                edges.add(newEdge);
+            }
+            checkRep();
+            return 0;
+        }
+        final Edge<L> previousEdge = edges.get(indexOfEdge);
+        final int newWeight = previousEdge.getWeight() + delta;
+        assert newWeight >= 0;
+        if ( newWeight == 0 ) {
+            removeEdgeAt(indexOfEdge);
+        } else {
+            edges.set(indexOfEdge, previousEdge.setWeight(newWeight));
+        }
+        checkRep();
+        return previousEdge.getWeight();
+    }
     //helper code
     /**
-     * Checks if an edge exists in this graph
+     * Finds the position of an edge in this graph
      * 
      * An edge exists in the graph if the source and target
-     * specified match with an edge's source and target in this graph
-     * The check is case-insensitive, for example
-     * "vertex" will match an edge with labels "Vertex" or "vertex".
+     * specified match with an edge's source and target in this graph.
+     * The lookup goes through adjacencies, so it takes constant time
+     * regardless of the number of edges in this graph.
      *   
-     * @param source string to compare an edge's source with
-     * @param target string to compare an edge's target with
+     * @param source label to compare an edge's source with
+     * @param target label to compare an edge's target with
      * @return the index i for all 0 <= i, < edges.size()
      *             of the edge whose source and target
      *             match source and target, 
      *             -1 if no edge match was found
      */
-    private int indexOfEdgeInEdges(L source, L target){        
-        for(int i = 0;  i < edges.size(); i++){
-            Edge<L> edge = edges.get(i);
-            if (edge.getSource().equals(source) &&
-                    edge.getTarget().equals(target)){
-                return i;
-            }
+    private int indexOfEdgeInEdges(L source, L target){
+        final Adjacency sourceAdjacency = adjacencies.get(source);
+        if ( sourceAdjacency == null ) {
+            return -1;
+        }
+        final Integer index = sourceAdjacency.targetPositions.get(target);
+        return index == null ? -1 : index;
+    }
+    /** Records that edge is stored at position index of edges, requires both its vertices */
+    private void indexEdge(Edge<L> edge, int index){
+        adjacencies.get(edge.getSource()).targetPositions.put(edge.getTarget(), index);
+        adjacencies.get(edge.getTarget()).sourcePositions.put(edge.getSource(), index);
+    }
+    /** Removes edge from adjacencies */
+    private void unindexEdge(Edge<L> edge){
+        adjacencies.get(edge.getSource()).targetPositions.remove(edge.getTarget());
+        adjacencies.get(edge.getTarget()).sourcePositions.remove(edge.getSource());
+    }
+    /**
+     * Removes the edge at position index from edges in constant time
+     * 
+     * The last edge in edges is moved into the freed position,
+     * so the order of the remaining edges is not preserved.
+     * 
+     * @param index position of the edge to remove, 
+     *              requires 0 <= index < edges.size()
+     * @return the edge that was removed
+     */
+    private Edge<L> removeEdgeAt(int index){
+        final Edge<L> removedEdge = edges.get(index);
+        unindexEdge(removedEdge);
+        
+        final int lastIndex = edges.size() - 1;
+        final Edge<L> lastEdge = edges.remove(lastIndex);
+        if ( index != lastIndex ) {
+            edges.set(index, lastEdge);
+            indexEdge(lastEdge, index);
+        }
+        return removedEdge;
+    }
+    /** Rebuilds adjacencies in place from the positions in edges */
+    private void reindexEdges(){
+        for (Adjacency adjacency : adjacencies.values()) {
+            adjacency.sourcePositions.clear();
+            adjacency.targetPositions.clear();
+        }
+        for (int i = 0; i < edges.size(); i++) {
+            indexEdge(edges.get(i), i);
         }
-        return -1;
     }
     
     
+    /**
+     * Removes a vertex and its edges in time proportional to the number
+     * of edges into and out of it.
+     */
     @Override public boolean remove(L vertex) {
-        final int initialSizeEdges = edges.size();
         final int initialSizeVertices = vertices.size();
+        final Adjacency adjacency = adjacencies.get(vertex);
+        if ( adjacency == null ) {
+            return false;
+        }
+        // copy the neighbours once: taking the first entry of a map that is
+        // being emptied rescans its empty buckets, O(degree^2) in all;
+        // removeEdgeAt() moves other edges, so look up each position afresh
+        final List<L> targets = new ArrayList<>(adjacency.targetPositions.keySet());
+        for (L target : targets) {
+            removeEdgeAt(adjacency.targetPositions.get(target));
+        }
+        final List<L> sources = new ArrayList<>(adjacency.sourcePositions.keySet());
+        for (L source : sources) {
+            removeEdgeAt(adjacency.sourcePositions.get(source));
+        }
+        assert adjacency.targetPositions.isEmpty() && adjacency.sourcePositions.isEmpty();
+        vertices.remove(vertex);
+        adjacencies.remove(vertex);
         
-        Predicate<Edge<L>> vertexInEdge = (Edge<L> edge) -> 
-              ( ( edge.getSource().equals(vertex) ) ||
-                ( edge.getTarget().equals(vertex) ) ) ;
-        Predicate<L> vertexInVertices = v -> v.equals(vertex);
-        
-        boolean removedEdge = edges.removeIf(vertexInEdge);
-        boolean removedVertice = vertices.removeIf(vertexInVertices);
-        
-        //NB a vertex can exist without being in an edge
-        //if removedEdge, then removedVertice
-        if(removedVertice){
-            assert initialSizeVertices != vertices.size();
-            assert initialSizeVertices - 1 == vertices.size();
+        assert initialSizeVertices - 1 == vertices.size();
+        checkRep();
+        return true;
+    }
+    /**
+     * Removes many vertices and their edges.
+     * 
+     * When the removed vertices touch a large share of the edges, the
+     * edges are filtered in a single pass over edges instead of being
+     * removed one at a time.
+     */
+    @Override public boolean removeAll(Collection<? extends L> labels) {
+        final Set<L> removed = new HashSet<>();
+        int removedDegree = 0;
+        for (L label : labels) {
+            final Adjacency adjacency = adjacencies.get(label);
+            if ( adjacency != null && removed.add(label) ) {
+                removedDegree += adjacency.sourcePositions.size() + adjacency.targetPositions.size();
+            }
+        }
+        if ( removed.isEmpty() ) {
+            return false;
+        }
+        if ( removedDegree < edges.size() / 2 ) {
+            for (L label : removed) {
+                remove(label);
+            }
+            return true;
         }
-        if(removedEdge){
-            assert initialSizeEdges != edges.size();
-            assert removedVertice;
+        
+        Predicate<Edge<L>> edgeOfRemoved = (Edge<L> edge) ->
+              ( removed.contains(edge.getSource()) ||
+                removed.contains(edge.getTarget()) );
+        edges.removeIf(edgeOfRemoved);
+        vertices.removeAll(removed);
+        for (L label : removed) {
+            final Adjacency adjacency = adjacencies.remove(label);
+            adjacency.sourcePositions.clear();
+            adjacency.targetPositions.clear();
         }
+        reindexEdges();
         checkRep();
-        return initialSizeVertices - 1 == vertices.size();
+        return true;
     }
     /** Returns an read-only view of this ConcreteEdgesGraph's vertices */
     @Override public Set<L> vertices() {
-        return Collections.unmodifiableSet(vertices);
+        return vertexView;
     }
 
-    /** Returns a map of a target's sources */
+    /** Returns a read-only live view of a target's sources */
     @Override public Map<L, Integer> sources(L target) {
-        return edges.stream()
-                .filter(edge -> edge.getTarget().equals(target))
-                .collect(Collectors.toMap(Edge::getSource, Edge::getWeight));
+        final Adjacency adjacency = adjacencies.get(target);
+        return adjacency == null ? Collections.emptyMap() : adjacency.sourcesView;
     }
-    /** Returns a map of a source's targets */
+    /** Returns a read-only live view of a source's targets */
     @Override public Map<L, Integer> targets(L source) {
-        return edges.stream()
-                .filter(edge -> edge.getSource().equals(source))
-                .collect(Collectors.toMap(Edge::getTarget, Edge::getWeight));
+        final Adjacency adjacency = adjacencies.get(source);
+        return adjacency == null ? Collections.emptyMap() : adjacency.targetsView;
+    }
+    @Override public void forEachSource(L target, IntWeightConsumer<? super L> action) {
+        final Adjacency adjacency = adjacencies.get(target);
+        if ( adjacency != null ) {
+            forEachWeight(adjacency.sourcePositions, action);
+        }
+    }
+    @Override public void forEachTarget(L source, IntWeightConsumer<? super L> action) {
+        final Adjacency adjacency = adjacencies.get(source);
+        if ( adjacency != null ) {
+            forEachWeight(adjacency.targetPositions, action);
+        }
+    }
+    /** Visits the edges in the order they are stored in edges */
+    @Override public boolean forEachEdge(EdgeVisitor<? super L> visitor) {
+        for (Edge<L> edge : edges) {
+            if ( !visitor.visit(edge.getSource(), edge.getTarget(), edge.getWeight()) ) {
+                return false;
+            }
+        }
+        return true;
+    }
+    //helper method
+    /** Calls action on each label and the weight of the edge at its position */
+    private void forEachWeight(Map<L, Integer> positions, IntWeightConsumer<? super L> action){
+        for (Map.Entry<L, Integer> entry : positions.entrySet()) {
+            action.accept(entry.getKey(), edges.get(entry.getValue()).getWeight());
+        }
     }
 
     /**
@@ -168,6 +345,61 @@ public class ConcreteEdgesGraph<L> implements Graph<L> {
                 .map(edge -> edge.toString())
                 .collect(Collectors.joining("\n"));
     }
+    
+    /**
+     * The positions in edges of the edges into and out of one vertex, and
+     * the read-only views of their weights handed out by sources() and
+     * targets(). The views are made once per vertex and stay live until
+     * the vertex is removed.
+     */
+    private class Adjacency {
+        private final Map<L, Integer> sourcePositions = new HashMap<>(4);
+        private final Map<L, Integer> targetPositions = new HashMap<>(4);
+        private final Map<L, Integer> sourcesView = new WeightView(sourcePositions);
+        private final Map<L, Integer> targetsView = new WeightView(targetPositions);
+    }
+    
+    /**
+     * Read-only map view from labels to the weights of the edges whose
+     * positions in edges are given by a map of positions.
+     */
+    private class WeightView extends AbstractMap<L, Integer> {
+        private final Map<L, Integer> positions;
+        
+        WeightView(Map<L, Integer> positions){
+            this.positions = positions;
+        }
+        @Override public int size(){
+            return positions.size();
+        }
+        @Override public boolean containsKey(Object label){
+            return positions.containsKey(label);
+        }
+        @Override public Integer get(Object label){
+            final Integer position = positions.get(label);
+            return position == null ? null : edges.get(position).getWeight();
+        }
+        @Override public Set<Map.Entry<L, Integer>> entrySet(){
+            return new AbstractSet<Map.Entry<L, Integer>>() {
+                @Override public int size(){
+                    return positions.size();
+                }
+                @Override public Iterator<Map.Entry<L, Integer>> iterator(){
+                    final Iterator<Map.Entry<L, Integer>> entries = positions.entrySet().iterator();
+                    return new Iterator<Map.Entry<L, Integer>>() {
+                        @Override public boolean hasNext(){
+                            return entries.hasNext();
+                        }
+                        @Override public Map.Entry<L, Integer> next(){
+                            final Map.Entry<L, Integer> entry = entries.next();
+                            return new AbstractMap.SimpleImmutableEntry<>(
+                                    entry.getKey(), edges.get(entry.getValue()).getWeight());
+                        }
+                    };
+                }
+            };
+        }
+    }
 }
 
 /**
@@ -3,15 +3,13 @@
  */
 package graph;
 
-import java.util.ArrayList;
 import java.util.Collections;
 import java.util.HashMap;
-import java.util.List;
+import java.util.LinkedHashMap;
 import java.util.Map;
 import java.util.Set;
 import java.util.stream.Collectors;
 
-//TODO: improve overall performance
 /**
  * An implementation of Graph.
  * 
@@ -21,93 +19,118 @@ import java.util.stream.Collectors;
 public class ConcreteVerticesGraph<L> implements Graph<L> {
    /**
     * 
-    * <p>The implementation involves a lot of checking and defensive copies
-    * which is costly in terms of both performance and memory. This is 
-    * because we are storing a mutable type to a list, so methods such
-    * as contains() and get() can't be used to access the vertices. 
-    * It is a requirement that we not add new fields and we stick to the
-    * rep provided. 
-    * I tried using a lookup table without violating the conditions, which
-    * would store the vertices' labels in a list that matches the positions 
-    * of their relative vertices to have constant time access, found that
-    * challenging.
-    * If allowed to alter the rep, I'd use a map:
-    *       Map<String, Vertex>
-    *  this would be performance friendly, constant time access and mutating
-    *  any vertex would not affect the rep.
-    *  
+    * <p>The provided rep stored the vertices in a List<Vertex<L>>, which
+    * meant every lookup was a linear scan and every vertices() call
+    * rebuilt a set of labels. The vertices are now keyed by their label:
+    *       Map<L, Vertex<L>>
+    *  which gives constant time access to any vertex, and vertices()
+    *  returns a read-only view of the key set instead of a new set.
+    *  A LinkedHashMap keeps the vertices in insertion order, the same
+    *  order the list had. Each key is the label of the Vertex it maps to.
+    *
     */
-    private final List<Vertex<L>> vertices = new ArrayList<>();
+    private final Map<L, Vertex<L>> vertices;
+    private final Set<L> vertexLabels;
     
     // Abstraction function:
-    //   represents a directed weighted graph as multiple vertices 
-    //   connecting as source to target pairs with each pair having a
-    //   weight.
-    //   
+    //   represents the directed weighted graph whose vertices are the keys
+    //   of vertices, in insertion order, with an edge from s to t of
+    //   weight w iff vertices.get(s).getTargets().get(t) == w
+    //
     // Representation invariant:
-    //   only one instance of a vertex can exist in vertices
+    //   for every key in vertices: key.equals(vertices.get(key).getLabel())
+    //   no two keys map to the same Vertex
+    //   vertices.get(s) has target t with weight w iff vertices.get(t)
+    //     has source s with weight w, and then s and t are both keys
+    //   vertexLabels is a read-only view of vertices.keySet()
     // Safety from rep exposure:
-    //   vertices is a mutable list, so operation make defensive
-    //   copies and use immutable views to avoid sharing the rep
-    //   A Vertex is a mutable type, operations use defensive copies 
-    //   to avoid sharing the rep
+    //   vertices is a mutable map that is never returned to clients,
+    //   and neither are the Vertex objects it maps to
+    //   vertices() returns vertexLabels, an unmodifiable view of the keys
+    //   sources() and targets() return the unmodifiable views kept by
+    //   each Vertex, never its mutable maps
     
   
     public ConcreteVerticesGraph(){
+        this(0);
+    }
+    /**
+     * Make an empty graph presized to hold some vertices without resizing.
+     * 
+     * @param expectedVertices number of vertices expected, >= 0
+     */
+    public ConcreteVerticesGraph(int expectedVertices){
+        assert expectedVertices >= 0;
+        vertices = new LinkedHashMap<>(Math.max(16, expectedVertices * 4 / 3 + 1));
+        vertexLabels = Collections.unmodifiableSet(vertices.keySet());
     }
-    private void checkRep(){        
-        assert vertices().size() == vertices.size();
+    private void checkRep(){
+        int targetCount = 0;
+        int sourceCount = 0;
+        for (Map.Entry<L, Vertex<L>> entry : vertices.entrySet()) {
+            final L label = entry.getKey();
+            final Vertex<L> vertex = entry.getValue();
+            assert label.equals(vertex.getLabel());
+            for (Map.Entry<L, Integer> target : vertex.getTargets().entrySet()) {
+                final Vertex<L> targetVertex = vertices.get(target.getKey());
+                assert targetVertex != null;
+                assert target.getValue().equals(targetVertex.getSources().get(label));
+            }
+            targetCount += vertex.getTargets().size();
+            sourceCount += vertex.getSources().size();
+        }
+        // every target is matched by a source, so equal counts leave no
+        // source without its target
+        assert targetCount == sourceCount;
     }
     //helper method
     /**
-     * Returns the index of a vertex in list of vertices
-     * @param label the label of the vertex being searched
-     * @return the index, i, of the vertex having label such that
-     *         vertices.get(i).getLabel() == label, or -1 if
-     *         no vertex was found
+     * Returns the vertex with a label, adding a new vertex if there is none
+     * @param label the label of the vertex
+     * @return the vertex v in vertices such that v.getLabel() equals label
      */
-    private int indexInVertices(L label){
-        for(int i = 0; i < vertices.size(); i++){
-            if ( vertices.get(i).getLabel().equals(label) ) {
-                return i;
-            }
+    private Vertex<L> vertexOrNew(L label){
+        Vertex<L> vertex = vertices.get(label);
+        if ( vertex == null ) {
+            vertex = new Vertex<>(label);
+            vertices.put(label, vertex);
         }
-        return -1;
+        return vertex;
+    }
+    /**
+     * Removes an edge without adding any vertex
+     * @param source the label of the source vertex
+     * @param target the label of the target vertex
+     * @return the previous weight of the edge, zero if there was none
+     */
+    private int removeEdge(L source, L target){
+        final Vertex<L> sourceVertex = vertices.get(source);
+        if ( sourceVertex == null || !sourceVertex.isTarget(target) ) {
+            return 0;
+        }
+        final int previousWeight = sourceVertex.removeTarget(target);
+        vertices.get(target).removeSource(source);
+        checkRep();
+        return previousWeight;
     }
     //end of helper method
     @Override public boolean add(L vertex) {        
-        if ( vertices().contains(vertex) ) {
+        if ( vertices.containsKey(vertex) ) {
             return false;
         }
-        Vertex<L> vertexObj = new Vertex<>(vertex);    
-        final boolean vertexAdded = vertices.add(vertexObj);
+        vertices.put(vertex, new Vertex<>(vertex));
         checkRep();
-        return vertexAdded;
+        return true;
     }
     
     @Override public int set(L source, L target, int weight) {
-        assert source != target;
         assert weight >= 0;
-        
-        final Vertex<L> sourceVertex;
-        final Vertex<L> targetVertex;
-        
-        Set<L> verticeLabels = vertices();
-        if ( verticeLabels.contains(source) ) {
-            int sourceIndex = indexInVertices(source);
-            sourceVertex = vertices.get(sourceIndex);
-        } else {
-            sourceVertex = new Vertex<>(source);
-            vertices.add(sourceVertex);
-        }
-        
-        if ( verticeLabels.contains(target) ) {
-            int targetIndex = indexInVertices(target);
-            targetVertex = vertices.get(targetIndex);
-        } else {
-            targetVertex = new Vertex<>(target);
-            vertices.add(targetVertex);
+        if ( weight == 0 ) {
+            return removeEdge(source, target);
         }
+
+        final Vertex<L> sourceVertex = vertexOrNew(source);
+        final Vertex<L> targetVertex = vertexOrNew(target);
         
         int sourcePrevWeight = sourceVertex.setTarget(target, weight);
         int targetPrevWeight = targetVertex.setSource(source, weight);
@@ -117,44 +140,83 @@ public class ConcreteVerticesGraph<L> implements Graph<L> {
         return sourcePrevWeight;
     }
     
+    @Override public int increment(L source, L target, int delta) {
+        if ( delta == 0 ) {
+            return targets(source).getOrDefault(target, 0);
+        }
+
+        final Vertex<L> sourceVertex = vertexOrNew(source);
+        final Vertex<L> targetVertex = vertexOrNew(target);
+
+        int sourcePrevWeight = sourceVertex.incrementTarget(target, delta);
+        int targetPrevWeight = targetVertex.incrementSource(source, delta);
+        assert sourcePrevWeight == targetPrevWeight;
+        
+        checkRep();
+        return sourcePrevWeight;
+    }
+    
     @Override public boolean remove(L vertex) {
-        if ( !( vertices().contains(vertex)) ) {
+        final Vertex<L> removedVertex = vertices.remove(vertex);
+        if ( removedVertex == null ) {
             return false;
         }
-        int vertexIndex = indexInVertices(vertex);
-        assert vertexIndex != -1;
-        final Vertex<L> removedVertex = vertices.remove(vertexIndex);
-        assert removedVertex.getLabel() == vertex;
-        
-        for( Vertex<L> v: vertices ) {
-            v.remove(vertex);
+        // only the vertices connected to the removed vertex refer to it;
+        // a self-loop lives in removedVertex, which is already gone
+        for ( L source: removedVertex.getSources().keySet() ) {
+            if ( !source.equals(vertex) ) {
+                vertices.get(source).removeTarget(vertex);
+            }
         }
-        return removedVertex != null;
+        for ( L target: removedVertex.getTargets().keySet() ) {
+            if ( !target.equals(vertex) ) {
+                vertices.get(target).removeSource(vertex);
+            }
+        }
+        checkRep();
+        return true;
     }
+    /** Returns a read-only view of the labels of this graph's vertices */
     @Override public Set<L> vertices() {
-        return vertices.stream()
-                .map(Vertex::getLabel)
-                .collect(Collectors.toSet());
+        return vertexLabels;
     }
-    /** Returns an immutable view of source vertices to a target */
+    /** Returns an immutable live view of source vertices to a target */
     @Override public Map<L, Integer> sources(L target) {
-        final int targetIndex = indexInVertices(target);
-        if ( targetIndex < 0 ) {
+        final Vertex<L> targetVertex = vertices.get(target);
+        if ( targetVertex == null ) {
             return Collections.emptyMap();
         }
-        Vertex<L> targetVertex = vertices.get(targetIndex);
-        
-        return Collections.unmodifiableMap(targetVertex.getSources());
+        return targetVertex.getSources();
     }
-    /** Returns an immutable view of target vertices from a target */
+    /** Returns an immutable live view of target vertices from a target */
     @Override public Map<L, Integer> targets(L source) {
-        final int sourceIndex = indexInVertices(source);
-        if ( sourceIndex < 0 ) {
+        final Vertex<L> sourceVertex = vertices.get(source);
+        if ( sourceVertex == null ) {
             return Collections.emptyMap();
         }
-        Vertex<L> sourceVertex = vertices.get(sourceIndex);
-        
-        return Collections.unmodifiableMap(sourceVertex.getTargets());
+        return sourceVertex.getTargets();
+    }
+    @Override public void forEachSource(L target, IntWeightConsumer<? super L> action) {
+        final Vertex<L> targetVertex = vertices.get(target);
+        if ( targetVertex != null ) {
+            targetVertex.forEachSource(action);
+        }
+    }
+    @Override public void forEachTarget(L source, IntWeightConsumer<? super L> action) {
+        final Vertex<L> sourceVertex = vertices.get(source);
+        if ( sourceVertex != null ) {
+            sourceVertex.forEachTarget(action);
+        }
+    }
+    @Override public boolean forEachEdge(EdgeVisitor<? super L> visitor) {
+        for (Vertex<L> source : vertices.values()) {
+            for (Map.Entry<L, Integer> target : source.getTargets().entrySet()) {
+                if ( !visitor.visit(source.getLabel(), target.getKey(), target.getValue()) ) {
+                    return false;
+                }
+            }
+        }
+        return true;
     }
     //TODO better toString() as below
     /**
@@ -169,7 +231,7 @@ public class ConcreteVerticesGraph<L> implements Graph<L> {
      * @return a string representation of this graph
      */
     @Override public String toString(){
-        return vertices.stream()
+        return vertices.values().stream()
                 .filter(vertex -> vertex.getTargets().size() > 0)
                 .map(vertex -> vertex.getLabel().toString() + " -> " + vertex.getTargets())
                 .collect(Collectors.joining("\n"));
@@ -193,6 +255,8 @@ class Vertex<L> {
     private final L label;
     private final Map<L, Integer> sources = new HashMap<>();
     private final Map<L, Integer> targets = new HashMap<>();
+    private final Map<L, Integer> sourcesView = Collections.unmodifiableMap(sources);
+    private final Map<L, Integer> targetsView = Collections.unmodifiableMap(targets);
     
     // Abstraction Function:
     //   represents a vertex in a graph that connects to other vertices as a
@@ -202,9 +266,8 @@ class Vertex<L> {
     //
     // Representation Invariant:
     //   A vertex label must be immutable
-    //   A vertex cannot be its own source
-    //   A vertex cannot be its own target
-    //   All sources and targets must be distinct vertices
+    //   A vertex may be its own source and its own target, a self-loop,
+    //     and then it is both with the same weight
     //   A connection must have a weight > 0
     //
     // Safety from Exposure:
@@ -212,21 +275,17 @@ class Vertex<L> {
     //   label is of type L, required to be immutable by the spec
     //   sources and targets are mutable, so operations use defensive copies
     //   and immutable views to prevent sharing the rep objects with clients
+    //   sourcesView and targetsView are those immutable views, made once
     
     public Vertex(final L label){
         this.label = label;        
     }
     private void checkRep(){
-        final Set<L> sourceLabels = sources.keySet();
-        final Set<L> targetLabels = targets.keySet();
-        
-        assert !sourceLabels.contains(this.label);
-        assert !targetLabels.contains(this.label);
+        assert this.label != null;
     }
     //helper code
     private void checkInputLabel(final L inputLabel){
         assert inputLabel != null;
-        assert inputLabel != this.label;
     }
     
     /** Returns the label of this vertex */
@@ -384,13 +443,74 @@ class Vertex<L> {
         return previousWeight;
     }
 
-    /** Returns an immutable view of this vertex's sources*/
+    /**
+     * Adds to the weight of a source connection to this vertex
+     * 
+     * The source is added if it didn't exist, and removed if its
+     * new weight is zero. Takes a single map lookup.
+     * 
+     * @param source the label of the source vertex
+     * @param delta amount to add to the weight, requires the previous
+     *              weight plus delta to be nonnegative
+     * @return the previous weight from source to this vertex,
+     *         zero if no such source exists
+     */
+    public int incrementSource(final L source, final int delta){
+        checkInputLabel(source);
+        final int previousWeight = merge(sources, source, delta);
+        checkRep();
+        return previousWeight;
+    }
+    /**
+     * Adds to the weight of a target connection from this vertex
+     * 
+     * The target is added if it didn't exist, and removed if its
+     * new weight is zero. Takes a single map lookup.
+     * 
+     * @param target the label of the target vertex
+     * @param delta amount to add to the weight, requires the previous
+     *              weight plus delta to be nonnegative
+     * @return the previous weight from this vertex to target,
+     *         zero if no such target exists
+     */
+    public int incrementTarget(final L target, final int delta){
+        checkInputLabel(target);
+        final int previousWeight = merge(targets, target, delta);
+        checkRep();
+        return previousWeight;
+    }
+    //helper code
+    /** Adds delta to the weight of label in connections, returns the previous weight */
+    private static <L> int merge(Map<L, Integer> connections, L label, int delta){
+        if ( delta == 0 ) {
+            return connections.getOrDefault(label, 0);
+        }
+        final Integer newWeight = connections.merge(label, delta,
+                (weight, increment) -> weight + increment == 0 ? null : weight + increment);
+        final int previousWeight = newWeight == null ? -delta : newWeight - delta;
+        assert previousWeight >= 0 && previousWeight + delta >= 0;
+        return previousWeight;
+    }
+
+    /** Returns an immutable live view of this vertex's sources*/
     public Map<L, Integer> getSources(){
-        return Collections.unmodifiableMap(sources);
+        return sourcesView;
     }
-    /** Returns an immutable view of this vertex's targets*/
+    /** Returns an immutable live view of this vertex's targets*/
     public Map<L, Integer> getTargets(){
-        return Collections.unmodifiableMap(targets);
+        return targetsView;
+    }
+    /** Calls action on each of this vertex's sources and the weight from it */
+    public void forEachSource(IntWeightConsumer<? super L> action){
+        for (Map.Entry<L, Integer> source : sources.entrySet()) {
+            action.accept(source.getKey(), source.getValue());
+        }
+    }
+    /** Calls action on each of this vertex's targets and the weight to it */
+    public void forEachTarget(IntWeightConsumer<? super L> action){
+        for (Map.Entry<L, Integer> target : targets.entrySet()) {
+            action.accept(target.getKey(), target.getValue());
+        }
     }
     /**
      * Checks if a vertex is a target from this vertex
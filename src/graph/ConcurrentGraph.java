@@ -0,0 +1,268 @@
+/* Copyright (c) 2015-2016 MIT 6.005 course staff, all rights reserved.
+ * Redistribution of original or derived work requires permission of course staff.
+ */
+package graph;
+
+import java.util.Collection;
+import java.util.Collections;
+import java.util.Map;
+import java.util.Set;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ConcurrentMap;
+import java.util.concurrent.locks.ReentrantLock;
+
+/**
+ * A thread-safe implementation of Graph.
+ * 
+ * <p>Mutators are linearizable: set() and increment() lock only the stripes
+ * of their two endpoints, so writers that touch different vertices proceed in
+ * parallel, while remove() locks every stripe. Readers never lock: vertices(),
+ * sources() and targets() return weakly consistent live views, which reflect
+ * some, all or none of the writes that run while they are being read, and
+ * never throw ConcurrentModificationException.
+ * 
+ * @param <L> type of vertex labels in this graph, must be immutable
+ */
+public class ConcurrentGraph<L> implements Graph<L> {
+    private static final int STRIPES = 64;
+    
+    private final ConcurrentMap<L, Adjacency<L>> vertices;
+    private final Set<L> vertexLabels;
+    private final ReentrantLock[] locks = new ReentrantLock[STRIPES];
+    
+    // Abstraction function:
+    //   represents a weighted directed graph whose vertices are the keys of
+    //   vertices, with an edge from s to t with weight w for every
+    //   vertices.get(s).targets.get(t) == w
+    // Representation invariant:
+    //   vertices.get(s).targets.get(t) == vertices.get(t).sources.get(s)
+    //     for every edge, whenever no mutator holds the locks of s and t
+    //   every weight is > 0
+    //   vertexLabels is a read-only view of vertices.keySet()
+    // Safety from rep exposure:
+    //   All fields are private and final
+    //   vertices, sources() and targets() return unmodifiable views,
+    //   the maps and locks themselves are never returned
+    // Thread safety argument:
+    //   vertices and the adjacency maps are ConcurrentHashMaps, so every
+    //     single read or write of them is atomic
+    //   set() and increment() update both directions of an edge while
+    //     holding the locks of the stripes of both endpoints, acquired in
+    //     stripe order, so they are atomic with respect to each other
+    //   remove() and removeAll() hold every lock, so they are atomic with
+    //     respect to all other mutators
+    //   add() is a single putIfAbsent on vertices
+    
+    /** Make an empty graph. */
+    public ConcurrentGraph() {
+        this(16);
+    }
+    
+    /**
+     * Make an empty graph presized for a number of vertices.
+     * 
+     * @param expectedVertices number of vertices expected, >= 0
+     */
+    public ConcurrentGraph(int expectedVertices) {
+        vertices = new ConcurrentHashMap<>(expectedVertices);
+        vertexLabels = Collections.unmodifiableSet(vertices.keySet());
+        for (int i = 0; i < STRIPES; i++) {
+            locks[i] = new ReentrantLock();
+        }
+    }
+    
+    private void checkRep() {
+        assert vertexLabels.size() == vertices.size();
+    }
+    
+    //helper code
+    /** Returns the index of the lock that guards label */
+    private static int stripeOf(Object label) {
+        final int hash = label.hashCode();
+        return (hash ^ (hash >>> 16)) & (STRIPES - 1);
+    }
+    /** Locks the stripes of two labels in stripe order, returns them packed for unlock() */
+    private int lock(L source, L target) {
+        final int first = Math.min(stripeOf(source), stripeOf(target));
+        final int second = Math.max(stripeOf(source), stripeOf(target));
+        locks[first].lock();
+        if ( second != first ) {
+            locks[second].lock();
+        }
+        return first * STRIPES + second;
+    }
+    /** Unlocks stripes locked by lock() */
+    private void unlock(int stripes) {
+        final int first = stripes / STRIPES;
+        final int second = stripes % STRIPES;
+        if ( second != first ) {
+            locks[second].unlock();
+        }
+        locks[first].unlock();
+    }
+    /** Returns the adjacency of label, adding the vertex if it is new */
+    private Adjacency<L> adjacencyOrNew(L label) {
+        return vertices.computeIfAbsent(label, k -> new Adjacency<>());
+    }
+    
+    @Override public boolean add(L vertex) {
+        if ( vertices.containsKey(vertex) ) {
+            return false;
+        }
+        return vertices.putIfAbsent(vertex, new Adjacency<>()) == null;
+    }
+    
+    @Override public int set(L source, L target, int weight) {
+        assert weight >= 0;
+        final int stripes = lock(source, target);
+        try {
+            if ( weight == 0 ) {
+                final Adjacency<L> sourceAdjacency = vertices.get(source);
+                final Adjacency<L> targetAdjacency = vertices.get(target);
+                if ( sourceAdjacency == null || targetAdjacency == null ) {
+                    return 0;
+                }
+                final Integer previousWeight = sourceAdjacency.targets.remove(target);
+                targetAdjacency.sources.remove(source);
+                return previousWeight == null ? 0 : previousWeight;
+            }
+            final Adjacency<L> sourceAdjacency = adjacencyOrNew(source);
+            final Adjacency<L> targetAdjacency = adjacencyOrNew(target);
+            final Integer previousWeight = sourceAdjacency.targets.put(target, weight);
+            targetAdjacency.sources.put(source, weight);
+            return previousWeight == null ? 0 : previousWeight;
+        } finally {
+            unlock(stripes);
+        }
+    }
+    
+    @Override public int increment(L source, L target, int delta) {
+        final int stripes = lock(source, target);
+        try {
+            final Adjacency<L> existingSource = vertices.get(source);
+            final int previousWeight = existingSource == null
+                    ? 0 : existingSource.targets.getOrDefault(target, 0);
+            final int newWeight = previousWeight + delta;
+            assert newWeight >= 0;
+            if ( newWeight == 0 ) {
+                if ( previousWeight > 0 ) {
+                    existingSource.targets.remove(target);
+                    vertices.get(target).sources.remove(source);
+                }
+                return previousWeight;
+            }
+            final Adjacency<L> sourceAdjacency = adjacencyOrNew(source);
+            final Adjacency<L> targetAdjacency = adjacencyOrNew(target);
+            sourceAdjacency.targets.put(target, newWeight);
+            targetAdjacency.sources.put(source, newWeight);
+            return previousWeight;
+        } finally {
+            unlock(stripes);
+        }
+    }
+    
+    /** Removes a vertex; blocks every other mutator while it runs */
+    @Override public boolean remove(L vertex) {
+        return removeAll(Collections.singleton(vertex));
+    }
+    
+    /** Removes many vertices under one acquisition of every lock */
+    @Override public boolean removeAll(Collection<? extends L> labels) {
+        for (ReentrantLock lock : locks) {
+            lock.lock();
+        }
+        try {
+            boolean removedAny = false;
+            for (L vertex : labels) {
+                removedAny |= removeLocked(vertex);
+            }
+            checkRep();
+            return removedAny;
+        } finally {
+            for (int i = locks.length - 1; i >= 0; i--) {
+                locks[i].unlock();
+            }
+        }
+    }
+    /** Removes a vertex, requires the caller to hold every lock */
+    private boolean removeLocked(L vertex) {
+        final Adjacency<L> removed = vertices.remove(vertex);
+        if ( removed == null ) {
+            return false;
+        }
+        for (L source : removed.sources.keySet()) {
+            final Adjacency<L> sourceAdjacency = vertices.get(source);
+            if ( sourceAdjacency != null ) {
+                sourceAdjacency.targets.remove(vertex);
+            }
+        }
+        for (L target : removed.targets.keySet()) {
+            final Adjacency<L> targetAdjacency = vertices.get(target);
+            if ( targetAdjacency != null ) {
+                targetAdjacency.sources.remove(vertex);
+            }
+        }
+        return true;
+    }
+    
+    /** Returns a weakly consistent read-only view of this graph's vertices */
+    @Override public Set<L> vertices() {
+        return vertexLabels;
+    }
+    /** Returns a weakly consistent read-only view of a target's sources */
+    @Override public Map<L, Integer> sources(L target) {
+        final Adjacency<L> adjacency = vertices.get(target);
+        return adjacency == null ? Collections.emptyMap() : adjacency.sourcesView;
+    }
+    /** Returns a weakly consistent read-only view of a source's targets */
+    @Override public Map<L, Integer> targets(L source) {
+        final Adjacency<L> adjacency = vertices.get(source);
+        return adjacency == null ? Collections.emptyMap() : adjacency.targetsView;
+    }
+    @Override public void forEachSource(L target, IntWeightConsumer<? super L> action) {
+        final Adjacency<L> adjacency = vertices.get(target);
+        if ( adjacency != null ) {
+            adjacency.sources.forEach(action::accept);
+        }
+    }
+    @Override public void forEachTarget(L source, IntWeightConsumer<? super L> action) {
+        final Adjacency<L> adjacency = vertices.get(source);
+        if ( adjacency != null ) {
+            adjacency.targets.forEach(action::accept);
+        }
+    }
+    
+    /**
+     * Returns the string representation of this graph
+     * 
+     * The string contains one line per edge, in the same form as
+     * ConcreteEdgesGraph:
+     *      source -> target: weight
+     * It is weakly consistent with concurrent writes.
+     * 
+     * @return string rep of this graph containing all its edges,
+     *         "Empty Graph" if graph has no edges
+     */
+    @Override public String toString() {
+        final StringBuilder rep = new StringBuilder();
+        vertices.forEach((source, adjacency) -> adjacency.targets.forEach((target, weight) -> {
+            if ( rep.length() > 0 ) {
+                rep.append('\n');
+            }
+            rep.append(source).append(" -> ").append(target).append(": ").append(weight);
+        }));
+        return rep.length() == 0 ? "Empty Graph" : rep.toString();
+    }
+    
+    /**
+     * The edges into and out of one vertex of a ConcurrentGraph.
+     * 
+     * This class is internal to the rep of ConcurrentGraph.
+     */
+    private static class Adjacency<L> {
+        private final ConcurrentMap<L, Integer> sources = new ConcurrentHashMap<>(4);
+        private final ConcurrentMap<L, Integer> targets = new ConcurrentHashMap<>(4);
+        private final Map<L, Integer> sourcesView = Collections.unmodifiableMap(sources);
+        private final Map<L, Integer> targetsView = Collections.unmodifiableMap(targets);
+    }
+}
@@ -0,0 +1,28 @@
+/* Copyright (c) 2015-2016 MIT 6.005 course staff, all rights reserved.
+ * Redistribution of original or derived work requires permission of course staff.
+ */
+package graph;
+
+/**
+ * An operation on the edges of a graph, called once per edge by
+ * {@link Graph#forEachEdge(EdgeVisitor)}.
+ * 
+ * <p>The weight is passed as a primitive int, so a traversal allocates
+ * nothing per edge. Returning false stops the traversal early.
+ * 
+ * @param <L> type of vertex labels, must be immutable
+ */
+@FunctionalInterface
+public interface EdgeVisitor<L> {
+    
+    /**
+     * Visit one edge.
+     * 
+     * @param source label of the edge's source vertex
+     * @param target label of the edge's target vertex
+     * @param weight the (nonzero) weight of the edge
+     * @return true to continue with the next edge, false to stop
+     */
+    public boolean visit(L source, L target, int weight);
+    
+}
@@ -3,6 +3,9 @@
  */
 package graph;
 
+import java.util.Collection;
+import java.util.HashMap;
+import java.util.HashSet;
 import java.util.Map;
 import java.util.Set;
 
@@ -15,6 +18,10 @@ import java.util.Set;
  * <p>PS2 instructions: this is a required ADT interface.
  * You MUST NOT change the specifications or add additional methods.
  * 
+ * <p>The default methods below are extensions to the required ADT. Every
+ * implementation inherits a correct version written in terms of the required
+ * methods, and may override it with a faster one.
+ * 
  * @param <L> type of vertex labels in this graph, must be immutable
  */
 public interface Graph<L> {
@@ -29,6 +36,22 @@ public interface Graph<L> {
        return new ConcreteEdgesGraph<>();
     }
     
+    /**
+     * Create an empty graph of a chosen engine, presized as the options say.
+     * The AUTO engine of {@link GraphOptions#defaults()} gives the same kind
+     * of graph as {@link #empty()}, or a thread-safe one if the options need
+     * concurrent access.
+     * 
+     * @param <L> type of vertex labels in the graph, must be immutable
+     * @param options the engine and sizing of the graph
+     * @return a new empty weighted directed graph
+     * @throws IllegalArgumentException if the engine of options is not
+     *         mutable; use {@link GraphBuilder#build(GraphOptions)} for those
+     */
+    public static <L> Graph<L> empty(GraphOptions options) {
+       return options.newEmptyGraph();
+    }
+    
     /**
      * Add a vertex to this graph.
      * 
@@ -54,6 +77,31 @@ public interface Graph<L> {
      */
     public int set(L source, L target, int weight);
     
+    /**
+     * Add to the weight of a directed edge in this graph, in a single lookup
+     * where the implementation allows.
+     * If there is no such edge it is added with weight delta, and vertices
+     * with the given labels are added to the graph if they do not already
+     * exist. If the new weight is zero, the edge is removed if it exists
+     * and the graph is not otherwise modified; in particular a zero delta
+     * never adds a vertex.
+     * Equivalent to:
+     *      set(source, target, targets(source).getOrDefault(target, 0) + delta)
+     * 
+     * @param source label of the source vertex
+     * @param target label of the target vertex
+     * @param delta amount to add to the weight of the edge, requires the
+     *              previous weight plus delta to be nonnegative
+     * @return the previous weight of the edge, or zero if there was no such
+     *         edge
+     */
+    public default int increment(L source, L target, int delta) {
+        final int previousWeight = targets(source).getOrDefault(target, 0);
+        assert previousWeight + delta >= 0;
+        set(source, target, previousWeight + delta);
+        return previousWeight;
+    }
+    
     /**
      * Remove a vertex from this graph; any edges to or from the vertex are
      * also removed.
@@ -64,6 +112,23 @@ public interface Graph<L> {
      */
     public boolean remove(L vertex);
     
+    /**
+     * Remove many vertices from this graph; any edges to or from them are
+     * also removed. Equivalent to calling remove() on each label, but
+     * implementations may prune all of them in one pass.
+     * 
+     * @param vertices labels of the vertices to remove
+     * @return true if this graph included a vertex with any of the given
+     *         labels; otherwise false (and this graph is not modified)
+     */
+    public default boolean removeAll(Collection<? extends L> vertices) {
+        boolean removedAny = false;
+        for (L vertex : vertices) {
+            removedAny |= remove(vertex);
+        }
+        return removedAny;
+    }
+    
     /**
      * Get all the vertices in this graph.
      * 
@@ -95,4 +160,146 @@ public interface Graph<L> {
      */
     public Map<L, Integer> targets(L source);
     
+    /**
+     * Get a detached copy of the sources of a target vertex.
+     * 
+     * <p>Implementations may return read-only live views from
+     * {@link #sources(Object)}, which change as this graph changes. Use this
+     * method instead when the result must stay fixed or be modified.
+     * 
+     * @param target a label
+     * @return a new mutable map equal to sources(target), that later changes
+     *         to this graph do not affect
+     */
+    public default Map<L, Integer> sourcesCopy(L target) {
+        return new HashMap<>(sources(target));
+    }
+    
+    /**
+     * Get a detached copy of the targets of a source vertex.
+     * 
+     * <p>Implementations may return read-only live views from
+     * {@link #targets(Object)}, which change as this graph changes. Use this
+     * method instead when the result must stay fixed or be modified.
+     * 
+     * @param source a label
+     * @return a new mutable map equal to targets(source), that later changes
+     *         to this graph do not affect
+     */
+    public default Map<L, Integer> targetsCopy(L source) {
+        return new HashMap<>(targets(source));
+    }
+    
+    /**
+     * Perform an operation on every source vertex with a directed edge to a
+     * target vertex, without building a map of the sources.
+     * 
+     * @param target a label
+     * @param action operation to call once for every key and value of
+     *               sources(target), in no particular order; must not
+     *               modify this graph
+     */
+    public default void forEachSource(L target, IntWeightConsumer<? super L> action) {
+        for (Map.Entry<L, Integer> source : sources(target).entrySet()) {
+            action.accept(source.getKey(), source.getValue());
+        }
+    }
+    
+    /**
+     * Perform an operation on every target vertex with a directed edge from a
+     * source vertex, without building a map of the targets.
+     * 
+     * @param source a label
+     * @param action operation to call once for every key and value of
+     *               targets(source), in no particular order; must not
+     *               modify this graph
+     */
+    public default void forEachTarget(L source, IntWeightConsumer<? super L> action) {
+        for (Map.Entry<L, Integer> target : targets(source).entrySet()) {
+            action.accept(target.getKey(), target.getValue());
+        }
+    }
+    
+    /**
+     * Get the vertices that lie on a two-edge path between two vertices.
+     * 
+     * @param from a label
+     * @param to a label
+     * @return a new mutable set of the labels b such that this graph includes
+     *         an edge from from to b and an edge from b to to
+     */
+    public default Set<L> commonNeighbors(L from, L to) {
+        final Set<L> common = new HashSet<>();
+        forEachCommonNeighbor(from, to, (bridge, weight) -> common.add(bridge));
+        return common;
+    }
+    
+    /**
+     * Perform an operation on every vertex that lies on a two-edge path
+     * between two vertices, with the weight of that path.
+     * 
+     * <p>Only the smaller of targets(from) and sources(to) is iterated; the
+     * other is probed, so a vertex with a very large degree on one side does
+     * not make the query expensive.
+     * 
+     * @param from a label
+     * @param to a label
+     * @param action operation to call once for every b in
+     *               commonNeighbors(from, to), in no particular order, with
+     *               the sum of the weights of the edges from -> b and b -> to;
+     *               must not modify this graph
+     */
+    public default void forEachCommonNeighbor(L from, L to, IntWeightConsumer<? super L> action) {
+        final Map<L, Integer> fromTargets = targets(from);
+        final Map<L, Integer> toSources = sources(to);
+        if ( fromTargets.size() <= toSources.size() ) {
+            forEachTarget(from, (bridge, weight) -> {
+                final Integer toWeight = toSources.get(bridge);
+                if ( toWeight != null ) {
+                    action.accept(bridge, weight + toWeight);
+                }
+            });
+        } else {
+            forEachSource(to, (bridge, weight) -> {
+                final Integer fromWeight = fromTargets.get(bridge);
+                if ( fromWeight != null ) {
+                    action.accept(bridge, fromWeight + weight);
+                }
+            });
+        }
+    }
+    
+    /**
+     * Visit every edge in this graph, without building a map per vertex.
+     * 
+     * @param visitor operation to call once per edge, in no particular order,
+     *                until it returns false; must not modify this graph
+     * @return true if every edge was visited, false if visitor stopped the
+     *         traversal early
+     */
+    public default boolean forEachEdge(EdgeVisitor<? super L> visitor) {
+        for (L source : vertices()) {
+            for (Map.Entry<L, Integer> target : targets(source).entrySet()) {
+                if ( !visitor.visit(source, target.getKey(), target.getValue()) ) {
+                    return false;
+                }
+            }
+        }
+        return true;
+    }
+    
+    /**
+     * Get an immutable copy of this graph.
+     * 
+     * <p>The copy is stored in a compact read-optimized form, so a graph that
+     * is no longer mutated should be frozen and the copy used instead.
+     * 
+     * @return a graph with the same vertices and edges as this graph, whose
+     *         mutators throw UnsupportedOperationException; later changes to
+     *         this graph do not affect it
+     */
+    public default Graph<L> freeze() {
+        return ImmutableCsrGraph.copyOf(this);
+    }
+    
 }
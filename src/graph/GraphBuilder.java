@@ -0,0 +1,244 @@
+/* Copyright (c) 2015-2016 MIT 6.005 course staff, all rights reserved.
+ * Redistribution of original or derived work requires permission of course staff.
+ */
+package graph;
+
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+
+/**
+ * A mutable collector of vertices and weighted edges that produces a finished
+ * Graph in one pass.
+ * 
+ * <p>Labels are interned to int ids as they arrive, and each edge is kept as a
+ * single (source id, target id) -> weight entry in a primitive hash map, so
+ * adding an edge costs one hash probe and no per-edge objects. Adding the same
+ * edge more than once sums its weights, which makes the builder suitable for
+ * counting adjacencies.
+ * 
+ * <p>A builder can keep being used after {@link #build()}; later additions do
+ * not affect graphs that were already built.
+ * 
+ * @param <L> type of vertex labels, must be immutable
+ */
+public class GraphBuilder<L> {
+    private final List<L> labels;
+    private final Map<L, Integer> ids;
+    private final LongIntHashMap weights;
+    
+    // Abstraction function:
+    //   represents a graph under construction whose vertices are labels and
+    //   whose edges are {labels.get(high(k)) -> labels.get(low(k)) with
+    //   weight weights.get(k) | k a key of weights}
+    // Representation invariant:
+    //   labels has no duplicates and ids.get(labels.get(i)) == i for all i
+    //   every key of weights packs two ids in [0, labels.size())
+    //   every value of weights is > 0
+    // Safety from rep exposure:
+    //   All fields are private and final, and none of them is returned;
+    //   build() copies labels and weights into a new graph
+    
+    /** Make an empty builder. */
+    public GraphBuilder() {
+        this(16, 16);
+    }
+    
+    /**
+     * Make an empty builder presized for a graph.
+     * 
+     * @param expectedVertices number of distinct vertices expected, >= 0
+     * @param expectedEdges number of distinct edges expected, >= 0
+     */
+    public GraphBuilder(int expectedVertices, int expectedEdges) {
+        assert expectedVertices >= 0 && expectedEdges >= 0;
+        labels = new ArrayList<>(expectedVertices);
+        ids = new HashMap<>(expectedVertices * 4 / 3 + 1);
+        weights = new LongIntHashMap(expectedEdges);
+    }
+    
+    private void checkRep() {
+        assert labels.size() == ids.size();
+    }
+    
+    //helper code
+    /** Returns the id of vertex, interning it if it is new */
+    private int idOf(L vertex) {
+        final Integer id = ids.get(vertex);
+        if ( id != null ) {
+            return id;
+        }
+        final int newId = labels.size();
+        labels.add(vertex);
+        ids.put(vertex, newId);
+        return newId;
+    }
+    
+    /**
+     * Add a vertex to the graph being built.
+     * 
+     * @param vertex label of the vertex
+     * @return this builder
+     */
+    public GraphBuilder<L> addVertex(L vertex) {
+        idOf(vertex);
+        checkRep();
+        return this;
+    }
+    
+    /**
+     * Add a weighted directed edge to the graph being built. Vertices with
+     * the given labels are added if they have not been added yet.
+     * If the edge was already added, weight is added to its weight.
+     * 
+     * @param source label of the source vertex
+     * @param target label of the target vertex
+     * @param weight weight to add to the edge, requires weight > 0
+     * @return this builder
+     */
+    public GraphBuilder<L> addEdge(L source, L target, int weight) {
+        assert weight > 0;
+        weights.addTo(LongIntHashMap.pack(idOf(source), idOf(target)), weight);
+        checkRep();
+        return this;
+    }
+    
+    /**
+     * Add a vertex to the graph being built and get its id. Ids are given
+     * out from 0 upwards in the order vertices are first added, and are the
+     * ids that {@link #addEdgeById(int, int, int)} takes.
+     * 
+     * @param vertex label of the vertex
+     * @return the id of vertex in this builder
+     */
+    public int intern(L vertex) {
+        final int id = idOf(vertex);
+        checkRep();
+        return id;
+    }
+    
+    /**
+     * Returns the number of distinct vertices added so far, so the ids of
+     * the vertices are 0 .. vertexCount()-1
+     */
+    public int vertexCount() {
+        return labels.size();
+    }
+    
+    /**
+     * Add a weighted directed edge between vertices given by id, without
+     * looking up any label. If the edge was already added, weight is added
+     * to its weight.
+     * 
+     * @param sourceId id of the source vertex, requires
+     *                 0 <= sourceId < vertexCount()
+     * @param targetId id of the target vertex, requires
+     *                 0 <= targetId < vertexCount()
+     * @param weight weight to add to the edge, requires weight > 0
+     * @return this builder
+     */
+    public GraphBuilder<L> addEdgeById(int sourceId, int targetId, int weight) {
+        assert 0 <= sourceId && sourceId < labels.size();
+        assert 0 <= targetId && targetId < labels.size();
+        assert weight > 0;
+        weights.addTo(LongIntHashMap.pack(sourceId, targetId), weight);
+        return this;
+    }
+    
+    /**
+     * Add every vertex and edge of a graph to the graph being built.
+     * 
+     * @param graph the graph to add
+     * @return this builder
+     */
+    public GraphBuilder<L> addAll(Graph<L> graph) {
+        for (L source : graph.vertices()) {
+            addVertex(source);
+            graph.forEachTarget(source, (target, weight) -> addEdge(source, target, weight));
+        }
+        return this;
+    }
+    
+    /**
+     * Add every vertex and edge added to another builder so far to the graph
+     * being built, without building a graph from it first. Edges that both
+     * builders have get the sum of their weights.
+     * 
+     * @param other the builder whose vertices and edges to add; must not be
+     *              this builder, and is not modified
+     * @return this builder
+     */
+    public GraphBuilder<L> addAll(GraphBuilder<L> other) {
+        assert other != this;
+        final int[] otherToThis = new int[other.labels.size()];
+        for (int id = 0; id < otherToThis.length; id++) {
+            otherToThis[id] = idOf(other.labels.get(id));
+        }
+        for (int slot = other.weights.nextSlot(0); slot >= 0; slot = other.weights.nextSlot(slot + 1)) {
+            final long pair = other.weights.keyAt(slot);
+            weights.addTo(LongIntHashMap.pack(otherToThis[LongIntHashMap.high(pair)],
+                                              otherToThis[LongIntHashMap.low(pair)]),
+                          other.weights.valueAt(slot));
+        }
+        checkRep();
+        return this;
+    }
+    
+    /**
+     * Make a graph from the vertices and edges added so far.
+     * 
+     * @return an immutable graph whose vertices are all the labels added to
+     *         this builder, and whose edges are all the edges added, each
+     *         with the sum of the weights it was added with
+     */
+    public ImmutableCsrGraph<L> build() {
+        final int edgeCount = weights.size();
+        final int[] sources = new int[edgeCount];
+        final int[] targets = new int[edgeCount];
+        final int[] edgeWeights = new int[edgeCount];
+        int edge = 0;
+        for (int slot = weights.nextSlot(0); slot >= 0; slot = weights.nextSlot(slot + 1)) {
+            final long pair = weights.keyAt(slot);
+            sources[edge] = LongIntHashMap.high(pair);
+            targets[edge] = LongIntHashMap.low(pair);
+            edgeWeights[edge] = weights.valueAt(slot);
+            edge++;
+        }
+        assert edge == edgeCount;
+        return new ImmutableCsrGraph<>(labels, sources, targets, edgeWeights, edgeCount);
+    }
+    
+    /**
+     * Make a graph of a chosen engine from the vertices and edges added so far.
+     * Options without size estimates are presized for the vertices and edges
+     * of this builder.
+     * 
+     * @param options the engine and sizing of the graph
+     * @return a graph of the engine of options, immutable if that engine is
+     *         IMMUTABLE_CSR and mutable otherwise, with the vertices and
+     *         edges {@link #build()} would give
+     */
+    public Graph<L> build(GraphOptions options) {
+        if ( options.engine() == GraphOptions.Engine.IMMUTABLE_CSR ) {
+            return build();
+        }
+        GraphOptions sized = options;
+        if ( sized.expectedVertices() == 0 ) {
+            sized = sized.withExpectedVertices(labels.size());
+        }
+        if ( sized.expectedEdges() == 0 ) {
+            sized = sized.withExpectedEdges(weights.size());
+        }
+        final Graph<L> graph = Graph.empty(sized);
+        for (L label : labels) {
+            graph.add(label);
+        }
+        for (int slot = weights.nextSlot(0); slot >= 0; slot = weights.nextSlot(slot + 1)) {
+            final long pair = weights.keyAt(slot);
+            graph.set(labels.get(LongIntHashMap.high(pair)), labels.get(LongIntHashMap.low(pair)),
+                    weights.valueAt(slot));
+        }
+        return graph;
+    }
+}
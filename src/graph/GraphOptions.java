@@ -0,0 +1,208 @@
+/* Copyright (c) 2015-2016 MIT 6.005 course staff, all rights reserved.
+ * Redistribution of original or derived work requires permission of course staff.
+ */
+package graph;
+
+/**
+ * Immutable choice of graph engine and sizing, used by
+ * {@link Graph#empty(GraphOptions)} and {@link GraphBuilder#build(GraphOptions)}.
+ *
+ * <p>Start from {@link #defaults()} and change one option at a time:
+ * <pre>    GraphOptions.defaults().withEngine(Engine.VERTICES).withExpectedVertices(100000)    </pre>
+ */
+public final class GraphOptions {
+
+    /** The implementations of Graph that options can choose between. */
+    public enum Engine {
+        /** ConcreteEdgesGraph, or ConcurrentGraph if concurrent access is needed */
+        AUTO(true, true),
+        /** ConcreteEdgesGraph: edge list with per-vertex indexes */
+        EDGES(false, true),
+        /** ConcreteVerticesGraph: per-vertex maps of sources and targets */
+        VERTICES(false, true),
+        /** CompactEdgesGraph: edges in parallel int arrays, weights updated in place */
+        COMPACT(false, true),
+        /** ConcurrentGraph: lock-striped, many writers and lock-free readers */
+        CONCURRENT(true, true),
+        /** VersionedGraph: serialized writers, constant-time snapshots */
+        VERSIONED(true, true),
+        /** ImmutableCsrGraph: read-only packed arrays, only made by a GraphBuilder */
+        IMMUTABLE_CSR(true, false);
+
+        private final boolean threadSafe;
+        private final boolean mutable;
+
+        private Engine(boolean threadSafe, boolean mutable) {
+            this.threadSafe = threadSafe;
+            this.mutable = mutable;
+        }
+        /** Returns true if graphs of this engine can be shared between threads */
+        public boolean isThreadSafe() {
+            return threadSafe;
+        }
+        /** Returns true if graphs of this engine can be mutated */
+        public boolean isMutable() {
+            return mutable;
+        }
+    }
+
+    private static final GraphOptions DEFAULTS = new GraphOptions(Engine.AUTO, 0, 0, false);
+
+    private final Engine engine;
+    private final int expectedVertices;
+    private final int expectedEdges;
+    private final boolean concurrent;
+
+    // Abstraction function:
+    //   represents a request for a graph of engine, presized for
+    //   expectedVertices vertices and expectedEdges edges (0 meaning no
+    //   estimate), that must be thread-safe if concurrent is true
+    // Representation invariant:
+    //   engine is non-null
+    //   expectedVertices >= 0, expectedEdges >= 0
+    //   if concurrent, engine.isThreadSafe()
+    // Safety from rep exposure:
+    //   All fields are private, final and immutable
+
+    private GraphOptions(Engine engine, int expectedVertices, int expectedEdges, boolean concurrent) {
+        this.engine = engine;
+        this.expectedVertices = expectedVertices;
+        this.expectedEdges = expectedEdges;
+        this.concurrent = concurrent;
+        checkRep();
+    }
+
+    private void checkRep() {
+        assert engine != null;
+        assert expectedVertices >= 0 && expectedEdges >= 0;
+        assert !concurrent || engine.isThreadSafe();
+    }
+
+    /**
+     * @return options for the engine Graph.empty() uses, with no size estimates
+     *         and no need for concurrent access
+     */
+    public static GraphOptions defaults() {
+        return DEFAULTS;
+    }
+
+    /**
+     * @param engine the engine to use
+     * @return these options with engine changed
+     * @throws IllegalArgumentException if these options need concurrent
+     *         access and engine is not thread-safe
+     */
+    public GraphOptions withEngine(Engine engine) {
+        if ( concurrent && !engine.isThreadSafe() ) {
+            throw new IllegalArgumentException(engine + " is not thread-safe");
+        }
+        return new GraphOptions(engine, expectedVertices, expectedEdges, concurrent);
+    }
+
+    /**
+     * @param expectedVertices number of vertices expected, or 0 for no estimate
+     * @return these options with the vertex estimate changed
+     * @throws IllegalArgumentException if expectedVertices < 0
+     */
+    public GraphOptions withExpectedVertices(int expectedVertices) {
+        if ( expectedVertices < 0 ) {
+            throw new IllegalArgumentException("negative expected vertices: " + expectedVertices);
+        }
+        return new GraphOptions(engine, expectedVertices, expectedEdges, concurrent);
+    }
+
+    /**
+     * @param expectedEdges number of edges expected, or 0 for no estimate
+     * @return these options with the edge estimate changed
+     * @throws IllegalArgumentException if expectedEdges < 0
+     */
+    public GraphOptions withExpectedEdges(int expectedEdges) {
+        if ( expectedEdges < 0 ) {
+            throw new IllegalArgumentException("negative expected edges: " + expectedEdges);
+        }
+        return new GraphOptions(engine, expectedVertices, expectedEdges, concurrent);
+    }
+
+    /**
+     * @param concurrent true if the graph will be shared between threads
+     * @return these options with the need for concurrent access changed
+     * @throws IllegalArgumentException if concurrent is true and the engine
+     *         of these options is not thread-safe
+     */
+    public GraphOptions withConcurrent(boolean concurrent) {
+        if ( concurrent && !engine.isThreadSafe() ) {
+            throw new IllegalArgumentException(engine + " is not thread-safe");
+        }
+        return new GraphOptions(engine, expectedVertices, expectedEdges, concurrent);
+    }
+
+    /** Returns the engine of these options */
+    public Engine engine() {
+        return engine;
+    }
+    /** Returns the number of vertices expected, or 0 for no estimate */
+    public int expectedVertices() {
+        return expectedVertices;
+    }
+    /** Returns the number of edges expected, or 0 for no estimate */
+    public int expectedEdges() {
+        return expectedEdges;
+    }
+    /** Returns true if the graph will be shared between threads */
+    public boolean isConcurrent() {
+        return concurrent;
+    }
+
+    /**
+     * Make a new empty mutable graph as these options describe.
+     *
+     * @param <L> type of vertex labels in the graph, must be immutable
+     * @return a new empty graph of the engine of these options, where AUTO
+     *         means EDGES, or CONCURRENT if these options need concurrent access
+     * @throws IllegalArgumentException if the engine is not mutable
+     */
+    <L> Graph<L> newEmptyGraph() {
+        switch (engine) {
+        case AUTO:
+            return concurrent
+                    ? new ConcurrentGraph<>(expectedVertices)
+                    : new ConcreteEdgesGraph<>(expectedVertices, expectedEdges);
+        case EDGES:
+            return new ConcreteEdgesGraph<>(expectedVertices, expectedEdges);
+        case VERTICES:
+            return new ConcreteVerticesGraph<>(expectedVertices);
+        case COMPACT:
+            return new CompactEdgesGraph<>(expectedVertices, expectedEdges);
+        case CONCURRENT:
+            return new ConcurrentGraph<>(expectedVertices);
+        case VERSIONED:
+            return new VersionedGraph<>();
+        default:
+            throw new IllegalArgumentException(engine + " graphs can only be made by a GraphBuilder");
+        }
+    }
+
+    @Override public String toString() {
+        return String.format("GraphOptions(engine=%s, expectedVertices=%d, expectedEdges=%d, concurrent=%b)",
+                engine, expectedVertices, expectedEdges, concurrent);
+    }
+    @Override public boolean equals(Object that) {
+        if ( !(that instanceof GraphOptions) ) {
+            return false;
+        }
+        final GraphOptions thatOptions = (GraphOptions) that;
+        return engine == thatOptions.engine
+                && expectedVertices == thatOptions.expectedVertices
+                && expectedEdges == thatOptions.expectedEdges
+                && concurrent == thatOptions.concurrent;
+    }
+    @Override public int hashCode() {
+        final int prime = 31;
+        int result = 1;
+        result = prime * result + engine.hashCode();
+        result = prime * result + expectedVertices;
+        result = prime * result + expectedEdges;
+        result = prime * result + (concurrent ? 1 : 0);
+        return result;
+    }
+}
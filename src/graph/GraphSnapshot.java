@@ -0,0 +1,330 @@
+/* Copyright (c) 2015-2016 MIT 6.005 course staff, all rights reserved.
+ * Redistribution of original or derived work requires permission of course staff.
+ */
+package graph;
+
+import java.io.BufferedOutputStream;
+import java.io.DataOutputStream;
+import java.io.IOException;
+import java.io.OutputStream;
+import java.nio.BufferUnderflowException;
+import java.nio.ByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.StandardOpenOption;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.HashMap;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+import java.util.function.Function;
+import java.util.zip.CRC32;
+import java.util.zip.CheckedOutputStream;
+
+/**
+ * Saves graphs to and loads graphs from a compact binary format.
+ *
+ * <p>A snapshot is, in order:
+ * <ul><li> the int {@code 0x47524150} ("GRAP") and a format version byte
+ *     <li> the label dictionary: the number of vertices, then the length
+ *          and UTF-8 bytes of the text of each label; the i-th label is the
+ *          vertex with id i
+ *     <li> the adjacency: the number of edges, then for each vertex in id
+ *          order its number of targets and, for each target in increasing
+ *          id order, the gap from the previous target id and the weight
+ *     <li> the CRC32 of all the bytes before it, as an int </ul>
+ * <p>Counts, lengths, gaps and weights are unsigned varints: seven bits per
+ * byte, least significant first, with the high bit set on every byte but
+ * the last. Fixed-size ints are big-endian.
+ *
+ * <p>Loading maps the file into memory and decodes it in a single pass
+ * straight into the arrays of an ImmutableCsrGraph, without hashing any
+ * edge. A snapshot can also be embedded in a larger file with
+ * {@link #write(Graph, List, Function, OutputStream)} and
+ * {@link #read(ByteBuffer, Function)}.
+ */
+public final class GraphSnapshot {
+    private static final int MAGIC = 0x47524150;
+    private static final byte VERSION = 1;
+
+    private GraphSnapshot() {
+    }
+
+    /**
+     * Save a graph of String labels to a file.
+     *
+     * @param graph the graph to save; must not be modified while it is saved
+     * @param file the file to write, replaced if it exists
+     * @throws IOException if file cannot be written
+     */
+    public static void write(Graph<String> graph, Path file) throws IOException {
+        write(graph, file, Function.identity());
+    }
+
+    /**
+     * Save a graph to a file.
+     *
+     * @param <L> type of vertex labels
+     * @param graph the graph to save; must not be modified while it is saved
+     * @param file the file to write, replaced if it exists
+     * @param labelText gives the text of a label, different for different
+     *                  labels of graph
+     * @throws IOException if file cannot be written
+     */
+    public static <L> void write(Graph<L> graph, Path file, Function<? super L, String> labelText)
+            throws IOException {
+        try (OutputStream out = new BufferedOutputStream(Files.newOutputStream(file))) {
+            write(graph, new ArrayList<>(graph.vertices()), labelText, out);
+        }
+    }
+
+    /**
+     * Write a snapshot of a graph to a stream.
+     *
+     * @param <L> type of vertex labels
+     * @param graph the graph to save; must not be modified while it is saved
+     * @param order the vertices of graph, each exactly once; vertex
+     *              order.get(i) gets id i in the snapshot
+     * @param labelText gives the text of a label, different for different
+     *                  labels of graph
+     * @param out where to write the snapshot; not closed
+     * @throws IOException if out throws it
+     */
+    public static <L> void write(Graph<L> graph, List<L> order, Function<? super L, String> labelText,
+            OutputStream out) throws IOException {
+        final int n = order.size();
+        final Map<L, Integer> ids = new HashMap<>(n * 4 / 3 + 1);
+        for (L label : order) {
+            ids.put(label, ids.size());
+        }
+        assert ids.size() == n && graph.vertices().size() == n;
+
+        final CheckedOutputStream checked = new CheckedOutputStream(out, new CRC32());
+        final DataOutputStream data = new DataOutputStream(checked);
+        data.writeInt(MAGIC);
+        data.writeByte(VERSION);
+        writeVarInt(data, n);
+        for (L label : order) {
+            final byte[] text = labelText.apply(label).getBytes(StandardCharsets.UTF_8);
+            writeVarInt(data, text.length);
+            data.write(text);
+        }
+        int edgeCount = 0;
+        for (L label : order) {
+            edgeCount += graph.targets(label).size();
+        }
+        writeVarInt(data, edgeCount);
+        // each target packed as id << 32 | weight, so sorting a row sorts by id
+        long[] row = new long[16];
+        final int[] rowSize = new int[1];
+        for (L label : order) {
+            rowSize[0] = 0;
+            final int degree = graph.targets(label).size();
+            if ( degree > row.length ) {
+                row = new long[Math.max(degree, row.length * 2)];
+            }
+            final long[] entries = row;
+            graph.forEachTarget(label, (target, weight) ->
+                    entries[rowSize[0]++] = ((long) ids.get(target) << 32) | weight);
+            Arrays.sort(entries, 0, rowSize[0]);
+            writeVarInt(data, rowSize[0]);
+            int previous = -1;
+            for (int i = 0; i < rowSize[0]; i++) {
+                final int target = (int) (entries[i] >>> 32);
+                writeVarInt(data, target - previous - 1);
+                writeVarInt(data, (int) entries[i]);
+                previous = target;
+            }
+        }
+        data.flush();
+        new DataOutputStream(out).writeInt((int) checked.getChecksum().getValue());
+    }
+
+    /**
+     * Load a graph of String labels from a file written by
+     * {@link #write(Graph, Path)}.
+     *
+     * @param file the file to read
+     * @return an immutable graph with the vertices and edges that were saved
+     * @throws IOException if file cannot be read, or is not a whole snapshot
+     *         with a correct checksum
+     */
+    public static ImmutableCsrGraph<String> read(Path file) throws IOException {
+        return read(file, Function.identity());
+    }
+
+    /**
+     * Load a graph from a file written by
+     * {@link #write(Graph, Path, Function)}, by mapping it into memory.
+     *
+     * @param <L> type of vertex labels
+     * @param file the file to read
+     * @param labelOf gives the label of the text of a label, the inverse of
+     *                the function the graph was saved with
+     * @return an immutable graph with the vertices and edges that were saved
+     * @throws IOException if file cannot be read, or is not a whole snapshot
+     *         with a correct checksum
+     */
+    public static <L> ImmutableCsrGraph<L> read(Path file, Function<String, ? extends L> labelOf)
+            throws IOException {
+        final ByteBuffer in = map(file);
+        final ImmutableCsrGraph<L> graph = read(in, labelOf);
+        if ( in.hasRemaining() ) {
+            throw new IOException("unexpected data after graph snapshot in " + file);
+        }
+        return graph;
+    }
+
+    /**
+     * Map a whole file into memory, read-only.
+     *
+     * @param file the file to map, smaller than 2 GB
+     * @return a buffer of the bytes of file, from position 0 to its limit
+     * @throws IOException if file cannot be read or is too large to map
+     */
+    public static ByteBuffer map(Path file) throws IOException {
+        try (FileChannel channel = FileChannel.open(file, StandardOpenOption.READ)) {
+            if ( channel.size() > Integer.MAX_VALUE ) {
+                throw new IOException("too large to map: " + file);
+            }
+            return channel.map(FileChannel.MapMode.READ_ONLY, 0, channel.size());
+        }
+    }
+
+    /**
+     * Read a snapshot of a graph from a buffer.
+     *
+     * @param <L> type of vertex labels
+     * @param in holds a snapshot from its position on; its position is moved
+     *           past the snapshot, or is unspecified if an exception is thrown
+     * @param labelOf gives the label of the text of a label, the inverse of
+     *                the function the graph was saved with; called once per
+     *                label in id order, after the checksum is verified
+     * @return an immutable graph with the vertices and edges that were saved
+     * @throws IOException if in does not hold a whole snapshot with a correct
+     *         checksum and distinct labels
+     */
+    public static <L> ImmutableCsrGraph<L> read(ByteBuffer in, Function<String, ? extends L> labelOf)
+            throws IOException {
+        final int start = in.position();
+        try {
+            if ( in.getInt() != MAGIC ) {
+                throw new IOException("not a graph snapshot");
+            }
+            if ( in.get() != VERSION ) {
+                throw new IOException("unsupported graph snapshot version");
+            }
+            final int n = readCount(in);
+            final List<String> texts = new ArrayList<>(n);
+            final Set<String> seen = new HashSet<>();
+            byte[] text = new byte[64];
+            for (int i = 0; i < n; i++) {
+                final int length = readCount(in);
+                if ( length > text.length ) {
+                    text = new byte[Math.max(length, text.length * 2)];
+                }
+                in.get(text, 0, length);
+                final String label = new String(text, 0, length, StandardCharsets.UTF_8);
+                if ( !seen.add(label) ) {
+                    throw new IOException("corrupt graph snapshot: duplicate label");
+                }
+                texts.add(label);
+            }
+            final int edgeCount = readCount(in);
+            final int[] sources = new int[edgeCount];
+            final int[] targets = new int[edgeCount];
+            final int[] weights = new int[edgeCount];
+            int edge = 0;
+            for (int source = 0; source < n; source++) {
+                final int degree = readVarInt(in);
+                if ( degree > edgeCount - edge ) {
+                    throw new IOException("corrupt graph snapshot: too many edges");
+                }
+                int target = -1;
+                for (int i = 0; i < degree; i++) {
+                    target += readVarInt(in) + 1;
+                    final int weight = readVarInt(in);
+                    if ( target < 0 || target >= n || weight <= 0 ) {
+                        throw new IOException("corrupt graph snapshot: bad edge");
+                    }
+                    sources[edge] = source;
+                    targets[edge] = target;
+                    weights[edge] = weight;
+                    edge++;
+                }
+            }
+            if ( edge != edgeCount ) {
+                throw new IOException("corrupt graph snapshot: missing edges");
+            }
+            final ByteBuffer body = in.duplicate();
+            body.limit(in.position()).position(start);
+            final CRC32 crc = new CRC32();
+            crc.update(body);
+            if ( in.getInt() != (int) crc.getValue() ) {
+                throw new IOException("corrupt graph snapshot: checksum mismatch");
+            }
+            final List<L> labels = new ArrayList<>(n);
+            for (String label : texts) {
+                labels.add(labelOf.apply(label));
+            }
+            return new ImmutableCsrGraph<>(labels, sources, targets, weights, edgeCount);
+        } catch (BufferUnderflowException e) {
+            throw new IOException("truncated graph snapshot", e);
+        }
+    }
+
+    /**
+     * Write an int as an unsigned varint, the encoding of the counts of a
+     * snapshot.
+     *
+     * @param out where to write
+     * @param value requires value >= 0
+     * @throws IOException if out throws it
+     */
+    public static void writeVarInt(OutputStream out, int value) throws IOException {
+        assert value >= 0;
+        while ((value & ~0x7F) != 0) {
+            out.write((value & 0x7F) | 0x80);
+            value >>>= 7;
+        }
+        out.write(value);
+    }
+
+    /**
+     * Read an unsigned varint written by {@link #writeVarInt(OutputStream, int)}.
+     *
+     * @param in holds a varint from its position on; its position is moved
+     *           past it
+     * @return the value of the varint
+     * @throws IOException if the varint does not fit a nonnegative int
+     * @throws BufferUnderflowException if in ends inside the varint
+     */
+    public static int readVarInt(ByteBuffer in) throws IOException {
+        int value = 0;
+        for (int shift = 0; shift < 35; shift += 7) {
+            final byte b = in.get();
+            value |= (b & 0x7F) << shift;
+            if ( b >= 0 ) {
+                if ( value < 0 || (shift == 28 && (b & 0x70) != 0) ) {
+                    break;
+                }
+                return value;
+            }
+        }
+        throw new IOException("corrupt varint");
+    }
+
+    //helper code
+    /** Reads a count that cannot be larger than the bytes left in in */
+    private static int readCount(ByteBuffer in) throws IOException {
+        final int count = readVarInt(in);
+        if ( count > in.remaining() ) {
+            throw new IOException("corrupt graph snapshot: count larger than file");
+        }
+        return count;
+    }
+}
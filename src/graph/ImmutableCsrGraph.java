@@ -0,0 +1,436 @@
+/* Copyright (c) 2015-2016 MIT 6.005 course staff, all rights reserved.
+ * Redistribution of original or derived work requires permission of course staff.
+ */
+package graph;
+
+import java.util.AbstractMap;
+import java.util.AbstractSet;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collection;
+import java.util.Collections;
+import java.util.HashMap;
+import java.util.Iterator;
+import java.util.List;
+import java.util.Map;
+import java.util.NoSuchElementException;
+import java.util.Set;
+
+/**
+ * An immutable implementation of Graph stored in compressed sparse row form.
+ *
+ * <p>Every vertex label is interned to an int id, and the edges are packed
+ * into primitive arrays: for each vertex, its outgoing edges are a slice of
+ * the target arrays and its incoming edges are a slice of the source arrays.
+ * Reads never allocate per-edge objects, and the whole graph costs a few
+ * ints per edge instead of an object per edge.
+ *
+ * <p>Mutators (add, set, remove) throw UnsupportedOperationException.
+ * Create instances with {@link Graph#freeze()} or {@link GraphBuilder}.
+ *
+ * @param <L> type of vertex labels in this graph, must be immutable
+ */
+public class ImmutableCsrGraph<L> implements Graph<L> {
+    // a row this many times longer than the other is galloped instead of merged
+    private static final int GALLOP_RATIO = 8;
+
+    private final List<L> labels;
+    private final Map<L, Integer> ids;
+    private final Set<L> vertices;
+    private final int[] targetOffsets;
+    private final int[] targetIds;
+    private final int[] targetWeights;
+    private final int[] sourceOffsets;
+    private final int[] sourceIds;
+    private final int[] sourceWeights;
+    private final Row<L>[] sourceRows;
+    private final Row<L>[] targetRows;
+
+    // Abstraction function:
+    //   represents a weighted directed graph whose vertices are labels, where
+    //   the vertex with id i has label labels.get(i), and for every i and
+    //   targetOffsets[i] <= k < targetOffsets[i+1] there is an edge from
+    //   labels.get(i) to labels.get(targetIds[k]) with weight targetWeights[k].
+    //   sourceOffsets, sourceIds and sourceWeights describe the same edges
+    //   grouped by target instead of by source.
+    //
+    // Representation invariant:
+    //   labels has no duplicates and ids.get(labels.get(i)) == i for all i
+    //   targetOffsets.length == sourceOffsets.length == labels.size() + 1
+    //   targetOffsets and sourceOffsets are non-decreasing, start at 0 and
+    //     end at the number of edges
+    //   the ids in every row of targetIds and sourceIds are strictly
+    //     increasing, so no edge is stored twice
+    //   all weights are > 0
+    //
+    // Safety from rep exposure:
+    //   All fields are private and final
+    //   labels and vertices are unmodifiable, ids is never returned
+    //   the int arrays are never returned; sources() and targets() return
+    //   read-only maps that only read from them
+    //   sourceRows and targetRows cache those maps, one per vertex, made
+    //   the first time they are asked for; a Row is immutable, so racing
+    //   threads that both make one are harmless
+
+    /**
+     * Make a graph from a list of interned labels and a list of edges.
+     *
+     * @param labels the vertex labels, the label of the vertex with id i is
+     *               labels.get(i); requires no duplicate labels
+     * @param edgeSources the source id of every edge
+     * @param edgeTargets the target id of every edge
+     * @param edgeWeights the weight of every edge, requires all weights > 0
+     * @param edgeCount number of edges, only the first edgeCount entries of
+     *                  the edge arrays are read; requires no two edges to
+     *                  have the same source and target
+     */
+    ImmutableCsrGraph(List<L> labels, int[] edgeSources, int[] edgeTargets,
+            int[] edgeWeights, int edgeCount) {
+        final int vertexCount = labels.size();
+        this.labels = Collections.unmodifiableList(new ArrayList<>(labels));
+        final Map<L, Integer> labelIds = new HashMap<>(vertexCount * 2);
+        for (int i = 0; i < vertexCount; i++) {
+            labelIds.put(labels.get(i), i);
+        }
+        this.ids = labelIds;
+        this.vertices = Collections.unmodifiableSet(labelIds.keySet());
+        this.sourceRows = newRows(vertexCount);
+        this.targetRows = newRows(vertexCount);
+
+        final int[] identity = new int[edgeCount];
+        for (int i = 0; i < edgeCount; i++) {
+            identity[i] = i;
+        }
+        // two stable counting sorts order the edges by (source, target)
+        final int[] byTarget = groupBy(edgeTargets, identity, vertexCount, new int[vertexCount + 1]);
+        this.targetOffsets = new int[vertexCount + 1];
+        final int[] bySource = groupBy(edgeSources, byTarget, vertexCount, targetOffsets);
+        this.targetIds = new int[edgeCount];
+        this.targetWeights = new int[edgeCount];
+        for (int k = 0; k < edgeCount; k++) {
+            targetIds[k] = edgeTargets[bySource[k]];
+            targetWeights[k] = edgeWeights[bySource[k]];
+        }
+        // and the other way around orders them by (target, source)
+        final int[] bySourceOnly = groupBy(edgeSources, identity, vertexCount, new int[vertexCount + 1]);
+        this.sourceOffsets = new int[vertexCount + 1];
+        final int[] byTargetThenSource = groupBy(edgeTargets, bySourceOnly, vertexCount, sourceOffsets);
+        this.sourceIds = new int[edgeCount];
+        this.sourceWeights = new int[edgeCount];
+        for (int k = 0; k < edgeCount; k++) {
+            sourceIds[k] = edgeSources[byTargetThenSource[k]];
+            sourceWeights[k] = edgeWeights[byTargetThenSource[k]];
+        }
+        checkRep();
+    }
+
+    /**
+     * Make an immutable copy of a graph.
+     *
+     * @param <L> type of vertex labels in the graph, must be immutable
+     * @param graph the graph to copy
+     * @return a graph with the same vertices and edges as graph
+     */
+    public static <L> ImmutableCsrGraph<L> copyOf(Graph<L> graph) {
+        if ( graph instanceof ImmutableCsrGraph ) {
+            return (ImmutableCsrGraph<L>) graph;
+        }
+        return new GraphBuilder<L>(graph.vertices().size(), graph.vertices().size())
+                .addAll(graph)
+                .build();
+    }
+
+    private void checkRep() {
+        assert labels.size() == ids.size();
+        assert targetOffsets.length == labels.size() + 1;
+        assert sourceOffsets.length == labels.size() + 1;
+        assert targetOffsets[labels.size()] == targetIds.length;
+        assert sourceOffsets[labels.size()] == sourceIds.length;
+        assert targetIds.length == sourceIds.length;
+    }
+
+    //helper code
+    /**
+     * Stable counting sort of edge indexes by an int key, recording where
+     * each key's group starts.
+     *
+     * @param keys the key of every edge, each key in [0, keyCount)
+     * @param order the edge indexes to sort
+     * @param keyCount number of distinct keys
+     * @param offsets zeroed array of length keyCount + 1, filled such that
+     *                the edges with key k are at [offsets[k], offsets[k+1])
+     *                of the returned array
+     * @return a new array of the indexes in order, sorted by key
+     */
+    private static int[] groupBy(int[] keys, int[] order, int keyCount, int[] offsets) {
+        final int[] sorted = new int[order.length];
+        for (int edge : order) {
+            offsets[keys[edge] + 1]++;
+        }
+        for (int k = 0; k < keyCount; k++) {
+            offsets[k + 1] += offsets[k];
+        }
+        final int[] next = Arrays.copyOf(offsets, keyCount);
+        for (int edge : order) {
+            sorted[next[keys[edge]]++] = edge;
+        }
+        return sorted;
+    }
+
+    /** @throws UnsupportedOperationException always, this graph is immutable */
+    @Override public boolean add(L vertex) {
+        throw new UnsupportedOperationException("graph is immutable");
+    }
+    /** @throws UnsupportedOperationException always, this graph is immutable */
+    @Override public int set(L source, L target, int weight) {
+        throw new UnsupportedOperationException("graph is immutable");
+    }
+    /** @throws UnsupportedOperationException always, this graph is immutable */
+    @Override public int increment(L source, L target, int delta) {
+        throw new UnsupportedOperationException("graph is immutable");
+    }
+    /** @throws UnsupportedOperationException always, this graph is immutable */
+    @Override public boolean remove(L vertex) {
+        throw new UnsupportedOperationException("graph is immutable");
+    }
+    /** @throws UnsupportedOperationException always, this graph is immutable */
+    @Override public boolean removeAll(Collection<? extends L> vertices) {
+        throw new UnsupportedOperationException("graph is immutable");
+    }
+    /** Returns a read-only view of this graph's vertices */
+    @Override public Set<L> vertices() {
+        return vertices;
+    }
+    /** Returns a read-only map of a target's sources, backed by this graph's arrays */
+    @Override public Map<L, Integer> sources(L target) {
+        final Integer id = ids.get(target);
+        if ( id == null ) {
+            return Collections.emptyMap();
+        }
+        Row<L> row = sourceRows[id];
+        if ( row == null ) {
+            row = new Row<>(labels, ids, sourceOffsets[id], sourceOffsets[id + 1], sourceIds, sourceWeights);
+            sourceRows[id] = row;
+        }
+        return row;
+    }
+    /** Returns a read-only map of a source's targets, backed by this graph's arrays */
+    @Override public Map<L, Integer> targets(L source) {
+        final Integer id = ids.get(source);
+        if ( id == null ) {
+            return Collections.emptyMap();
+        }
+        Row<L> row = targetRows[id];
+        if ( row == null ) {
+            row = new Row<>(labels, ids, targetOffsets[id], targetOffsets[id + 1], targetIds, targetWeights);
+            targetRows[id] = row;
+        }
+        return row;
+    }
+    @Override public void forEachSource(L target, IntWeightConsumer<? super L> action) {
+        final Integer id = ids.get(target);
+        if ( id != null ) {
+            forEachInRow(sourceOffsets[id], sourceOffsets[id + 1], sourceIds, sourceWeights, action);
+        }
+    }
+    @Override public void forEachTarget(L source, IntWeightConsumer<? super L> action) {
+        final Integer id = ids.get(source);
+        if ( id != null ) {
+            forEachInRow(targetOffsets[id], targetOffsets[id + 1], targetIds, targetWeights, action);
+        }
+    }
+    /** Visits the edges in order of source id, then target id */
+    @Override public boolean forEachEdge(EdgeVisitor<? super L> visitor) {
+        for (int source = 0; source < labels.size(); source++) {
+            final L sourceLabel = labels.get(source);
+            for (int k = targetOffsets[source]; k < targetOffsets[source + 1]; k++) {
+                if ( !visitor.visit(sourceLabel, labels.get(targetIds[k]), targetWeights[k]) ) {
+                    return false;
+                }
+            }
+        }
+        return true;
+    }
+    /**
+     * Intersects the sorted rows of from's targets and to's sources, so the
+     * common neighbours are visited in increasing id order. Rows of similar
+     * length are merged; when one row is more than GALLOP_RATIO times longer,
+     * each id of the shorter row is found in it by galloping (exponential
+     * then binary search), which takes O(m log(n/m)) time for rows of
+     * lengths m <= n.
+     */
+    @Override public void forEachCommonNeighbor(L from, L to, IntWeightConsumer<? super L> action) {
+        final Integer fromId = ids.get(from);
+        final Integer toId = ids.get(to);
+        if ( fromId == null || toId == null ) {
+            return;
+        }
+        int out = targetOffsets[fromId];
+        final int outEnd = targetOffsets[fromId + 1];
+        int in = sourceOffsets[toId];
+        final int inEnd = sourceOffsets[toId + 1];
+        final int outLength = outEnd - out;
+        final int inLength = inEnd - in;
+        if ( outLength * GALLOP_RATIO < inLength ) {
+            for (; out < outEnd && in < inEnd; out++) {
+                in = gallop(sourceIds, in, inEnd, targetIds[out]);
+                if ( in < inEnd && sourceIds[in] == targetIds[out] ) {
+                    action.accept(labels.get(targetIds[out]), targetWeights[out] + sourceWeights[in]);
+                    in++;
+                }
+            }
+        } else if ( inLength * GALLOP_RATIO < outLength ) {
+            for (; in < inEnd && out < outEnd; in++) {
+                out = gallop(targetIds, out, outEnd, sourceIds[in]);
+                if ( out < outEnd && targetIds[out] == sourceIds[in] ) {
+                    action.accept(labels.get(sourceIds[in]), targetWeights[out] + sourceWeights[in]);
+                    out++;
+                }
+            }
+        } else {
+            while (out < outEnd && in < inEnd) {
+                final int outId = targetIds[out];
+                final int inId = sourceIds[in];
+                if ( outId < inId ) {
+                    out++;
+                } else if ( inId < outId ) {
+                    in++;
+                } else {
+                    action.accept(labels.get(outId), targetWeights[out] + sourceWeights[in]);
+                    out++;
+                    in++;
+                }
+            }
+        }
+    }
+    //helper method
+    /**
+     * Returns the first position in [start, end) of a sorted row whose id is
+     * >= key, or end if there is none, probing start+1, start+3, start+7, ...
+     * before a binary search of the last step.
+     */
+    private static int gallop(int[] rowIds, int start, int end, int key) {
+        int low = start;
+        int step = 1;
+        while (low + step < end && rowIds[low + step] < key) {
+            low += step;
+            step *= 2;
+        }
+        if ( rowIds[low] >= key ) {
+            return low;
+        }
+        final int high = Math.min(low + step, end);
+        final int found = Arrays.binarySearch(rowIds, low + 1, high, key);
+        return found >= 0 ? found : -found - 1;
+    }
+    /** Returns an array of count empty row slots */
+    private static <L> Row<L>[] newRows(int count) {
+        @SuppressWarnings("unchecked") // holds only Row<L>, never exposed
+        final Row<L>[] rows = (Row<L>[]) new Row<?>[count];
+        return rows;
+    }
+    /** Calls action on the label and weight at every position in [start, end) of a row */
+    private void forEachInRow(int start, int end, int[] rowIds, int[] rowWeights,
+            IntWeightConsumer<? super L> action) {
+        for (int k = start; k < end; k++) {
+            action.accept(labels.get(rowIds[k]), rowWeights[k]);
+        }
+    }
+    /** Returns this graph, it is already immutable */
+    @Override public ImmutableCsrGraph<L> freeze() {
+        return this;
+    }
+
+    /**
+     * Returns the string representation of this graph
+     *
+     * The string contains one line per edge, in the same form as
+     * ConcreteEdgesGraph:
+     *      source -> target: weight
+     *
+     * @return string rep of this graph containing all its edges,
+     *         "Empty Graph" if graph has no edges
+     */
+    @Override public String toString() {
+        if ( targetIds.length == 0 ) {
+            return "Empty Graph";
+        }
+        final StringBuilder rep = new StringBuilder();
+        for (int source = 0; source < labels.size(); source++) {
+            for (int k = targetOffsets[source]; k < targetOffsets[source + 1]; k++) {
+                if ( rep.length() > 0 ) {
+                    rep.append('\n');
+                }
+                rep.append(labels.get(source)).append(" -> ")
+                   .append(labels.get(targetIds[k])).append(": ")
+                   .append(targetWeights[k]);
+            }
+        }
+        return rep.toString();
+    }
+
+    /**
+     * Read-only map view of one row of the packed adjacency arrays.
+     *
+     * The keys are the labels of rowIds[start .. end) and the values are the
+     * matching rowWeights[start .. end).
+     */
+    private static final class Row<L> extends AbstractMap<L, Integer> {
+        private final List<L> labels;
+        private final Map<L, Integer> ids;
+        private final int start;
+        private final int end;
+        private final int[] rowIds;
+        private final int[] rowWeights;
+
+        Row(List<L> labels, Map<L, Integer> ids, int start, int end, int[] rowIds, int[] rowWeights) {
+            this.labels = labels;
+            this.ids = ids;
+            this.start = start;
+            this.end = end;
+            this.rowIds = rowIds;
+            this.rowWeights = rowWeights;
+        }
+
+        /** Returns the position of the label in this row, or a negative number */
+        private int positionOf(Object label) {
+            final Integer id = ids.get(label);
+            return id == null ? -1 : Arrays.binarySearch(rowIds, start, end, id);
+        }
+        @Override public int size() {
+            return end - start;
+        }
+        @Override public boolean containsKey(Object label) {
+            return positionOf(label) >= 0;
+        }
+        @Override public Integer get(Object label) {
+            final int position = positionOf(label);
+            return position < 0 ? null : rowWeights[position];
+        }
+        @Override public Set<Map.Entry<L, Integer>> entrySet() {
+            return new AbstractSet<Map.Entry<L, Integer>>() {
+                @Override public int size() {
+                    return end - start;
+                }
+                @Override public Iterator<Map.Entry<L, Integer>> iterator() {
+                    return new Iterator<Map.Entry<L, Integer>>() {
+                        private int next = start;
+
+                        @Override public boolean hasNext() {
+                            return next < end;
+                        }
+                        @Override public Map.Entry<L, Integer> next() {
+                            if ( next >= end ) {
+                                throw new NoSuchElementException();
+                            }
+                            final Map.Entry<L, Integer> entry = new AbstractMap.SimpleImmutableEntry<>(
+                                    labels.get(rowIds[next]), rowWeights[next]);
+                            next++;
+                            return entry;
+                        }
+                    };
+                }
+            };
+        }
+    }
+}
@@ -0,0 +1,26 @@
+/* Copyright (c) 2015-2016 MIT 6.005 course staff, all rights reserved.
+ * Redistribution of original or derived work requires permission of course staff.
+ */
+package graph;
+
+/**
+ * An operation on a neighbouring vertex and the weight of the edge to it.
+ * 
+ * <p>Unlike a {@code BiConsumer<L, Integer>}, the weight is passed as a
+ * primitive int, so walking the neighbours of a vertex does not box weights.
+ * 
+ * @param <L> type of vertex labels, must be immutable
+ */
+@FunctionalInterface
+public interface IntWeightConsumer<L> {
+    
+    /**
+     * Perform this operation on a neighbour.
+     * 
+     * @param label label of the neighbouring vertex
+     * @param weight the (nonzero) weight of the edge between the vertex
+     *               being walked and label
+     */
+    public void accept(L label, int weight);
+    
+}
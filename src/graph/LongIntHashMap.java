@@ -0,0 +1,216 @@
+/* Copyright (c) 2015-2016 MIT 6.005 course staff, all rights reserved.
+ * Redistribution of original or derived work requires permission of course staff.
+ */
+package graph;
+
+import java.util.Arrays;
+
+/**
+ * Mutable hash map from nonnegative long keys to int values, stored in two
+ * primitive arrays with open addressing and linear probing.
+ * 
+ * <p>Used to key edges by a (source id, target id) pair packed into a long,
+ * without a boxed key or an entry object per edge.
+ * 
+ * This class is internal to the graph package.
+ */
+class LongIntHashMap {
+    private static final long EMPTY = -1L;
+    private static final int MIN_CAPACITY = 16;
+    
+    private long[] keys;
+    private int[] values;
+    private int size;
+    
+    // Abstraction function:
+    //   represents the map {keys[i] -> values[i] | keys[i] != EMPTY}
+    // Representation invariant:
+    //   keys.length == values.length and is a power of two
+    //   size is the number of slots i with keys[i] != EMPTY
+    //   size < keys.length (at least one slot is always EMPTY)
+    //   every key appears at most once, and the slots from its hash slot up
+    //     to its slot (wrapping around) are all non-EMPTY
+    // Safety from rep exposure:
+    //   All fields are private, the arrays are never returned
+    
+    /**
+     * Make an empty map.
+     * 
+     * @param expectedSize number of keys the map should hold without growing,
+     *                     requires expectedSize >= 0
+     */
+    public LongIntHashMap(int expectedSize) {
+        assert expectedSize >= 0;
+        int capacity = MIN_CAPACITY;
+        while (capacity * 3 / 4 <= expectedSize) {
+            capacity *= 2;
+        }
+        keys = new long[capacity];
+        Arrays.fill(keys, EMPTY);
+        values = new int[capacity];
+    }
+    
+    /** Returns the slot holding key, or the empty slot where it would go */
+    private int slotOf(long key) {
+        final int mask = keys.length - 1;
+        int slot = hash(key) & mask;
+        while (keys[slot] != EMPTY && keys[slot] != key) {
+            slot = (slot + 1) & mask;
+        }
+        return slot;
+    }
+    private static int hash(long key) {
+        final long mixed = key * 0x9E3779B97F4A7C15L;
+        return (int) (mixed ^ (mixed >>> 32));
+    }
+    
+    /** Returns the number of keys in this map */
+    public int size() {
+        return size;
+    }
+    
+    /**
+     * Get the value of a key.
+     * 
+     * @param key requires key >= 0
+     * @param defaultValue value to return if key is not in this map
+     * @return the value of key, or defaultValue if it has none
+     */
+    public int get(long key, int defaultValue) {
+        assert key >= 0;
+        final int slot = slotOf(key);
+        return keys[slot] == EMPTY ? defaultValue : values[slot];
+    }
+    
+    /**
+     * Set the value of a key.
+     * 
+     * @param key requires key >= 0
+     * @param value new value of key
+     * @param defaultValue value to return if key was not in this map
+     * @return the previous value of key, or defaultValue if it had none
+     */
+    public int put(long key, int value, int defaultValue) {
+        assert key >= 0;
+        final int slot = slotOf(key);
+        if ( keys[slot] != EMPTY ) {
+            final int previous = values[slot];
+            values[slot] = value;
+            return previous;
+        }
+        insertAt(slot, key, value);
+        return defaultValue;
+    }
+    
+    /**
+     * Add to the value of a key, in a single probe.
+     * 
+     * @param key requires key >= 0
+     * @param delta amount to add; a key that is not in this map is added
+     *              with value delta
+     * @return the new value of key
+     */
+    public int addTo(long key, int delta) {
+        assert key >= 0;
+        final int slot = slotOf(key);
+        if ( keys[slot] != EMPTY ) {
+            values[slot] += delta;
+            return values[slot];
+        }
+        insertAt(slot, key, delta);
+        return delta;
+    }
+    
+    /**
+     * Remove a key, shifting back the keys probed past it so that no
+     * tombstone is left behind.
+     * 
+     * @param key requires key >= 0
+     * @param defaultValue value to return if key was not in this map
+     * @return the previous value of key, or defaultValue if it had none
+     */
+    public int remove(long key, int defaultValue) {
+        assert key >= 0;
+        int hole = slotOf(key);
+        if ( keys[hole] == EMPTY ) {
+            return defaultValue;
+        }
+        final int previous = values[hole];
+        final int mask = keys.length - 1;
+        for (int slot = (hole + 1) & mask; keys[slot] != EMPTY; slot = (slot + 1) & mask) {
+            final int home = hash(keys[slot]) & mask;
+            // a key can fill the hole if its probe sequence passes through it
+            if ( ((slot - home) & mask) >= ((slot - hole) & mask) ) {
+                keys[hole] = keys[slot];
+                values[hole] = values[slot];
+                hole = slot;
+            }
+        }
+        keys[hole] = EMPTY;
+        size--;
+        return previous;
+    }
+    
+    //helper code
+    private void insertAt(int slot, long key, int value) {
+        keys[slot] = key;
+        values[slot] = value;
+        size++;
+        if ( size * 4 >= keys.length * 3 ) {
+            grow();
+        }
+    }
+    private void grow() {
+        final long[] oldKeys = keys;
+        final int[] oldValues = values;
+        keys = new long[oldKeys.length * 2];
+        Arrays.fill(keys, EMPTY);
+        values = new int[oldValues.length * 2];
+        for (int i = 0; i < oldKeys.length; i++) {
+            if ( oldKeys[i] != EMPTY ) {
+                final int slot = slotOf(oldKeys[i]);
+                keys[slot] = oldKeys[i];
+                values[slot] = oldValues[i];
+            }
+        }
+    }
+    
+    /**
+     * Iterate over the keys of this map: the first slot is nextSlot(0),
+     * and the one after slot s is nextSlot(s + 1).
+     * 
+     * @param from slot to start looking from, requires from >= 0
+     * @return the first slot s >= from that holds a key, or -1 if there is
+     *         none; s is valid until this map is next modified
+     */
+    public int nextSlot(int from) {
+        for (int slot = from; slot < keys.length; slot++) {
+            if ( keys[slot] != EMPTY ) {
+                return slot;
+            }
+        }
+        return -1;
+    }
+    /** Returns the key in a slot returned by nextSlot() */
+    public long keyAt(int slot) {
+        return keys[slot];
+    }
+    /** Returns the value in a slot returned by nextSlot() */
+    public int valueAt(int slot) {
+        return values[slot];
+    }
+    
+    /** Returns the long that packs the pair (high, low), requires both >= 0 */
+    public static long pack(int high, int low) {
+        assert high >= 0 && low >= 0;
+        return ((long) high << 32) | low;
+    }
+    /** Returns the first int of a pair made by pack() */
+    public static int high(long pair) {
+        return (int) (pair >>> 32);
+    }
+    /** Returns the second int of a pair made by pack() */
+    public static int low(long pair) {
+        return (int) pair;
+    }
+}
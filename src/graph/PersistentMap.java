@@ -0,0 +1,374 @@
+/* Copyright (c) 2015-2016 MIT 6.005 course staff, all rights reserved.
+ * Redistribution of original or derived work requires permission of course staff.
+ */
+package graph;
+
+import java.util.AbstractMap;
+import java.util.AbstractSet;
+import java.util.Iterator;
+import java.util.Map;
+import java.util.NoSuchElementException;
+import java.util.Set;
+import java.util.function.BiConsumer;
+
+/**
+ * Immutable hash map with structural sharing (a hash array mapped trie).
+ *
+ * <p>{@link #plus(Object, Object)} and {@link #minus(Object)} return a new
+ * map that shares every node with this map except the O(log n) nodes on the
+ * path to the changed key, so old versions stay valid and cheap to keep.
+ * The {@link Map} mutators throw UnsupportedOperationException.
+ *
+ * This class is internal to the graph package.
+ *
+ * @param <K> type of keys, must be immutable and non-null
+ * @param <V> type of values, must be immutable and non-null
+ */
+final class PersistentMap<K, V> extends AbstractMap<K, V> {
+    private static final int BITS = 5;
+    private static final int MASK = (1 << BITS) - 1;
+    private static final PersistentMap<Object, Object> EMPTY = new PersistentMap<>(null, 0);
+
+    private final Node root;
+    private final int size;
+
+    // Abstraction function:
+    //   represents the map of every (key, value) pair stored in the trie
+    //   under root, or the empty map if root is null
+    // Representation invariant:
+    //   size is the number of pairs under root
+    //   a key appears at most once under root
+    //   a pair whose key has hash h is stored in the BitmapNode reached by
+    //     following the 5-bit chunks of h from the lowest, or in a
+    //     CollisionNode for h below it
+    //   no key or value is null
+    // Safety from rep exposure:
+    //   All fields are private and final, and nodes are never modified
+    //   after they are made, so sharing them between maps is safe
+
+    private PersistentMap(Node root, int size) {
+        this.root = root;
+        this.size = size;
+    }
+
+    /**
+     * @param <K> type of keys
+     * @param <V> type of values
+     * @return the empty map
+     */
+    @SuppressWarnings("unchecked")
+    public static <K, V> PersistentMap<K, V> empty() {
+        return (PersistentMap<K, V>) EMPTY;
+    }
+
+    //helper code
+    private static int hash(Object key) {
+        final int hash = key.hashCode();
+        return hash ^ (hash >>> 16);
+    }
+
+    /**
+     * Make a map with one more or one changed pair.
+     *
+     * @param key requires non-null
+     * @param value requires non-null
+     * @return a map equal to this map except that key maps to value; this
+     *         map if key already maps to an equal value
+     */
+    public PersistentMap<K, V> plus(K key, V value) {
+        assert key != null && value != null;
+        final boolean[] added = new boolean[1];
+        final Node start = root == null ? BitmapNode.EMPTY : root;
+        final Node newRoot = start.plus(0, hash(key), key, value, added);
+        if ( newRoot == root ) {
+            return this;
+        }
+        return new PersistentMap<>(newRoot, added[0] ? size + 1 : size);
+    }
+
+    /**
+     * Make a map with one less pair.
+     *
+     * @param key a key
+     * @return a map equal to this map except that it has no pair for key;
+     *         this map if it has no pair for key
+     */
+    public PersistentMap<K, V> minus(Object key) {
+        if ( root == null ) {
+            return this;
+        }
+        final Node newRoot = root.minus(0, hash(key), key);
+        if ( newRoot == root ) {
+            return this;
+        }
+        return newRoot == null ? empty() : new PersistentMap<>(newRoot, size - 1);
+    }
+
+    @SuppressWarnings("unchecked")
+    @Override public V get(Object key) {
+        return root == null || key == null ? null : (V) root.find(0, hash(key), key);
+    }
+    @Override public boolean containsKey(Object key) {
+        return get(key) != null;
+    }
+    @Override public int size() {
+        return size;
+    }
+    @SuppressWarnings("unchecked")
+    @Override public void forEach(BiConsumer<? super K, ? super V> action) {
+        if ( root != null ) {
+            root.forEach((BiConsumer<Object, Object>) action);
+        }
+    }
+    @Override public Set<Map.Entry<K, V>> entrySet() {
+        return new AbstractSet<Map.Entry<K, V>>() {
+            @Override public int size() {
+                return size;
+            }
+            @Override public Iterator<Map.Entry<K, V>> iterator() {
+                return new EntryIterator();
+            }
+        };
+    }
+
+    /**
+     * Depth-first walk over the pairs of the trie, keeping the path from the
+     * root to the current node on an explicit stack.
+     */
+    private class EntryIterator implements Iterator<Map.Entry<K, V>> {
+        // one level per 5-bit chunk of a hash, plus a CollisionNode
+        private final Object[][] arrays = new Object[(32 + BITS - 1) / BITS + 2][];
+        private final int[] positions = new int[arrays.length];
+        private int depth = -1;
+        private Object nextKey;
+        private Object nextValue;
+
+        EntryIterator() {
+            if ( root != null ) {
+                depth = 0;
+                arrays[0] = root.array;
+            }
+            advance();
+        }
+        /** Moves nextKey and nextValue to the next pair, or null if there is none */
+        private void advance() {
+            nextKey = null;
+            while (depth >= 0) {
+                final Object[] array = arrays[depth];
+                final int position = positions[depth];
+                if ( position >= array.length ) {
+                    positions[depth] = 0;
+                    depth--;
+                    continue;
+                }
+                positions[depth] = position + 2;
+                if ( array[position] == null ) {
+                    depth++;
+                    arrays[depth] = ((Node) array[position + 1]).array;
+                    positions[depth] = 0;
+                } else {
+                    nextKey = array[position];
+                    nextValue = array[position + 1];
+                    return;
+                }
+            }
+        }
+        @Override public boolean hasNext() {
+            return nextKey != null;
+        }
+        @SuppressWarnings("unchecked")
+        @Override public Map.Entry<K, V> next() {
+            if ( nextKey == null ) {
+                throw new NoSuchElementException();
+            }
+            final Map.Entry<K, V> entry =
+                    new AbstractMap.SimpleImmutableEntry<>((K) nextKey, (V) nextValue);
+            advance();
+            return entry;
+        }
+    }
+
+    /**
+     * Immutable trie node. Its array holds pairs in consecutive slots: a key
+     * and its value, or null and a child node.
+     */
+    private abstract static class Node {
+        final Object[] array;
+
+        Node(Object[] array) {
+            this.array = array;
+        }
+        /** Returns the value of key under this node, or null */
+        abstract Object find(int shift, int hash, Object key);
+        /** Returns this node with key mapped to value, sets added[0] if key is new */
+        abstract Node plus(int shift, int hash, Object key, Object value, boolean[] added);
+        /** Returns this node without key, or null if no pairs are left */
+        abstract Node minus(int shift, int hash, Object key);
+
+        void forEach(BiConsumer<Object, Object> action) {
+            for (int i = 0; i < array.length; i += 2) {
+                if ( array[i] == null ) {
+                    ((Node) array[i + 1]).forEach(action);
+                } else {
+                    action.accept(array[i], array[i + 1]);
+                }
+            }
+        }
+        /** Returns a copy of array with slot i set to value */
+        Object[] copyWith(int i, Object value) {
+            final Object[] copy = array.clone();
+            copy[i] = value;
+            return copy;
+        }
+        /** Returns a copy of array without the pair at slot i */
+        Object[] copyWithout(int i) {
+            final Object[] copy = new Object[array.length - 2];
+            System.arraycopy(array, 0, copy, 0, i);
+            System.arraycopy(array, i + 2, copy, i, array.length - i - 2);
+            return copy;
+        }
+    }
+
+    /**
+     * Node with up to 32 children, one per value of a 5-bit chunk of the hash;
+     * a bit of bitmap is set for every chunk value that is present.
+     */
+    private static final class BitmapNode extends Node {
+        static final BitmapNode EMPTY = new BitmapNode(0, new Object[0]);
+        final int bitmap;
+
+        BitmapNode(int bitmap, Object[] array) {
+            super(array);
+            this.bitmap = bitmap;
+        }
+        private static int bit(int shift, int hash) {
+            return 1 << ((hash >>> shift) & MASK);
+        }
+        /** Returns the slot in array of the pair for bit */
+        private int slotOf(int bit) {
+            return 2 * Integer.bitCount(bitmap & (bit - 1));
+        }
+
+        @Override Object find(int shift, int hash, Object key) {
+            final int bit = bit(shift, hash);
+            if ( (bitmap & bit) == 0 ) {
+                return null;
+            }
+            final int i = slotOf(bit);
+            if ( array[i] == null ) {
+                return ((Node) array[i + 1]).find(shift + BITS, hash, key);
+            }
+            return key.equals(array[i]) ? array[i + 1] : null;
+        }
+
+        @Override Node plus(int shift, int hash, Object key, Object value, boolean[] added) {
+            final int bit = bit(shift, hash);
+            final int i = slotOf(bit);
+            if ( (bitmap & bit) == 0 ) {
+                final Object[] grown = new Object[array.length + 2];
+                System.arraycopy(array, 0, grown, 0, i);
+                grown[i] = key;
+                grown[i + 1] = value;
+                System.arraycopy(array, i, grown, i + 2, array.length - i);
+                added[0] = true;
+                return new BitmapNode(bitmap | bit, grown);
+            }
+            final Object existingKey = array[i];
+            final Object existingValue = array[i + 1];
+            if ( existingKey == null ) {
+                final Node child = ((Node) existingValue).plus(shift + BITS, hash, key, value, added);
+                return child == existingValue ? this : new BitmapNode(bitmap, copyWith(i + 1, child));
+            }
+            if ( key.equals(existingKey) ) {
+                return value.equals(existingValue) ? this : new BitmapNode(bitmap, copyWith(i + 1, value));
+            }
+            added[0] = true;
+            final Node child = pairNode(shift + BITS, existingKey, existingValue, hash, key, value);
+            final Object[] copy = copyWith(i, null);
+            copy[i + 1] = child;
+            return new BitmapNode(bitmap, copy);
+        }
+        /** Returns a node holding two pairs with different keys */
+        private static Node pairNode(int shift, Object key1, Object value1,
+                int hash2, Object key2, Object value2) {
+            final int hash1 = hash(key1);
+            if ( hash1 == hash2 ) {
+                return new CollisionNode(hash1, new Object[] { key1, value1, key2, value2 });
+            }
+            final boolean[] ignored = new boolean[1];
+            return EMPTY.plus(shift, hash1, key1, value1, ignored)
+                        .plus(shift, hash2, key2, value2, ignored);
+        }
+
+        @Override Node minus(int shift, int hash, Object key) {
+            final int bit = bit(shift, hash);
+            if ( (bitmap & bit) == 0 ) {
+                return this;
+            }
+            final int i = slotOf(bit);
+            if ( array[i] == null ) {
+                final Node child = ((Node) array[i + 1]).minus(shift + BITS, hash, key);
+                if ( child == array[i + 1] ) {
+                    return this;
+                }
+                if ( child != null ) {
+                    return new BitmapNode(bitmap, copyWith(i + 1, child));
+                }
+            } else if ( !key.equals(array[i]) ) {
+                return this;
+            }
+            return bitmap == bit ? null : new BitmapNode(bitmap & ~bit, copyWithout(i));
+        }
+    }
+
+    /** Node holding every pair whose keys share one full hash */
+    private static final class CollisionNode extends Node {
+        final int hash;
+
+        CollisionNode(int hash, Object[] array) {
+            super(array);
+            this.hash = hash;
+        }
+        /** Returns the slot in array of key, or -1 */
+        private int slotOf(Object key) {
+            for (int i = 0; i < array.length; i += 2) {
+                if ( key.equals(array[i]) ) {
+                    return i;
+                }
+            }
+            return -1;
+        }
+
+        @Override Object find(int shift, int hash, Object key) {
+            final int i = slotOf(key);
+            return i < 0 ? null : array[i + 1];
+        }
+
+        @Override Node plus(int shift, int hash, Object key, Object value, boolean[] added) {
+            if ( hash != this.hash ) {
+                // push this node one level down, next to the new key
+                final Node parent = new BitmapNode(BitmapNode.bit(shift, this.hash),
+                        new Object[] { null, this });
+                return parent.plus(shift, hash, key, value, added);
+            }
+            final int i = slotOf(key);
+            if ( i >= 0 ) {
+                return value.equals(array[i + 1]) ? this : new CollisionNode(hash, copyWith(i + 1, value));
+            }
+            final Object[] grown = new Object[array.length + 2];
+            System.arraycopy(array, 0, grown, 0, array.length);
+            grown[array.length] = key;
+            grown[array.length + 1] = value;
+            added[0] = true;
+            return new CollisionNode(hash, grown);
+        }
+
+        @Override Node minus(int shift, int hash, Object key) {
+            final int i = slotOf(key);
+            if ( i < 0 ) {
+                return this;
+            }
+            return array.length == 2 ? null : new CollisionNode(hash, copyWithout(i));
+        }
+    }
+}
@@ -0,0 +1,200 @@
+/* Copyright (c) 2015-2016 MIT 6.005 course staff, all rights reserved.
+ * Redistribution of original or derived work requires permission of course staff.
+ */
+package graph;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Comparator;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+
+/**
+ * A BridgeTable built by walking every two-edge path of a graph.
+ *
+ * <p>For every pair of vertices (from, to) joined by at least one path
+ * from -> bridge -> to, the table holds the bridge whose path has the
+ * largest weight, where the weight of a path is the sum of the weights of
+ * its two edges. Among paths of equal weight the one through the smallest
+ * bridge is kept, by the natural order of the labels or the order given to
+ * {@link #of(Graph, Comparator)}; the same choice as GraphPoet makes without
+ * a table, and independent of the order of graph.vertices(). Looking up a
+ * pair takes a single probe of a primitive hash table.
+ *
+ * <p>The table has one entry per pair of vertices two edges apart, which is
+ * up to the sum over all vertices of (in-degree * out-degree), so it suits
+ * graphs that are read many times after being built once.
+ *
+ * @param <L> type of vertex labels, must be immutable
+ */
+public final class TwoHopIndex<L> implements BridgeTable<L> {
+    private static final int NONE = -1;
+
+    private final List<L> labels;
+    private final Map<L, Integer> ids;
+    // pack(from id, to id) -> entry
+    private final LongIntHashMap entries;
+    // entry -> id of the best bridge and weight of its path
+    private final int[] bridges;
+    private final int[] weights;
+
+    // Abstraction function:
+    //   represents the table that maps (labels.get(f), labels.get(t)) to
+    //   (labels.get(bridges[e]), weights[e]) for every
+    //   entries.get(pack(f, t)) == e
+    // Representation invariant:
+    //   ids.get(labels.get(i)) == i for every i
+    //   labels is sorted in the order of the table, so among equally
+    //     heavy bridges the kept one has the smallest id
+    //   entries maps to exactly the entries 0 .. entries.size()-1
+    //   bridges.length == weights.length == entries.size()
+    //   every weight is > 0
+    // Safety from rep exposure:
+    //   All fields are private and final, and none of them is returned;
+    //   bridge() returns an immutable label
+
+    private TwoHopIndex(List<L> labels, Map<L, Integer> ids,
+            LongIntHashMap entries, int[] bridges, int[] weights) {
+        this.labels = labels;
+        this.ids = ids;
+        this.entries = entries;
+        this.bridges = bridges;
+        this.weights = weights;
+        checkRep();
+    }
+
+    private void checkRep() {
+        assert labels.size() == ids.size();
+        assert bridges.length == entries.size() && weights.length == entries.size();
+    }
+
+    /**
+     * Make the table of the heaviest two-edge paths of a graph, breaking
+     * ties by the natural order of the labels.
+     * Takes time proportional to the number of two-edge paths in graph.
+     *
+     * @param <L> type of vertex labels
+     * @param graph the graph to index; must not be modified while the table
+     *              is being made, later changes do not affect the table
+     * @return the table of the heaviest two-edge paths of graph
+     * @throws ArithmeticException if the weight of a path overflows an int
+     */
+    public static <L extends Comparable<? super L>> TwoHopIndex<L> of(Graph<L> graph) {
+        return of(graph, Comparator.naturalOrder());
+    }
+
+    /**
+     * Make the table of the heaviest two-edge paths of a graph.
+     * Takes time proportional to the number of two-edge paths in graph.
+     *
+     * @param <L> type of vertex labels
+     * @param graph the graph to index; must not be modified while the table
+     *              is being made, later changes do not affect the table
+     * @param order total order of the labels of graph; among equally heavy
+     *              paths the one through the smallest bridge is kept
+     * @return the table of the heaviest two-edge paths of graph
+     * @throws ArithmeticException if the weight of a path overflows an int
+     */
+    public static <L> TwoHopIndex<L> of(Graph<L> graph, Comparator<? super L> order) {
+        final List<L> labels = new ArrayList<>(graph.vertices());
+        // bridges are offered in id order and only a heavier path replaces
+        // a kept one, so sorted ids make ties go to the smallest label
+        labels.sort(order);
+        final Map<L, Integer> ids = new HashMap<>(labels.size() * 4 / 3 + 1);
+        for (L label : labels) {
+            ids.put(label, ids.size());
+        }
+        final Accumulator accumulator = new Accumulator(labels.size());
+        for (int bridge = 0; bridge < labels.size(); bridge++) {
+            final L label = labels.get(bridge);
+            accumulator.startBridge(bridge);
+            graph.forEachSource(label, (source, weight) -> accumulator.addSource(ids.get(source), weight));
+            graph.forEachTarget(label, (target, weight) -> accumulator.addPaths(ids.get(target), weight));
+        }
+        return new TwoHopIndex<>(labels, ids, accumulator.entries,
+                Arrays.copyOf(accumulator.bridges, accumulator.entries.size()),
+                Arrays.copyOf(accumulator.weights, accumulator.entries.size()));
+    }
+
+    //helper code
+    /** Returns the entry of the pair (from, to), or NONE if it has none */
+    private int entryOf(L from, L to) {
+        final Integer fromId = ids.get(from);
+        final Integer toId = ids.get(to);
+        if ( fromId == null || toId == null ) {
+            return NONE;
+        }
+        return entries.get(LongIntHashMap.pack(fromId, toId), NONE);
+    }
+
+    @Override public L bridge(L from, L to) {
+        final int entry = entryOf(from, to);
+        return entry == NONE ? null : labels.get(bridges[entry]);
+    }
+
+    @Override public int weight(L from, L to) {
+        final int entry = entryOf(from, to);
+        return entry == NONE ? 0 : weights[entry];
+    }
+
+    @Override public int size() {
+        return bridges.length;
+    }
+
+    /**
+     * Mutable table of the heaviest paths found so far, filled one bridge
+     * vertex at a time: first every source of the bridge, then every target.
+     *
+     * This class is internal to the rep of TwoHopIndex.
+     */
+    private static final class Accumulator {
+        private final LongIntHashMap entries;
+        private int[] bridges;
+        private int[] weights;
+        private int bridge;
+        private int sourceCount;
+        private int[] sourceIds = new int[16];
+        private int[] sourceWeights = new int[16];
+
+        Accumulator(int vertexCount) {
+            entries = new LongIntHashMap(vertexCount);
+            bridges = new int[Math.max(16, vertexCount)];
+            weights = new int[bridges.length];
+        }
+        void startBridge(int bridge) {
+            this.bridge = bridge;
+            sourceCount = 0;
+        }
+        void addSource(int source, int weight) {
+            if ( sourceCount == sourceIds.length ) {
+                sourceIds = Arrays.copyOf(sourceIds, sourceCount * 2);
+                sourceWeights = Arrays.copyOf(sourceWeights, sourceCount * 2);
+            }
+            sourceIds[sourceCount] = source;
+            sourceWeights[sourceCount] = weight;
+            sourceCount++;
+        }
+        /** Offers the path from every source of the bridge to target */
+        void addPaths(int target, int targetWeight) {
+            for (int i = 0; i < sourceCount; i++) {
+                final int weight = Math.addExact(sourceWeights[i], targetWeight);
+                final long pair = LongIntHashMap.pack(sourceIds[i], target);
+                final int entry = entries.get(pair, NONE);
+                if ( entry == NONE ) {
+                    final int newEntry = entries.size();
+                    if ( newEntry == bridges.length ) {
+                        bridges = Arrays.copyOf(bridges, newEntry * 2);
+                        weights = Arrays.copyOf(weights, newEntry * 2);
+                    }
+                    bridges[newEntry] = bridge;
+                    weights[newEntry] = weight;
+                    entries.put(pair, newEntry, NONE);
+                } else if ( weight > weights[entry] ) {
+                    bridges[entry] = bridge;
+                    weights[entry] = weight;
+                }
+            }
+        }
+    }
+}
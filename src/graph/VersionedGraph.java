@@ -0,0 +1,280 @@
+/* Copyright (c) 2015-2016 MIT 6.005 course staff, all rights reserved.
+ * Redistribution of original or derived work requires permission of course staff.
+ */
+package graph;
+
+import java.util.Collection;
+import java.util.Collections;
+import java.util.Map;
+import java.util.Set;
+
+/**
+ * A thread-safe implementation of Graph that can hand out immutable
+ * snapshots of itself in constant time.
+ *
+ * <p>Every state of the graph is an immutable version built from persistent
+ * maps, and each mutation publishes a new version that shares all unchanged
+ * structure with the previous one. {@link #snapshot()} returns the current
+ * version without copying anything. Readers never block and never see a
+ * partly applied write; writers are serialized with each other but never
+ * wait for readers.
+ *
+ * @param <L> type of vertex labels in this graph, must be immutable
+ */
+public class VersionedGraph<L> implements Graph<L> {
+    private volatile Version<L> current = new Version<>(PersistentMap.empty(), 0);
+
+    // Abstraction function:
+    //   represents the weighted directed graph current
+    // Representation invariant:
+    //   current is non-null
+    //   the version number of current increases by one with every write
+    //     that changes the graph
+    // Safety from rep exposure:
+    //   current is private; the versions it refers to are immutable, so
+    //   returning them from snapshot() is safe
+    // Thread safety argument:
+    //   current is volatile, and it always refers to a complete immutable
+    //     version, so readers see either the whole of a write or none of it
+    //   all mutators are synchronized on this graph, so each one reads
+    //     current and publishes its successor without interference
+
+    /** Make an empty graph. */
+    public VersionedGraph() {
+    }
+
+    /**
+     * Get an immutable view of this graph as it is now.
+     * Takes constant time, and later changes to this graph do not affect it.
+     *
+     * @return a graph with the current vertices and edges of this graph,
+     *         whose mutators throw UnsupportedOperationException
+     */
+    public Graph<L> snapshot() {
+        return current;
+    }
+
+    /**
+     * Get the version number of this graph.
+     *
+     * @return the number of writes that have changed this graph
+     */
+    public long version() {
+        return current.version;
+    }
+
+    //helper code
+    /** Publishes vertices as the next version, if they differ from the current one */
+    private void publish(PersistentMap<L, Adjacency<L>> vertices) {
+        final Version<L> previous = current;
+        if ( vertices != previous.vertices ) {
+            current = new Version<>(vertices, previous.version + 1);
+        }
+    }
+    /** Returns the adjacency of label in vertices, or an empty one */
+    private static <L> Adjacency<L> adjacencyOf(PersistentMap<L, Adjacency<L>> vertices, L label) {
+        final Adjacency<L> adjacency = vertices.get(label);
+        return adjacency == null ? Adjacency.empty() : adjacency;
+    }
+
+    @Override public synchronized boolean add(L vertex) {
+        final PersistentMap<L, Adjacency<L>> vertices = current.vertices;
+        if ( vertices.containsKey(vertex) ) {
+            return false;
+        }
+        publish(vertices.plus(vertex, Adjacency.empty()));
+        return true;
+    }
+
+    @Override public synchronized int set(L source, L target, int weight) {
+        assert weight >= 0;
+        PersistentMap<L, Adjacency<L>> vertices = current.vertices;
+        final Integer previous = adjacencyOf(vertices, source).targets.get(target);
+        final int previousWeight = previous == null ? 0 : previous;
+        if ( weight == 0 && previous == null ) {
+            return 0;
+        }
+        // re-read each adjacency after the first write, source may equal target
+        vertices = vertices.plus(source, adjacencyOf(vertices, source).withTarget(target, weight));
+        vertices = vertices.plus(target, adjacencyOf(vertices, target).withSource(source, weight));
+        publish(vertices);
+        return previousWeight;
+    }
+
+    @Override public synchronized int increment(L source, L target, int delta) {
+        final int previousWeight = adjacencyOf(current.vertices, source).targets.getOrDefault(target, 0);
+        assert previousWeight + delta >= 0;
+        set(source, target, previousWeight + delta);
+        return previousWeight;
+    }
+
+    @Override public synchronized boolean remove(L vertex) {
+        return removeAll(Collections.singleton(vertex));
+    }
+
+    /** Removes many vertices as one write, publishing a single new version */
+    @Override public synchronized boolean removeAll(Collection<? extends L> labels) {
+        PersistentMap<L, Adjacency<L>> vertices = current.vertices;
+        boolean removedAny = false;
+        for (L vertex : labels) {
+            final Adjacency<L> removed = vertices.get(vertex);
+            if ( removed == null ) {
+                continue;
+            }
+            removedAny = true;
+            vertices = vertices.minus(vertex);
+            for (L source : removed.sources.keySet()) {
+                if ( !source.equals(vertex) ) {
+                    vertices = vertices.plus(source, vertices.get(source).withTarget(vertex, 0));
+                }
+            }
+            for (L target : removed.targets.keySet()) {
+                if ( !target.equals(vertex) ) {
+                    vertices = vertices.plus(target, vertices.get(target).withSource(vertex, 0));
+                }
+            }
+        }
+        publish(vertices);
+        return removedAny;
+    }
+
+    /** Returns the vertices of the current version; later changes are not reflected */
+    @Override public Set<L> vertices() {
+        return current.vertices();
+    }
+    /** Returns the sources of target in the current version, an immutable map */
+    @Override public Map<L, Integer> sources(L target) {
+        return current.sources(target);
+    }
+    /** Returns the targets of source in the current version, an immutable map */
+    @Override public Map<L, Integer> targets(L source) {
+        return current.targets(source);
+    }
+    @Override public void forEachSource(L target, IntWeightConsumer<? super L> action) {
+        current.forEachSource(target, action);
+    }
+    @Override public void forEachTarget(L source, IntWeightConsumer<? super L> action) {
+        current.forEachTarget(source, action);
+    }
+    /** Visits the edges of the current version, unaffected by concurrent writes */
+    @Override public boolean forEachEdge(EdgeVisitor<? super L> visitor) {
+        return current.forEachEdge(visitor);
+    }
+
+    /**
+     * Returns the string representation of the current version of this graph
+     *
+     * The string contains one line per edge, in the same form as
+     * ConcreteEdgesGraph:
+     *      source -> target: weight
+     *
+     * @return string rep of this graph containing all its edges,
+     *         "Empty Graph" if graph has no edges
+     */
+    @Override public String toString() {
+        return current.toString();
+    }
+
+    /**
+     * Immutable edges into and out of one vertex of a VersionedGraph.
+     *
+     * This class is internal to the rep of VersionedGraph.
+     */
+    private static class Adjacency<L> {
+        private static final Adjacency<Object> EMPTY =
+                new Adjacency<>(PersistentMap.empty(), PersistentMap.empty());
+
+        private final PersistentMap<L, Integer> sources;
+        private final PersistentMap<L, Integer> targets;
+
+        private Adjacency(PersistentMap<L, Integer> sources, PersistentMap<L, Integer> targets) {
+            this.sources = sources;
+            this.targets = targets;
+        }
+        @SuppressWarnings("unchecked")
+        static <L> Adjacency<L> empty() {
+            return (Adjacency<L>) EMPTY;
+        }
+        /** Returns this adjacency with the weight from source set, or removed if weight is 0 */
+        Adjacency<L> withSource(L source, int weight) {
+            final PersistentMap<L, Integer> newSources =
+                    weight == 0 ? sources.minus(source) : sources.plus(source, weight);
+            return newSources == sources ? this : new Adjacency<>(newSources, targets);
+        }
+        /** Returns this adjacency with the weight to target set, or removed if weight is 0 */
+        Adjacency<L> withTarget(L target, int weight) {
+            final PersistentMap<L, Integer> newTargets =
+                    weight == 0 ? targets.minus(target) : targets.plus(target, weight);
+            return newTargets == targets ? this : new Adjacency<>(sources, newTargets);
+        }
+    }
+
+    /**
+     * One immutable state of a VersionedGraph.
+     *
+     * This class is internal to the rep of VersionedGraph.
+     */
+    private static class Version<L> implements Graph<L> {
+        private final PersistentMap<L, Adjacency<L>> vertices;
+        private final Set<L> vertexLabels;
+        private final long version;
+
+        // Abstraction function:
+        //   represents the weighted directed graph whose vertices are the keys
+        //   of vertices, with an edge from s to t with weight w for every
+        //   vertices.get(s).targets.get(t) == w
+        // Representation invariant:
+        //   vertices.get(s).targets.get(t) == vertices.get(t).sources.get(s)
+        //   every source and target in an adjacency is a key of vertices
+        // Safety from rep exposure:
+        //   All fields are private and final, and all of them are immutable
+
+        Version(PersistentMap<L, Adjacency<L>> vertices, long version) {
+            this.vertices = vertices;
+            this.vertexLabels = Collections.unmodifiableSet(vertices.keySet());
+            this.version = version;
+        }
+
+        /** @throws UnsupportedOperationException always, a snapshot is immutable */
+        @Override public boolean add(L vertex) {
+            throw new UnsupportedOperationException("snapshot is immutable");
+        }
+        /** @throws UnsupportedOperationException always, a snapshot is immutable */
+        @Override public int set(L source, L target, int weight) {
+            throw new UnsupportedOperationException("snapshot is immutable");
+        }
+        /** @throws UnsupportedOperationException always, a snapshot is immutable */
+        @Override public int increment(L source, L target, int delta) {
+            throw new UnsupportedOperationException("snapshot is immutable");
+        }
+        /** @throws UnsupportedOperationException always, a snapshot is immutable */
+        @Override public boolean remove(L vertex) {
+            throw new UnsupportedOperationException("snapshot is immutable");
+        }
+        @Override public Set<L> vertices() {
+            return vertexLabels;
+        }
+        @Override public Map<L, Integer> sources(L target) {
+            return adjacencyOf(vertices, target).sources;
+        }
+        @Override public Map<L, Integer> targets(L source) {
+            return adjacencyOf(vertices, source).targets;
+        }
+        @Override public void forEachSource(L target, IntWeightConsumer<? super L> action) {
+            adjacencyOf(vertices, target).sources.forEach(action::accept);
+        }
+        @Override public void forEachTarget(L source, IntWeightConsumer<? super L> action) {
+            adjacencyOf(vertices, source).targets.forEach(action::accept);
+        }
+        @Override public String toString() {
+            final StringBuilder rep = new StringBuilder();
+            vertices.forEach((source, adjacency) -> adjacency.targets.forEach((target, weight) -> {
+                if ( rep.length() > 0 ) {
+                    rep.append('\n');
+                }
+                rep.append(source).append(" -> ").append(target).append(": ").append(weight);
+            }));
+            return rep.length() == 0 ? "Empty Graph" : rep.toString();
+        }
+    }
+}
@@ -0,0 +1,134 @@
+/* Copyright (c) 2015-2016 MIT 6.005 course staff, all rights reserved.
+ * Redistribution of original or derived work requires permission of course staff.
+ */
+package matrix;
+
+import java.util.ArrayList;
+import java.util.Comparator;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.ForkJoinPool;
+
+import graph.BridgeTable;
+import graph.Graph;
+
+/**
+ * A BridgeTable computed as the max-plus square A*A of the adjacency matrix
+ * A of a graph, with the rows of the product split between the workers of
+ * a fork-join pool.
+ * 
+ * <p>Among paths of equal weight the one through the smallest bridge is
+ * kept, by the natural order of the labels or the order given to
+ * {@link #of(Graph, Comparator, ForkJoinPool)}, the same choice as
+ * {@link graph.TwoHopIndex}. A lookup is a binary search over one row of
+ * the product.
+ * 
+ * @param <L> type of vertex labels, must be immutable
+ */
+public final class MatrixBridgeTable<L> implements BridgeTable<L> {
+    private final List<L> labels;
+    private final Map<L, Integer> ids;
+    private final SparseProduct product;
+    
+    // Abstraction function:
+    //   represents the table that maps (labels.get(r), labels.get(c)) to
+    //   (labels.get(product.witness(r, c)), product.values().get(r, c))
+    //   for every entry (r, c) present in product
+    // Representation invariant:
+    //   ids.get(labels.get(i)) == i for every i
+    //   labels is sorted in the order of the table, so the witness of an
+    //     entry, the smallest k of a largest term, is the smallest bridge
+    //   product is labels.size() x labels.size()
+    // Safety from rep exposure:
+    //   All fields are private and final, and none of them is returned;
+    //   bridge() returns an immutable label
+    
+    private MatrixBridgeTable(List<L> labels, Map<L, Integer> ids, SparseProduct product) {
+        this.labels = labels;
+        this.ids = ids;
+        this.product = product;
+        checkRep();
+    }
+    
+    private void checkRep() {
+        assert labels.size() == ids.size();
+        assert product.values().rows() == labels.size();
+    }
+    
+    /**
+     * Make the table of the heaviest two-edge paths of a graph on the common
+     * fork-join pool, breaking ties by the natural order of the labels.
+     * 
+     * @param <L> type of vertex labels
+     * @param graph the graph; must not be modified while the table is made,
+     *              later changes do not affect the table
+     * @return the table of the heaviest two-edge paths of graph
+     * @throws ArithmeticException if the weight of a path overflows an int
+     */
+    public static <L extends Comparable<? super L>> MatrixBridgeTable<L> of(Graph<L> graph) {
+        return of(graph, ForkJoinPool.commonPool());
+    }
+    
+    /**
+     * Make the table of the heaviest two-edge paths of a graph, breaking
+     * ties by the natural order of the labels.
+     * 
+     * @param <L> type of vertex labels
+     * @param graph the graph; must not be modified while the table is made,
+     *              later changes do not affect the table
+     * @param pool the pool to compute the product on
+     * @return the table of the heaviest two-edge paths of graph
+     * @throws ArithmeticException if the weight of a path overflows an int
+     */
+    public static <L extends Comparable<? super L>> MatrixBridgeTable<L> of(Graph<L> graph, ForkJoinPool pool) {
+        return of(graph, Comparator.naturalOrder(), pool);
+    }
+    
+    /**
+     * Make the table of the heaviest two-edge paths of a graph.
+     * 
+     * @param <L> type of vertex labels
+     * @param graph the graph; must not be modified while the table is made,
+     *              later changes do not affect the table
+     * @param order total order of the labels of graph; among equally heavy
+     *              paths the one through the smallest bridge is kept
+     * @param pool the pool to compute the product on
+     * @return the table of the heaviest two-edge paths of graph
+     * @throws ArithmeticException if the weight of a path overflows an int
+     */
+    public static <L> MatrixBridgeTable<L> of(Graph<L> graph, Comparator<? super L> order, ForkJoinPool pool) {
+        final List<L> labels = new ArrayList<>(graph.vertices());
+        labels.sort(order);
+        final Map<L, Integer> ids = new HashMap<>(labels.size() * 4 / 3 + 1);
+        for (L label : labels) {
+            ids.put(label, ids.size());
+        }
+        final SparseMatrix adjacency = SparseMatrix.fromGraph(graph, labels);
+        return new MatrixBridgeTable<>(labels, ids,
+                adjacency.multiply(adjacency, Semiring.MAX_PLUS, pool));
+    }
+    
+    @Override public L bridge(L from, L to) {
+        final Integer fromId = ids.get(from);
+        final Integer toId = ids.get(to);
+        if ( fromId == null || toId == null ) {
+            return null;
+        }
+        final int bridge = product.witness(fromId, toId);
+        return bridge < 0 ? null : labels.get(bridge);
+    }
+    
+    @Override public int weight(L from, L to) {
+        final Integer fromId = ids.get(from);
+        final Integer toId = ids.get(to);
+        if ( fromId == null || toId == null ) {
+            return 0;
+        }
+        return product.values().get(fromId, toId);
+    }
+    
+    @Override public int size() {
+        return product.values().nonZeros();
+    }
+}
@@ -0,0 +1,49 @@
+/* Copyright (c) 2015-2016 MIT 6.005 course staff, all rights reserved.
+ * Redistribution of original or derived work requires permission of course staff.
+ */
+package matrix;
+
+/**
+ * The operations a sparse matrix product is computed with: P[r][c] is the
+ * plus() over k of times(A[r][k], B[k][c]).
+ */
+public enum Semiring {
+    
+    /**
+     * (max, +): the entry (r, c) of A*A is the weight of the heaviest path
+     * r -> k -> c, where the weight of a path is the sum of its edges.
+     */
+    MAX_PLUS {
+        @Override int times(int a, int b) {
+            return Math.addExact(a, b);
+        }
+        @Override int plus(int a, int b) {
+            return Math.max(a, b);
+        }
+    },
+    
+    /**
+     * (+, *): the entry (r, c) of A*A is the total over all paths
+     * r -> k -> c of the product of the weights of their edges.
+     */
+    SUM_PRODUCT {
+        @Override int times(int a, int b) {
+            return Math.multiplyExact(a, b);
+        }
+        @Override int plus(int a, int b) {
+            return Math.addExact(a, b);
+        }
+    };
+    
+    /**
+     * @return the product of two entries
+     * @throws ArithmeticException if the result overflows an int
+     */
+    abstract int times(int a, int b);
+    
+    /**
+     * @return the sum of two terms
+     * @throws ArithmeticException if the result overflows an int
+     */
+    abstract int plus(int a, int b);
+}
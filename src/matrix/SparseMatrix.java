@@ -0,0 +1,329 @@
+/* Copyright (c) 2015-2016 MIT 6.005 course staff, all rights reserved.
+ * Redistribution of original or derived work requires permission of course staff.
+ */
+package matrix;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.ForkJoinPool;
+import java.util.concurrent.ForkJoinTask;
+import java.util.concurrent.RecursiveTask;
+
+import graph.Graph;
+
+/**
+ * An immutable sparse matrix of ints in compressed sparse row (CSR) form.
+ *
+ * <p>Row r holds its nonzero entries in positions rowOffsets[r] up to
+ * rowOffsets[r+1] of two parallel arrays: their columns, in increasing
+ * order, and their values. The CSR form of the transpose of a matrix is the
+ * compressed sparse column (CSC) form of the matrix, so {@link #transpose()}
+ * also converts between the two.
+ *
+ * <p>Absent entries are zero for the sum-product semiring and minus
+ * infinity for the max-plus semiring, so only the stored entries take part
+ * in a product.
+ */
+public final class SparseMatrix {
+    private final int rows;
+    private final int columns;
+    private final int[] rowOffsets;
+    private final int[] columnIds;
+    private final int[] values;
+
+    // Abstraction function:
+    //   represents the rows x columns matrix M with
+    //   M[r][columnIds[i]] == values[i] for rowOffsets[r] <= i < rowOffsets[r+1],
+    //   and every other entry absent
+    // Representation invariant:
+    //   rowOffsets.length == rows + 1, rowOffsets[0] == 0,
+    //     rowOffsets is nondecreasing, rowOffsets[rows] == columnIds.length
+    //   columnIds.length == values.length
+    //   0 <= columnIds[i] < columns, strictly increasing within each row
+    // Safety from rep exposure:
+    //   All fields are private and final, and the arrays are never returned
+    //   or shared with a matrix that could change them
+
+    /** Make a matrix that takes ownership of its arrays */
+    SparseMatrix(int rows, int columns, int[] rowOffsets, int[] columnIds, int[] values) {
+        this.rows = rows;
+        this.columns = columns;
+        this.rowOffsets = rowOffsets;
+        this.columnIds = columnIds;
+        this.values = values;
+        checkRep();
+    }
+
+    private void checkRep() {
+        assert rowOffsets.length == rows + 1 && rowOffsets[0] == 0;
+        assert rowOffsets[rows] == columnIds.length && columnIds.length == values.length;
+    }
+
+    /**
+     * Make the adjacency matrix of a graph.
+     *
+     * @param <L> type of vertex labels
+     * @param graph the graph; must not be modified while the matrix is made
+     * @param order the vertices of graph, each exactly once; vertex
+     *              order.get(i) is row and column i of the matrix
+     * @return the order.size() x order.size() matrix whose entry (i, j) is
+     *         the weight of the edge from order.get(i) to order.get(j), and
+     *         absent if there is no such edge
+     */
+    public static <L> SparseMatrix fromGraph(Graph<L> graph, List<L> order) {
+        final int n = order.size();
+        final Map<L, Integer> ids = new HashMap<>(n * 4 / 3 + 1);
+        for (L label : order) {
+            ids.put(label, ids.size());
+        }
+        assert ids.size() == n && graph.vertices().size() == n;
+        final int[] rowOffsets = new int[n + 1];
+        for (int row = 0; row < n; row++) {
+            rowOffsets[row + 1] = rowOffsets[row] + graph.targets(order.get(row)).size();
+        }
+        // each entry packed as column << 32 | value, so sorting a row sorts by column
+        final long[] entries = new long[rowOffsets[n]];
+        final int[] next = new int[1];
+        for (int row = 0; row < n; row++) {
+            next[0] = rowOffsets[row];
+            graph.forEachTarget(order.get(row), (target, weight) ->
+                    entries[next[0]++] = ((long) ids.get(target) << 32) | weight);
+            Arrays.sort(entries, rowOffsets[row], rowOffsets[row + 1]);
+        }
+        final int[] columnIds = new int[entries.length];
+        final int[] values = new int[entries.length];
+        for (int i = 0; i < entries.length; i++) {
+            columnIds[i] = (int) (entries[i] >>> 32);
+            values[i] = (int) entries[i];
+        }
+        return new SparseMatrix(n, n, rowOffsets, columnIds, values);
+    }
+
+    /** Returns the number of rows of this matrix */
+    public int rows() {
+        return rows;
+    }
+    /** Returns the number of columns of this matrix */
+    public int columns() {
+        return columns;
+    }
+    /** Returns the number of stored entries of this matrix */
+    public int nonZeros() {
+        return values.length;
+    }
+
+    /**
+     * Get one entry of this matrix, by binary search over its row.
+     *
+     * @param row requires 0 <= row < rows()
+     * @param column requires 0 <= column < columns()
+     * @return the entry at (row, column), or 0 if it is absent
+     */
+    public int get(int row, int column) {
+        final int position = positionOf(row, column);
+        return position < 0 ? 0 : values[position];
+    }
+
+    /**
+     * Find where an entry of this matrix is stored.
+     *
+     * @param row requires 0 <= row < rows()
+     * @param column requires 0 <= column < columns()
+     * @return the position of the entry at (row, column) among the stored
+     *         entries in row-major order, or a negative number if it is absent
+     */
+    int positionOf(int row, int column) {
+        assert 0 <= row && row < rows && 0 <= column && column < columns;
+        return Arrays.binarySearch(columnIds, rowOffsets[row], rowOffsets[row + 1], column);
+    }
+
+    /**
+     * Make the transpose of this matrix, which is also this matrix in
+     * compressed sparse column form. Takes O(rows + columns + nonZeros) time.
+     *
+     * @return the columns() x rows() matrix T with T[c][r] == this[r][c]
+     */
+    public SparseMatrix transpose() {
+        final int[] offsets = new int[columns + 1];
+        for (int column : columnIds) {
+            offsets[column + 1]++;
+        }
+        for (int column = 0; column < columns; column++) {
+            offsets[column + 1] += offsets[column];
+        }
+        final int[] next = Arrays.copyOf(offsets, columns);
+        final int[] rowIds = new int[columnIds.length];
+        final int[] transposedValues = new int[values.length];
+        // visiting rows in order keeps the row ids of each column increasing
+        for (int row = 0; row < rows; row++) {
+            for (int i = rowOffsets[row]; i < rowOffsets[row + 1]; i++) {
+                final int position = next[columnIds[i]]++;
+                rowIds[position] = row;
+                transposedValues[position] = values[i];
+            }
+        }
+        return new SparseMatrix(columns, rows, offsets, rowIds, transposedValues);
+    }
+
+    /**
+     * Multiply this matrix by another over a semiring, in parallel on the
+     * common fork-join pool.
+     *
+     * @param right requires right.rows() == columns()
+     * @param semiring the operations to multiply with
+     * @return this matrix times right, see {@link #multiply(SparseMatrix, Semiring, ForkJoinPool)}
+     */
+    public SparseProduct multiply(SparseMatrix right, Semiring semiring) {
+        return multiply(right, semiring, ForkJoinPool.commonPool());
+    }
+
+    /**
+     * Multiply this matrix by another over a semiring, in parallel.
+     *
+     * <p>Rows of the product are computed one at a time with a dense
+     * accumulator (Gustavson's algorithm); blocks of rows are split between
+     * the workers of pool. The result does not depend on the pool.
+     *
+     * @param right requires right.rows() == columns()
+     * @param semiring the operations to multiply with
+     * @param pool the pool to run on
+     * @return the rows() x right.columns() product P, where P[r][c] is the
+     *         semiring sum over k of this[r][k] times right[k][c], for all
+     *         k with both entries present, and absent if there is no such
+     *         k; together with, for each present entry, the first k whose
+     *         single term is largest
+     * @throws ArithmeticException if an entry of the product overflows an int
+     */
+    public SparseProduct multiply(SparseMatrix right, Semiring semiring, ForkJoinPool pool) {
+        assert right.rows == columns;
+        final int blockCount = Math.min(rows, pool.getParallelism() * 4);
+        final List<MultiplyBlock> blocks = new ArrayList<>(blockCount);
+        for (int block = 0; block < blockCount; block++) {
+            blocks.add(new MultiplyBlock(this, right, semiring,
+                    (int) ((long) rows * block / blockCount),
+                    (int) ((long) rows * (block + 1) / blockCount)));
+        }
+        pool.invoke(new RecursiveTask<Void>() {
+            private static final long serialVersionUID = 1L;
+
+            @Override protected Void compute() {
+                ForkJoinTask.invokeAll(blocks);
+                return null;
+            }
+        });
+
+        final int[] offsets = new int[rows + 1];
+        int size = 0;
+        for (MultiplyBlock block : blocks) {
+            for (int row = block.firstRow; row < block.endRow; row++) {
+                offsets[row] = size + block.rowOffsets[row - block.firstRow];
+            }
+            size += block.size;
+        }
+        offsets[rows] = size;
+        final int[] productColumns = new int[size];
+        final int[] productValues = new int[size];
+        final int[] witnesses = new int[size];
+        int position = 0;
+        for (MultiplyBlock block : blocks) {
+            System.arraycopy(block.columnIds, 0, productColumns, position, block.size);
+            System.arraycopy(block.values, 0, productValues, position, block.size);
+            System.arraycopy(block.witnesses, 0, witnesses, position, block.size);
+            position += block.size;
+        }
+        return new SparseProduct(
+                new SparseMatrix(rows, right.columns, offsets, productColumns, productValues),
+                witnesses);
+    }
+
+    /**
+     * The rows firstRow up to endRow of a product, computed by one fork-join
+     * task into arrays of its own.
+     *
+     * This class is internal to the rep of SparseMatrix.
+     */
+    private static final class MultiplyBlock extends RecursiveTask<Void> {
+        private static final long serialVersionUID = 1L;
+
+        private final SparseMatrix left;
+        private final SparseMatrix right;
+        private final Semiring semiring;
+        private final int firstRow;
+        private final int endRow;
+        // results, filled by compute()
+        private int[] rowOffsets;
+        private int[] columnIds;
+        private int[] values;
+        private int[] witnesses;
+        private int size;
+
+        MultiplyBlock(SparseMatrix left, SparseMatrix right, Semiring semiring, int firstRow, int endRow) {
+            this.left = left;
+            this.right = right;
+            this.semiring = semiring;
+            this.firstRow = firstRow;
+            this.endRow = endRow;
+        }
+
+        @Override protected Void compute() {
+            final int columns = right.columns;
+            // dense accumulator over the columns of one row, reset after each row
+            final int[] sums = new int[columns];
+            final int[] bestTerms = new int[columns];
+            final int[] bestTermOf = new int[columns];
+            final boolean[] present = new boolean[columns];
+            final int[] touched = new int[columns];
+            rowOffsets = new int[endRow - firstRow + 1];
+            columnIds = new int[16];
+            values = new int[16];
+            witnesses = new int[16];
+            for (int row = firstRow; row < endRow; row++) {
+                int touchedCount = 0;
+                for (int i = left.rowOffsets[row]; i < left.rowOffsets[row + 1]; i++) {
+                    final int k = left.columnIds[i];
+                    final int leftValue = left.values[i];
+                    for (int j = right.rowOffsets[k]; j < right.rowOffsets[k + 1]; j++) {
+                        final int column = right.columnIds[j];
+                        final int term = semiring.times(leftValue, right.values[j]);
+                        if ( !present[column] ) {
+                            present[column] = true;
+                            touched[touchedCount++] = column;
+                            sums[column] = term;
+                            bestTerms[column] = term;
+                            bestTermOf[column] = k;
+                        } else {
+                            sums[column] = semiring.plus(sums[column], term);
+                            if ( term > bestTerms[column] ) {
+                                bestTerms[column] = term;
+                                bestTermOf[column] = k;
+                            }
+                        }
+                    }
+                }
+                Arrays.sort(touched, 0, touchedCount);
+                ensureCapacity(size + touchedCount);
+                for (int t = 0; t < touchedCount; t++) {
+                    final int column = touched[t];
+                    columnIds[size] = column;
+                    values[size] = sums[column];
+                    witnesses[size] = bestTermOf[column];
+                    size++;
+                    present[column] = false;
+                }
+                rowOffsets[row - firstRow + 1] = size;
+            }
+            return null;
+        }
+        private void ensureCapacity(int capacity) {
+            if ( capacity > columnIds.length ) {
+                final int newCapacity = Math.max(capacity, columnIds.length * 2);
+                columnIds = Arrays.copyOf(columnIds, newCapacity);
+                values = Arrays.copyOf(values, newCapacity);
+                witnesses = Arrays.copyOf(witnesses, newCapacity);
+            }
+        }
+    }
+}
@@ -0,0 +1,56 @@
+/* Copyright (c) 2015-2016 MIT 6.005 course staff, all rights reserved.
+ * Redistribution of original or derived work requires permission of course staff.
+ */
+package matrix;
+
+/**
+ * An immutable product of two sparse matrices over a semiring, with the
+ * inner index that contributed the largest term to each entry.
+ * 
+ * <p>For the adjacency matrix A of a graph, the witness of entry (r, c) of
+ * A*A over {@link Semiring#MAX_PLUS} is the bridge of the heaviest path
+ * r -> k -> c.
+ */
+public final class SparseProduct {
+    private final SparseMatrix values;
+    private final int[] witnesses;
+    
+    // Abstraction function:
+    //   represents the product values, where the entry stored at position
+    //   i of values (in row-major order) has witness witnesses[i]
+    // Representation invariant:
+    //   witnesses.length == values.nonZeros()
+    // Safety from rep exposure:
+    //   All fields are private and final; values is immutable and
+    //   witnesses is never returned
+    
+    /** Make a product that takes ownership of witnesses */
+    SparseProduct(SparseMatrix values, int[] witnesses) {
+        this.values = values;
+        this.witnesses = witnesses;
+        checkRep();
+    }
+    
+    private void checkRep() {
+        assert witnesses.length == values.nonZeros();
+    }
+    
+    /** Returns the entries of the product */
+    public SparseMatrix values() {
+        return values;
+    }
+    
+    /**
+     * Get the witness of one entry of the product A*B.
+     * 
+     * @param row requires 0 <= row < values().rows()
+     * @param column requires 0 <= column < values().columns()
+     * @return the first inner index k, in increasing order, for which the
+     *         term A[row][k] times B[k][column] is largest, or -1 if the
+     *         entry is absent
+     */
+    public int witness(int row, int column) {
+        final int position = values.positionOf(row, column);
+        return position < 0 ? -1 : witnesses[position];
+    }
+}
@@ -0,0 +1,160 @@
+/* Copyright (c) 2015-2016 MIT 6.005 course staff, all rights reserved.
+ * Redistribution of original or derived work requires permission of course staff.
+ */
+package poet;
+
+import java.io.IOException;
+import java.io.Reader;
+import java.nio.MappedByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Path;
+import java.nio.file.StandardOpenOption;
+import java.util.Arrays;
+import java.util.function.IntConsumer;
+
+/**
+ * Splits a UTF-8 corpus file into lowercase words, read through a
+ * memory-mapped FileChannel; also splits text from a Reader the same way.
+ *
+ * <p>Words are maximal runs of non-whitespace characters, as decided by
+ * Character.isWhitespace. Bytes are scanned directly: ASCII whitespace ends
+ * a word, and a word made only of ASCII bytes is lowercased byte by byte and
+ * looked up in the vocabulary without making a String. Only words with
+ * other bytes are decoded, to split them on non-ASCII whitespace and
+ * lowercase them as Strings.
+ *
+ * This class is internal to the poet package.
+ */
+final class CorpusTokenizer {
+    /** Largest part of a file mapped at a time */
+    private static final long MAX_WINDOW = 1L << 30;
+    /** Number of bytes copied out of the mapped buffer at a time */
+    private static final int CHUNK_SIZE = 1 << 16;
+
+    private final Vocabulary vocabulary;
+    private final IntConsumer sink;
+    // the word being read, lowercased if ascii
+    private byte[] word = new byte[64];
+    private int length;
+    private boolean ascii = true;
+
+    // Abstraction function:
+    //   represents a reader that has passed the ids of all complete words
+    //   read so far to sink, and is in the middle of word[0 .. length)
+    // Representation invariant:
+    //   0 <= length <= word.length
+    //   ascii iff word[0 .. length) are all ASCII bytes
+    // Safety from rep exposure:
+    //   All fields are private, instances never leave tokenize()
+
+    private CorpusTokenizer(Vocabulary vocabulary, IntConsumer sink) {
+        this.vocabulary = vocabulary;
+        this.sink = sink;
+    }
+
+    /**
+     * Read the words of a corpus file, in order.
+     *
+     * @param file a UTF-8 text file
+     * @param vocabulary dictionary that gives each lowercase word its id,
+     *        and gains the words it does not know yet
+     * @param sink receives the id of every word of file, in the order the
+     *        words appear
+     * @throws IOException if file cannot be found or read
+     */
+    static void tokenize(Path file, Vocabulary vocabulary, IntConsumer sink) throws IOException {
+        final CorpusTokenizer tokenizer = new CorpusTokenizer(vocabulary, sink);
+        final byte[] chunk = new byte[CHUNK_SIZE];
+        try (FileChannel channel = FileChannel.open(file, StandardOpenOption.READ)) {
+            final long size = channel.size();
+            for (long position = 0; position < size; position += MAX_WINDOW) {
+                final MappedByteBuffer buffer = channel.map(FileChannel.MapMode.READ_ONLY,
+                        position, Math.min(MAX_WINDOW, size - position));
+                while (buffer.hasRemaining()) {
+                    final int count = Math.min(chunk.length, buffer.remaining());
+                    buffer.get(chunk, 0, count);
+                    tokenizer.scan(chunk, count);
+                }
+            }
+        }
+        tokenizer.endWord();
+    }
+
+    /**
+     * Read the words of a stream of text, in order.
+     *
+     * @param in the text, read to its end but not closed
+     * @param vocabulary dictionary that gives each lowercase word its id,
+     *        and gains the words it does not know yet
+     * @param sink receives the id of every word of in, in the order the
+     *        words appear
+     * @throws IOException if in throws it
+     */
+    static void tokenize(Reader in, Vocabulary vocabulary, IntConsumer sink) throws IOException {
+        final char[] buffer = new char[CHUNK_SIZE / 2];
+        final StringBuilder word = new StringBuilder();
+        int read;
+        while ((read = in.read(buffer)) >= 0) {
+            for (int i = 0; i < read; i++) {
+                final char c = buffer[i];
+                if ( !Character.isWhitespace(c) ) {
+                    word.append(c);
+                } else if ( word.length() > 0 ) {
+                    sink.accept(vocabulary.idOf(word.toString().toLowerCase()));
+                    word.setLength(0);
+                }
+            }
+        }
+        if ( word.length() > 0 ) {
+            sink.accept(vocabulary.idOf(word.toString().toLowerCase()));
+        }
+    }
+
+    //helper code
+    /** Reads bytes[0 .. count), which may begin or end in the middle of a word */
+    private void scan(byte[] bytes, int count) {
+        for (int i = 0; i < count; i++) {
+            final byte b = bytes[i];
+            if ( isAsciiWhitespace(b) ) {
+                endWord();
+            } else {
+                if ( length == word.length ) {
+                    word = Arrays.copyOf(word, length * 2);
+                }
+                if ( b < 0 ) {
+                    ascii = false;
+                    word[length++] = b;
+                } else {
+                    word[length++] = 'A' <= b && b <= 'Z' ? (byte) (b + ('a' - 'A')) : b;
+                }
+            }
+        }
+    }
+    /** Returns true iff b is an ASCII char c with Character.isWhitespace(c) */
+    private static boolean isAsciiWhitespace(byte b) {
+        return b == ' ' || (9 <= b && b <= 13) || (28 <= b && b <= 31);
+    }
+    /** Passes on the word being read, if any */
+    private void endWord() {
+        if ( length == 0 ) {
+            return;
+        }
+        if ( ascii ) {
+            sink.accept(vocabulary.idOf(word, length));
+        } else {
+            final String text = new String(word, 0, length, StandardCharsets.UTF_8);
+            int start = 0;
+            for (int i = 0; i <= text.length(); i++) {
+                if ( i == text.length() || Character.isWhitespace(text.charAt(i)) ) {
+                    if ( i > start ) {
+                        sink.accept(vocabulary.idOf(text.substring(start, i).toLowerCase()));
+                    }
+                    start = i + 1;
+                }
+            }
+        }
+        length = 0;
+        ascii = true;
+    }
+}
@@ -3,26 +3,52 @@
  */
 package poet;
 
-import java.io.BufferedReader;
+import java.io.BufferedOutputStream;
+import java.io.DataOutputStream;
 import java.io.File;
-import java.io.FileReader;
 import java.io.IOException;
+import java.io.OutputStream;
+import java.io.Reader;
+import java.io.UncheckedIOException;
+import java.io.Writer;
+import java.nio.BufferUnderflowException;
+import java.nio.ByteBuffer;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.AbstractList;
 import java.util.ArrayList;
+import java.util.Arrays;
 import java.util.Collections;
+import java.util.Comparator;
+import java.util.Iterator;
 import java.util.List;
-import java.util.Map;
-import java.util.Random;
-import java.util.Scanner;
-import java.util.Set;
-import java.util.stream.Collectors;
+import java.util.PriorityQueue;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.CompletionException;
+import java.util.concurrent.Executor;
+import java.util.concurrent.ForkJoinPool;
+import java.util.concurrent.ForkJoinTask;
+import java.util.concurrent.RecursiveTask;
+import java.util.concurrent.locks.ReentrantReadWriteLock;
+import java.util.function.Function;
+import java.util.function.IntConsumer;
+import java.util.stream.Stream;
+import java.util.zip.CRC32;
+import java.util.zip.CheckedOutputStream;
 
+import graph.BridgeTable;
 import graph.Graph;
+import graph.GraphBuilder;
+import graph.GraphOptions;
+import graph.GraphSnapshot;
+import graph.ImmutableCsrGraph;
+import graph.TwoHopIndex;
 
 /**
  * A graph-based poetry generator.
  * 
  * <p>GraphPoet is initialized with a corpus of text, which it uses to derive a
- * word affinity graph.
+ * word affinity graph. The corpus is read as UTF-8 text.
  * Vertices in the graph are words. Words are defined as non-empty
  * case-insensitive strings of non-space non-newline characters. They are
  * delimited in the corpus by spaces, newlines, or the ends of the file.
@@ -60,26 +86,83 @@ import graph.Graph;
  * You MUST use Graph in your rep, but otherwise the implementation of this
  * class is up to you.
  * 
- * Immutable data type implementation
+ * <p>A poet can be given more text with addCorpus(), which adds it to the end
+ * of its corpus. Poets are safe for use by multiple threads.
+ * 
+ * Mutable data type implementation
  */
 public class GraphPoet {
-    private final Graph<String> affinityGraph;
-    private final List<String> corpusWords;
+    /**
+     * Options of the poets made without any: a read-only graph presized from
+     * the corpus, which becomes mutable if text is added
+     */
+    private static final GraphOptions DEFAULT_OPTIONS =
+            GraphOptions.defaults().withEngine(GraphOptions.Engine.IMMUTABLE_CSR);
+    /** Number of chars poem(Reader, Writer) reads at a time */
+    private static final int READ_BUFFER_SIZE = 8192;
+    /** Id of no word */
+    private static final int NONE = -1;
+    /** First int and format version of the poet section of a saved poet */
+    private static final int SNAPSHOT_MAGIC = 0x504f4554;
+    private static final byte SNAPSHOT_VERSION = 1;
+    
+    // the options asked for, with the engine of graph
+    private GraphOptions options;
+    // makes bridgeIndex, or null if bridges are found on each call of poem()
+    private final Function<? super Graph<String>, ? extends BridgeTable<String>> bridgeTable;
+    private final ReentrantReadWriteLock lock = new ReentrantReadWriteLock();
+    // true iff the words of the corpus are kept in corpusTokens
+    private final boolean keepCorpusWords;
+    
+    private Graph<String> affinityGraph;
+    // word of every vertex id of the corpus
+    private final Vocabulary vocabulary;
+    // vertex id of every word of the corpus in order, in
+    // corpusTokens[0 .. corpusTokenCount), or null if not kept
+    private int[] corpusTokens;
+    private int corpusTokenCount;
+    // vertex id of the last word of the corpus, or NONE if it has no words
+    private int lastWord;
+    // heaviest bridge of every pair of words, or null if not made since
+    // the corpus last changed
+    private BridgeTable<String> bridgeIndex;
     // Abstraction function:
     //   represents a poetry generator that uses a corpus of text
     //   to turn an input string into poetry.
     //
     // Representation invariant:
     //   graph is a non-null Graph object with words as vertices
-    //   and number of adjacencies(weight) as edges.
+    //   and number of adjacencies(weight) as edges, of the engine of options;
+    //   that engine is mutable once addCorpus() has added words
+    //   bridgeIndex, if non-null, is bridgeTable applied to graph
+    //   the vertices of graph are exactly the words of vocabulary
+    //   corpusTokens is non-null iff keepCorpusWords, and then holds
+    //     ids < vocabulary.size(), and corpusTokenCount <= corpusTokens.length
+    //   lastWord is the last of the corpus tokens, whether they are kept or not
     //
     // Safety from rep exposure:
-    //   - All fields are private and final
-    //   - graph is a mutable type, no references to it are provided
-    //     for the client to mutate
-    //   - corpusWords is a mutable list, getCorpusWords() returns
-    //     a read-only view preventing the client from 
-    //     making any mutations
+    //   - All fields are private
+    //   - no references to graph are provided to the client
+    //   - bridgeIndex is never returned; the function that makes it is
+    //     required not to modify the graph
+    //   - vocabulary and corpusTokens are never returned; getCorpusWords()
+    //     returns a read-only view that decodes corpusTokens
+    //
+    // Thread safety argument:
+    //   - every read of the mutable fields and their objects holds the read
+    //     lock of lock, and every write holds its write lock, so readers
+    //     see no partly applied addCorpus()
+    //   - addCorpus() reads the new text into a counter of its own before
+    //     taking the write lock, so slow input does not block readers; that
+    //     read touches only the final keepCorpusWords of this poet, and the
+    //     whole update of the rep, from merging the vocabulary to appending
+    //     the tokens and moving lastWord, holds the write lock
+    //   - tokens of corpusTokens below a count are never written again, so
+    //     a view of them stays valid after corpusTokens grows
+    //   - poems() runs each poem on its own thread with its own builder,
+    //     and each poem holds the read lock while it is made
+    //   - while the corpus is read, each ReadBlock task writes only its own
+    //     counter, and the counters are merged after all tasks are joined
     
     /**
      * Create a new poet with the graph from corpus (as described above).
@@ -88,44 +171,419 @@ public class GraphPoet {
      * @throws IOException if the corpus file cannot be found or read
      */
     public GraphPoet(File corpus) throws IOException {
-        corpusWords = extractWordsFromFile(corpus);
-        affinityGraph = generateAffinityGraph(corpusWords);
+        this(corpus, DEFAULT_OPTIONS);
+    }
+    
+    /**
+     * Create a new poet with the graph from corpus (as described above),
+     * stored in the graph engine chosen by options.
+     * 
+     * @param corpus text file from which to derive the poet's affinity graph
+     * @param options the engine and sizing of the affinity graph; size
+     *        estimates of 0 are taken from the corpus
+     * @throws IOException if the corpus file cannot be found or read
+     */
+    public GraphPoet(File corpus, GraphOptions options) throws IOException {
+        this(corpus, options, false);
+    }
+    
+    /**
+     * Create a new poet with the graph from corpus (as described above),
+     * stored in the graph engine chosen by options, and optionally precompute
+     * the bridge of every pair of words.
+     * 
+     * <p>With indexBridges, each bridge in poem() is found with a single
+     * lookup instead of by intersecting the neighbours of the two words, at
+     * the cost of a table with one entry per pair of words two adjacencies
+     * apart; the poet then always inserts the heaviest bridge.
+     * 
+     * @param corpus text file from which to derive the poet's affinity graph
+     * @param options the engine and sizing of the affinity graph; size
+     *        estimates of 0 are taken from the corpus
+     * @param indexBridges true to precompute the bridge of every pair of words
+     * @throws IOException if the corpus file cannot be found or read
+     */
+    public GraphPoet(File corpus, GraphOptions options, boolean indexBridges) throws IOException {
+        this(corpus, options, indexBridges ? TwoHopIndex::of : null);
+    }
+    
+    /**
+     * Create a new poet with the graph from corpus (as described above),
+     * stored in the graph engine chosen by options, and precompute the bridge
+     * of every pair of words with a given kind of table, for example
+     * {@code TwoHopIndex::of} or the parallel {@code matrix.MatrixBridgeTable::of}.
+     * 
+     * @param corpus text file from which to derive the poet's affinity graph
+     * @param options the engine and sizing of the affinity graph; size
+     *        estimates of 0 are taken from the corpus
+     * @param bridgeTable makes the table of heaviest two-edge paths of the
+     *        affinity graph, which must not modify the graph and must break
+     *        ties by word order, as TwoHopIndex::of and MatrixBridgeTable::of
+     *        do; or null to find bridges on each call of poem()
+     * @throws IOException if the corpus file cannot be found or read
+     */
+    public GraphPoet(File corpus, GraphOptions options,
+            Function<? super Graph<String>, ? extends BridgeTable<String>> bridgeTable) throws IOException {
+        this(corpus, options, bridgeTable, true);
+    }
+    
+    /**
+     * Create a new poet with the graph from corpus (as described above),
+     * stored in the graph engine chosen by options, optionally precompute the
+     * bridge of every pair of words, and optionally keep the words of the
+     * corpus for {@link #getCorpusWords()}.
+     * 
+     * <p>The words of the corpus go straight into the affinity graph as they
+     * are read. Without keepCorpusWords the poet holds only the graph and
+     * one copy of each distinct word; with it, the poet also holds one int
+     * per word of the corpus.
+     * 
+     * @param corpus text file from which to derive the poet's affinity graph
+     * @param options the engine and sizing of the affinity graph; size
+     *        estimates of 0 are taken from the corpus
+     * @param bridgeTable makes the table of heaviest two-edge paths of the
+     *        affinity graph, which must not modify the graph and must break
+     *        ties by word order, as TwoHopIndex::of and MatrixBridgeTable::of
+     *        do; or null to find bridges on each call of poem()
+     * @param keepCorpusWords true to keep the words of the corpus, in order
+     * @throws IOException if the corpus file cannot be found or read
+     */
+    public GraphPoet(File corpus, GraphOptions options,
+            Function<? super Graph<String>, ? extends BridgeTable<String>> bridgeTable,
+            boolean keepCorpusWords) throws IOException {
+        this(builder().addCorpus(corpus).options(options)
+                      .bridgeTable(bridgeTable).keepCorpusWords(keepCorpusWords));
+    }
+    
+    /** Create a new poet as described by a builder */
+    private GraphPoet(Builder corpus) throws IOException {
+        this(corpus.options, corpus.bridgeTable,
+             readCorpus(corpus.files, corpus.options, corpus.keepCorpusWords, corpus.pool));
+    }
+    
+    /** Create a new poet from the counts of its whole corpus */
+    private GraphPoet(GraphOptions options,
+            Function<? super Graph<String>, ? extends BridgeTable<String>> bridgeTable,
+            AffinityCounter corpus) {
+        this(options, bridgeTable, corpus.vocabulary, corpus.builder.build(options),
+             corpus.tokens(), corpus.previous);
+    }
+    
+    /** Create a new poet from the parts of its rep */
+    private GraphPoet(GraphOptions options,
+            Function<? super Graph<String>, ? extends BridgeTable<String>> bridgeTable,
+            Vocabulary vocabulary, Graph<String> affinityGraph, int[] corpusTokens, int lastWord) {
+        this.options = options;
+        this.bridgeTable = bridgeTable;
+        this.keepCorpusWords = corpusTokens != null;
+        this.vocabulary = vocabulary;
+        this.affinityGraph = affinityGraph;
+        this.corpusTokens = corpusTokens;
+        this.corpusTokenCount = corpusTokens == null ? 0 : corpusTokens.length;
+        this.lastWord = lastWord;
+        this.bridgeIndex = bridgeTable == null ? null : bridgeTable.apply(affinityGraph);
         checkRep();
     }
+    
+    /**
+     * Make a poet again from a file written by {@link #save(Path)}, without
+     * reading its corpus, with a read-only graph.
+     * 
+     * @param file the file to load
+     * @return a poet with the corpus of the saved poet
+     * @throws IOException if file cannot be read, or is not a whole poet
+     *         snapshot with correct checksums
+     */
+    public static GraphPoet load(Path file) throws IOException {
+        return load(file, DEFAULT_OPTIONS, null);
+    }
+    
+    /**
+     * Make a poet again from a file written by {@link #save(Path)}, without
+     * reading its corpus.
+     * 
+     * <p>The file is mapped into memory and its graph is decoded in one pass
+     * into an IMMUTABLE_CSR graph; a graph of any other engine is then
+     * filled from that one.
+     * 
+     * @param file the file to load
+     * @param options the engine of the affinity graph
+     * @param bridgeTable makes the table of heaviest two-edge paths of the
+     *        affinity graph, which must not modify the graph and must break
+     *        ties by word order, as TwoHopIndex::of and MatrixBridgeTable::of
+     *        do; or null to find bridges on each call of poem()
+     * @return a poet with the corpus of the saved poet, which keeps the words
+     *         of its corpus if the saved poet did
+     * @throws IOException if file cannot be read, or is not a whole poet
+     *         snapshot with correct checksums
+     */
+    public static GraphPoet load(Path file, GraphOptions options,
+            Function<? super Graph<String>, ? extends BridgeTable<String>> bridgeTable) throws IOException {
+        final ByteBuffer in = GraphSnapshot.map(file);
+        final Vocabulary vocabulary = new Vocabulary();
+        final ImmutableCsrGraph<String> graph = GraphSnapshot.read(in, word -> {
+            vocabulary.idOf(word);
+            return word;
+        });
+        final int start = in.position();
+        final int lastWord;
+        int[] tokens = null;
+        try {
+            if ( in.getInt() != SNAPSHOT_MAGIC ) {
+                throw new IOException("not a poet snapshot");
+            }
+            if ( in.get() != SNAPSHOT_VERSION ) {
+                throw new IOException("unsupported poet snapshot version");
+            }
+            lastWord = GraphSnapshot.readVarInt(in) - 1;
+            if ( in.get() != 0 ) {
+                final int count = GraphSnapshot.readVarInt(in);
+                if ( count > in.remaining() ) {
+                    throw new IOException("corrupt poet snapshot: too many words");
+                }
+                tokens = new int[count];
+                for (int i = 0; i < count; i++) {
+                    tokens[i] = GraphSnapshot.readVarInt(in);
+                    if ( tokens[i] < 0 || tokens[i] >= vocabulary.size() ) {
+                        throw new IOException("corrupt poet snapshot: bad word");
+                    }
+                }
+                if ( lastWord != (count == 0 ? NONE : tokens[count - 1]) ) {
+                    throw new IOException("corrupt poet snapshot: last word is not the last of the words");
+                }
+            }
+            final ByteBuffer section = in.duplicate();
+            section.limit(in.position()).position(start);
+            final CRC32 crc = new CRC32();
+            crc.update(section);
+            if ( in.getInt() != (int) crc.getValue() ) {
+                throw new IOException("corrupt poet snapshot: checksum mismatch");
+            }
+        } catch (BufferUnderflowException e) {
+            throw new IOException("truncated poet snapshot", e);
+        }
+        if ( in.hasRemaining() || lastWord < NONE || lastWord >= vocabulary.size()
+                || (lastWord == NONE) != (vocabulary.size() == 0)
+                || vocabulary.size() != graph.vertices().size() ) {
+            throw new IOException("corrupt poet snapshot");
+        }
+        final Graph<String> affinityGraph = options.engine() == GraphOptions.Engine.IMMUTABLE_CSR
+                ? graph
+                : new GraphBuilder<String>().addAll(graph).build(options);
+        return new GraphPoet(options, bridgeTable, vocabulary, affinityGraph, tokens, lastWord);
+    }
+    
+    /**
+     * Save this poet to a file, so that {@link #load(Path)} can make it again
+     * without reading its corpus.
+     * 
+     * <p>The file holds a graph.GraphSnapshot of the affinity graph, whose
+     * label dictionary is the vocabulary of this poet, followed by a poet
+     * section: the int {@code 0x504f4554} ("POET") and a format version byte,
+     * the id of the last word of the corpus plus one as a varint, a byte that
+     * is 1 if the corpus words are kept, and if so their count and their ids
+     * as varints; then the CRC32 of the poet section as an int. The engine
+     * and bridge table of this poet are not saved.
+     * 
+     * @param file the file to write, replaced if it exists
+     * @throws IOException if file cannot be written
+     */
+    public void save(Path file) throws IOException {
+        lock.readLock().lock();
+        try (OutputStream out = new BufferedOutputStream(Files.newOutputStream(file))) {
+            final List<String> words = new AbstractList<String>() {
+                @Override public String get(int id) {
+                    return vocabulary.word(id);
+                }
+                @Override public int size() {
+                    return vocabulary.size();
+                }
+            };
+            GraphSnapshot.write(affinityGraph, words, Function.identity(), out);
+            final CheckedOutputStream checked = new CheckedOutputStream(out, new CRC32());
+            final DataOutputStream data = new DataOutputStream(checked);
+            data.writeInt(SNAPSHOT_MAGIC);
+            data.writeByte(SNAPSHOT_VERSION);
+            GraphSnapshot.writeVarInt(data, lastWord + 1);
+            data.writeBoolean(corpusTokens != null);
+            if ( corpusTokens != null ) {
+                GraphSnapshot.writeVarInt(data, corpusTokenCount);
+                for (int i = 0; i < corpusTokenCount; i++) {
+                    GraphSnapshot.writeVarInt(data, corpusTokens[i]);
+                }
+            }
+            data.flush();
+            new DataOutputStream(out).writeInt((int) checked.getChecksum().getValue());
+        } finally {
+            lock.readLock().unlock();
+        }
+    }
+    
+    /**
+     * Make a builder of a poet whose corpus is made of many files.
+     * 
+     * @return a builder with no corpus files, the default options, no bridge
+     *         table, corpus words kept, and the common fork-join pool
+     */
+    public static Builder builder() {
+        return new Builder();
+    }
     private void checkRep() {
         assert affinityGraph != null;
+        assert affinityGraph.vertices().size() == vocabulary.size();
+        assert keepCorpusWords == (corpusTokens != null);
+        assert corpusTokens == null || corpusTokenCount <= corpusTokens.length;
+    }
+    
+    /**
+     * Add the text of a file to the end of the corpus of this poet, as if
+     * it were joined to the corpus with whitespace in between.
+     * 
+     * @param corpus UTF-8 text file to add
+     * @throws IOException if corpus cannot be found or read; this poet is
+     *         then unchanged
+     * @see #addCorpus(Reader)
+     */
+    public void addCorpus(File corpus) throws IOException {
+        final AffinityCounter delta = new AffinityCounter(new Vocabulary(), GraphOptions.defaults(),
+                                                          keepCorpusWords);
+        CorpusTokenizer.tokenize(corpus.toPath(), delta.vocabulary, delta);
+        addCounts(delta);
     }
-    /** Returns a list of words in lowercase, separation done at whitespace */
-    private List<String> extractWordsFromFile(File corpus) throws IOException {
-        List<String> words = new ArrayList<>();
-        try (Scanner s = new Scanner(new BufferedReader(new FileReader(corpus)))) {
-            while (s.hasNext()) {
-                words.add(s.next().toLowerCase());
+    
+    /**
+     * Add text to the end of the corpus of this poet, as if it were joined
+     * to the corpus with whitespace in between.
+     * 
+     * <p>Only the new text is read. Its adjacencies are counted on their
+     * own and then added to the weights of the affinity graph in place, so
+     * an update takes time proportional to the new text. The IMMUTABLE_CSR
+     * engine cannot change in place, so the first update of a poet with
+     * that engine copies its graph once into the AUTO engine, which the
+     * poet then keeps. A bridge table, if this poet has one, is remade the
+     * next time a poem needs it.
+     * 
+     * @param corpus text to add, read to its end but not closed
+     * @throws IOException if corpus throws it; this poet is then unchanged
+     */
+    public void addCorpus(Reader corpus) throws IOException {
+        final AffinityCounter delta = new AffinityCounter(new Vocabulary(), GraphOptions.defaults(),
+                                                          keepCorpusWords);
+        CorpusTokenizer.tokenize(corpus, delta.vocabulary, delta);
+        addCounts(delta);
+    }
+    
+    //helper code
+    /** Adds the words counted by delta to the end of the corpus */
+    private void addCounts(AffinityCounter delta) {
+        if ( delta.first == NONE ) {
+            return;
+        }
+        lock.writeLock().lock();
+        try {
+            final int[] deltaToPoet = new int[delta.vocabulary.size()];
+            for (int id = 0; id < deltaToPoet.length; id++) {
+                deltaToPoet[id] = vocabulary.idOf(delta.vocabulary.word(id));
+            }
+            if ( !options.engine().isMutable() ) {
+                options = options.withEngine(GraphOptions.Engine.AUTO);
+                affinityGraph = new GraphBuilder<String>().addAll(affinityGraph).build(options);
+            }
+            final Graph<String> counts = delta.builder.build();
+            for (String word : counts.vertices()) {
+                affinityGraph.add(word);
+            }
+            counts.forEachEdge((source, target, weight) -> {
+                affinityGraph.increment(source, target, weight);
+                return true;
+            });
+            if ( lastWord != NONE ) {
+                affinityGraph.increment(vocabulary.word(lastWord), vocabulary.word(deltaToPoet[delta.first]), 1);
+            }
+            lastWord = deltaToPoet[delta.previous];
+            if ( corpusTokens != null ) {
+                if ( corpusTokenCount + delta.tokenCount > corpusTokens.length ) {
+                    corpusTokens = Arrays.copyOf(corpusTokens,
+                            Math.max(corpusTokenCount + delta.tokenCount, corpusTokens.length * 2));
+                }
+                for (int i = 0; i < delta.tokenCount; i++) {
+                    corpusTokens[corpusTokenCount++] = deltaToPoet[delta.tokens[i]];
+                }
             }
+            bridgeIndex = null;
+            checkRep();
+        } finally {
+            lock.writeLock().unlock();
         }
-        assert words != Collections.EMPTY_LIST;
-        return words;
     }
     /**
-     * Generates a word affinity graph
+     * Locks this poet for reading, first remaking its bridge table if it has
+     * one and the corpus changed since the table was made. Must be undone
+     * with lock.readLock().unlock(), and must not be called by a thread that
+     * already holds a lock of this poet.
+     */
+    private void lockForReading() {
+        lock.readLock().lock();
+        if ( bridgeTable == null || bridgeIndex != null ) {
+            return;
+        }
+        lock.readLock().unlock();
+        lock.writeLock().lock();
+        try {
+            if ( bridgeIndex == null ) {
+                bridgeIndex = bridgeTable.apply(affinityGraph);
+            }
+            lock.readLock().lock();
+        } finally {
+            lock.writeLock().unlock();
+        }
+    }
+    /**
+     * Reads the words of corpus files into one affinity count, as if the
+     * files were joined end to end with whitespace in between.
      * 
-     * @return a graph whose vertices are lowercase words
-     *         and edges are the counts of adjacencies
+     * <p>The files are split into contiguous blocks that are read in
+     * parallel on pool, each into a vocabulary and count of its own; the
+     * counts are then merged in file order, adding the adjacency between the
+     * last word of each block and the first word of the next. A single file
+     * is read on the calling thread.
+     * 
+     * @return the count of the adjacencies of all the words of files
+     * @throws IOException if a file cannot be found or read; the first such
+     *         file in order is reported
      */
-    private Graph<String> generateAffinityGraph(List<String> words){
-        Graph<String> graph = Graph.empty();
-        
-        for (int i = 0; i < words.size(); i++) {
-            String source = words.get(i);
-            graph.add(source);
-            if ((i + 1) >= words.size()) {
-                break;
+    private static AffinityCounter readCorpus(List<Path> files, GraphOptions options,
+            boolean keepCorpusWords, ForkJoinPool pool) throws IOException {
+        final int blockCount = Math.min(files.size(), pool.getParallelism() * 4);
+        if ( blockCount <= 1 ) {
+            final AffinityCounter corpus = new AffinityCounter(new Vocabulary(), options, keepCorpusWords);
+            for (Path file : files) {
+                CorpusTokenizer.tokenize(file, corpus.vocabulary, corpus);
             }
-            String target = words.get(i + 1);
-            int prev = graph.set(source, target, 1);
-            graph.set(source, target, prev + 1);
+            return corpus;
         }
-        return graph;
+        final List<ReadBlock> blocks = new ArrayList<>(blockCount);
+        for (int block = 0; block < blockCount; block++) {
+            blocks.add(new ReadBlock(files.subList(
+                    files.size() * block / blockCount, files.size() * (block + 1) / blockCount),
+                    new AffinityCounter(new Vocabulary(), GraphOptions.defaults(), keepCorpusWords)));
+        }
+        pool.invoke(new RecursiveTask<Void>() {
+            private static final long serialVersionUID = 1L;
+            
+            @Override protected Void compute() {
+                ForkJoinTask.invokeAll(blocks);
+                return null;
+            }
+        });
+        final AffinityCounter corpus = new AffinityCounter(new Vocabulary(), options, keepCorpusWords);
+        for (ReadBlock block : blocks) {
+            if ( block.failure != null ) {
+                throw block.failure;
+            }
+            corpus.addAll(block.counter);
+        }
+        return corpus;
     }
     /** 
      * Returns the words in the affinity graph generated from the corpus
@@ -135,51 +593,562 @@ public class GraphPoet {
      * or the ends of the file.
      * 
      * @return list of words in the order they appear in the corpus. All words are
-     *         in lowercase
+     *         in lowercase. The list is read-only and is not changed by later
+     *         calls of addCorpus()
+     * @throws IllegalStateException if this poet was made without keeping
+     *         the words of its corpus
      */
     public List<String> getCorpusWords() {
-        return Collections.unmodifiableList(corpusWords);
+        lock.readLock().lock();
+        try {
+            if ( corpusTokens == null ) {
+                throw new IllegalStateException("corpus words were not kept");
+            }
+            final int[] tokens = corpusTokens;
+            final int size = corpusTokenCount;
+            return new AbstractList<String>() {
+                @Override public String get(int index) {
+                    if ( index < 0 || index >= size ) {
+                        throw new IndexOutOfBoundsException("index " + index + ", size " + size);
+                    }
+                    lock.readLock().lock();
+                    try {
+                        return vocabulary.word(tokens[index]);
+                    } finally {
+                        lock.readLock().unlock();
+                    }
+                }
+                @Override public int size() {
+                    return size;
+                }
+            };
+        } finally {
+            lock.readLock().unlock();
+        }
+    }
+    /** Orders bridges from the worst to the best: lighter first, then later in word order */
+    private static final Comparator<Bridge> WORST_FIRST =
+            Comparator.comparingInt((Bridge bridge) -> bridge.weight)
+                      .thenComparing(bridge -> bridge.word, Comparator.reverseOrder());
+    
+    /**
+     * Returns the bridge b of the heaviest path word1 -> b -> word2, the first
+     * in word order among equally heavy ones, or null if there is none
+     */
+    private String bridgeOf(String word1, String word2) {
+        if (bridgeIndex != null) {
+            return bridgeIndex.bridge(word1, word2);
+        }
+        final String[] best = { null };
+        final int[] bestWeight = { 0 };
+        affinityGraph.forEachCommonNeighbor(word1, word2, (bridge, weight) -> {
+            if (weight > bestWeight[0] || (weight == bestWeight[0] && bridge.compareTo(best[0]) < 0)) {
+                best[0] = bridge;
+                bestWeight[0] = weight;
+            }
+        });
+        return best[0];
+    }
+    
+    /**
+     * Rank the bridge words between two words.
+     * 
+     * <p>Makes a single pass over the bridges, keeping only the best k in a
+     * bounded heap.
+     * 
+     * @param word1 the word before the bridge, case-insensitive
+     * @param word2 the word after the bridge, case-insensitive
+     * @param k the most bridges to return, requires k >= 0
+     * @return the (lowercase) bridges b with the heaviest paths word1 -> b -> word2,
+     *         at most k of them, heaviest first; among paths of equal weight
+     *         the bridges come in word order
+     */
+    public List<String> topBridges(String word1, String word2, int k) {
+        assert k >= 0;
+        final PriorityQueue<Bridge> worstFirst = new PriorityQueue<>(k + 1, WORST_FIRST);
+        lock.readLock().lock();
+        try {
+            affinityGraph.forEachCommonNeighbor(word1.toLowerCase(), word2.toLowerCase(), (word, weight) -> {
+                if (worstFirst.size() < k) {
+                    worstFirst.add(new Bridge(word, weight));
+                } else if (k > 0) {
+                    final Bridge candidate = new Bridge(word, weight);
+                    if (WORST_FIRST.compare(candidate, worstFirst.peek()) > 0) {
+                        worstFirst.poll();
+                        worstFirst.add(candidate);
+                    }
+                }
+            });
+        } finally {
+            lock.readLock().unlock();
+        }
+        final String[] ranked = new String[worstFirst.size()];
+        for (int i = ranked.length - 1; i >= 0; i--) {
+            ranked[i] = worstFirst.poll().word;
+        }
+        return Arrays.asList(ranked);
     }
+    
     /**
      * Generate a poem.
      * 
+     * <p>Each bridge is the one of the heaviest two-edge path; among equally
+     * heavy paths it is the first bridge in word order, whether or not this
+     * poet has a bridge table. The same input always gives the same poem.
+     * 
      * @param input string from which to create the poem
      * @return poem (as described above)
      */
     public String poem(String input) {
-        String[] inputWords = input.split("\\s");
-        StringBuilder poem = new StringBuilder(input);
-        int fromIndex = 0;
-        
-        for (int i = 0; i < inputWords.length; i++) {
-            if (i + 1 >= inputWords.length) {
-                break;
-            }
-            Map<String, Integer> word1Targets = 
-                    affinityGraph.targets(inputWords[i].toLowerCase());
-            Map<String, Integer> word2Sources =
-                    affinityGraph.sources(inputWords[i+1].toLowerCase());
-            Set<String> probableBridges = word1Targets.keySet();
-            
-            List<String> allBridges = probableBridges.stream()
-                    .filter(possibleBridge -> word2Sources.containsKey(possibleBridge))
-                    .collect(Collectors.toList());
-            
-            if (!allBridges.isEmpty()) {
-                Random rand = new Random();
-                int  n = rand.nextInt(allBridges.size());
-                String bridge = allBridges.get(n);
-                // get the index of word 2 from the poem
-                int insertAt = poem.indexOf(inputWords[i+1], fromIndex);
-                // insert the bridge word before that word
-                poem.insert(insertAt, bridge + " ");
+        final StringBuilder poem = new StringBuilder(input.length() + input.length() / 2 + 16);
+        appendPoem(input, poem);
+        return poem.toString();
+    }
+    
+    /**
+     * Generate the poems of many inputs in parallel on the common fork-join
+     * pool.
+     * 
+     * @param inputs strings from which to create poems
+     * @return the poem of each input (as described for poem(String)), in the
+     *         order of inputs
+     */
+    public List<String> poems(List<String> inputs) {
+        return poems(inputs, ForkJoinPool.commonPool());
+    }
+    
+    /**
+     * Generate the poems of many inputs in parallel.
+     * 
+     * <p>The inputs are split into contiguous batches, a few per processor,
+     * and each batch runs as one task on executor. A task reuses one scratch
+     * builder for all its inputs; the affinity graph is shared read-only.
+     * Each poem is made from the corpus as it is at some moment during the
+     * call.
+     * 
+     * @param inputs strings from which to create poems
+     * @param executor runs the batches, for example a fork-join pool or a
+     *                 virtual-thread-per-task executor
+     * @return the poem of each input (as described for poem(String)), in the
+     *         order of inputs
+     */
+    public List<String> poems(List<String> inputs, Executor executor) {
+        final String[] batch = inputs.toArray(new String[0]);
+        final String[] results = new String[batch.length];
+        final int batchSize = Math.max(1, batch.length / (4 * Runtime.getRuntime().availableProcessors()));
+        final List<CompletableFuture<Void>> tasks = new ArrayList<>();
+        for (int start = 0; start < batch.length; start += batchSize) {
+            final int from = start;
+            final int to = Math.min(start + batchSize, batch.length);
+            tasks.add(CompletableFuture.runAsync(() -> {
+                final StringBuilder scratch = new StringBuilder();
+                for (int i = from; i < to; i++) {
+                    scratch.setLength(0);
+                    appendPoem(batch[i], scratch);
+                    results[i] = scratch.toString();
+                }
+            }, executor));
+        }
+        try {
+            CompletableFuture.allOf(tasks.toArray(new CompletableFuture<?>[0])).join();
+        } catch (CompletionException e) {
+            if (e.getCause() instanceof RuntimeException) {
+                throw (RuntimeException) e.getCause();
             }
+            if (e.getCause() instanceof Error) {
+                throw (Error) e.getCause();
+            }
+            throw e;
         }
-        checkRep();
-        return poem.toString();
+        return Collections.unmodifiableList(Arrays.asList(results));
+    }
+    
+    /**
+     * Generate the poems of a stream of inputs, lazily.
+     * 
+     * @param inputs strings from which to create poems; if it is a parallel
+     *               stream the poems are generated in parallel
+     * @return a stream of the poem of each input (as described for
+     *         poem(String)), in the encounter order of inputs
+     */
+    public Stream<String> poems(Stream<String> inputs) {
+        return inputs.map(this::poem);
+    }
+    
+    /**
+     * Generate a poem into an Appendable, in a single forward pass over the
+     * input that appends each word as soon as its bridge is known.
+     * 
+     * @param input text from which to create the poem
+     * @param out where to append the poem (as described for poem(String))
+     * @throws IOException if out throws it
+     */
+    public void poem(CharSequence input, Appendable out) throws IOException {
+        final int length = input.length();
+        String previousWord = null;
+        int start = 0;
+        lockForReading();
+        try {
+            while (start < length) {
+                while (start < length && Character.isWhitespace(input.charAt(start))) {
+                    start++;
+                }
+                int end = start;
+                while (end < length && !Character.isWhitespace(input.charAt(end))) {
+                    end++;
+                }
+                if (end > start) {
+                    previousWord = appendWord(out, previousWord, input.subSequence(start, end).toString());
+                }
+                start = end;
+            }
+            checkRep();
+        } finally {
+            lock.readLock().unlock();
+        }
+    }
+    
+    /**
+     * Generate a poem from a stream of text into another, with constant
+     * memory: the input is read in fixed-size chunks, and only the word
+     * being read and the previous word are kept. Each word is written as
+     * soon as it is complete. The whole poem is made from the corpus as it
+     * is when the call starts, so addCorpus() waits until the call returns.
+     * 
+     * @param in text from which to create the poem, read to its end but not
+     *           closed
+     * @param out where to write the poem (as described for poem(String));
+     *            flushed at the end but not closed
+     * @throws IOException if in or out throws it
+     */
+    public void poem(Reader in, Writer out) throws IOException {
+        final char[] buffer = new char[READ_BUFFER_SIZE];
+        final StringBuilder word = new StringBuilder();
+        String previousWord = null;
+        int read;
+        lockForReading();
+        try {
+            while ((read = in.read(buffer)) >= 0) {
+                for (int i = 0; i < read; i++) {
+                    final char c = buffer[i];
+                    if (!Character.isWhitespace(c)) {
+                        word.append(c);
+                    } else if (word.length() > 0) {
+                        previousWord = appendWord(out, previousWord, word.toString());
+                        word.setLength(0);
+                    }
+                }
+            }
+            if (word.length() > 0) {
+                appendWord(out, previousWord, word.toString());
+            }
+            out.flush();
+            checkRep();
+        } finally {
+            lock.readLock().unlock();
+        }
+    }
+    
+    //helper code
+    /** Appends the poem of input to a builder */
+    private void appendPoem(CharSequence input, StringBuilder poem) {
+        try {
+            poem(input, poem);
+        } catch (IOException e) {
+            throw new AssertionError("StringBuilder does not throw IOException", e);
+        }
+    }
+    /**
+     * Appends one input word to a poem, preceded by a space and its bridge
+     * from the previous word unless it is the first word.
+     * 
+     * @param out the poem so far
+     * @param previousWord the previous input word in lowercase, or null if
+     *                     word is the first
+     * @param word the input word, non-empty with no whitespace
+     * @return word in lowercase, the previousWord of the next word
+     * @throws IOException if out throws it
+     */
+    private String appendWord(Appendable out, String previousWord, String word) throws IOException {
+        final String lowerCaseWord = word.toLowerCase();
+        if (previousWord != null) {
+            out.append(' ');
+            final String bridge = bridgeOf(previousWord, lowerCaseWord);
+            if (bridge != null) {
+                out.append(bridge).append(' ');
+            }
+        }
+        out.append(word);
+        return lowerCaseWord;
     }
     
     @Override public String toString() {
-        return affinityGraph.toString();
+        lock.readLock().lock();
+        try {
+            return affinityGraph.toString();
+        } finally {
+            lock.readLock().unlock();
+        }
+    }
+    
+    /**
+     * A bridge word and the weight of its two-edge path.
+     * 
+     * This class is internal to the rep of GraphPoet.
+     */
+    private static final class Bridge {
+        private final String word;
+        private final int weight;
+        
+        Bridge(String word, int weight) {
+            this.word = word;
+            this.weight = weight;
+        }
+    }
+    
+    /**
+     * Counts the adjacencies of a stream of word ids into a graph builder,
+     * optionally keeping the ids in order.
+     * 
+     * <p>The builder gives its vertices the same ids as the vocabulary, so
+     * each adjacency is counted by id with a single probe of the builder's
+     * edge table and no label lookup.
+     * 
+     * This class is internal to the rep of GraphPoet.
+     */
+    private static final class AffinityCounter implements IntConsumer {
+        private final Vocabulary vocabulary;
+        private final GraphBuilder<String> builder;
+        // ids seen so far, or null if they are not kept
+        private int[] tokens;
+        private int tokenCount;
+        // first and last ids seen so far
+        private int first = NONE;
+        private int previous = NONE;
+        
+        AffinityCounter(Vocabulary vocabulary, GraphOptions options, boolean keepTokens) {
+            assert vocabulary.size() == 0;
+            this.vocabulary = vocabulary;
+            this.builder = new GraphBuilder<>(Math.max(16, options.expectedVertices()),
+                                              Math.max(16, options.expectedEdges()));
+            this.tokens = keepTokens ? new int[1024] : null;
+        }
+        
+        @Override public void accept(int id) {
+            // the vocabulary gives out ids in order, so only a new word
+            // reaches the label map of the builder
+            if ( id == builder.vertexCount() ) {
+                builder.intern(vocabulary.word(id));
+            }
+            assert id < builder.vertexCount();
+            if ( previous == NONE ) {
+                first = id;
+            } else {
+                builder.addEdgeById(previous, id, 1);
+            }
+            previous = id;
+            if ( tokens != null ) {
+                ensureCapacity(tokenCount + 1);
+                tokens[tokenCount++] = id;
+            }
+        }
+        
+        /**
+         * Adds the words counted by another counter, as if they came after
+         * the words seen so far.
+         * 
+         * @param other a counter with its own vocabulary, which keeps its ids
+         *              if this counter does; is not modified
+         */
+        void addAll(AffinityCounter other) {
+            if ( other.first == NONE ) {
+                return;
+            }
+            final int[] otherToThis = new int[other.vocabulary.size()];
+            for (int id = 0; id < otherToThis.length; id++) {
+                final String word = other.vocabulary.word(id);
+                otherToThis[id] = vocabulary.idOf(word);
+                if ( otherToThis[id] == builder.vertexCount() ) {
+                    builder.intern(word);
+                }
+            }
+            builder.addAll(other.builder);
+            assert builder.vertexCount() == vocabulary.size();
+            if ( previous == NONE ) {
+                first = otherToThis[other.first];
+            } else {
+                builder.addEdgeById(previous, otherToThis[other.first], 1);
+            }
+            previous = otherToThis[other.previous];
+            if ( tokens != null ) {
+                ensureCapacity(tokenCount + other.tokenCount);
+                for (int i = 0; i < other.tokenCount; i++) {
+                    tokens[tokenCount++] = otherToThis[other.tokens[i]];
+                }
+            }
+        }
+        private void ensureCapacity(int capacity) {
+            if ( capacity > tokens.length ) {
+                tokens = Arrays.copyOf(tokens, Math.max(capacity, tokens.length * 2));
+            }
+        }
+        
+        /** Returns the ids seen so far, or null if they are not kept */
+        int[] tokens() {
+            return tokens == null ? null : Arrays.copyOf(tokens, tokenCount);
+        }
+    }
+    
+    /**
+     * A contiguous run of corpus files, read by one fork-join task into a
+     * counter of its own.
+     * 
+     * This class is internal to the rep of GraphPoet.
+     */
+    private static final class ReadBlock extends RecursiveTask<Void> {
+        private static final long serialVersionUID = 1L;
+        
+        private final List<Path> files;
+        private final AffinityCounter counter;
+        // the first failure to read a file, filled by compute()
+        private IOException failure;
+        
+        ReadBlock(List<Path> files, AffinityCounter counter) {
+            this.files = files;
+            this.counter = counter;
+        }
+        
+        @Override protected Void compute() {
+            try {
+                for (Path file : files) {
+                    CorpusTokenizer.tokenize(file, counter.vocabulary, counter);
+                }
+            } catch (IOException e) {
+                failure = e;
+            }
+            return null;
+        }
+    }
+    
+    /**
+     * A mutable description of a poet whose corpus is made of many files.
+     * 
+     * <p>The corpus is the text of all the files added, in the order they
+     * were added, as if they were joined end to end with whitespace in
+     * between: the last word of one file is adjacent to the first word of
+     * the next. The files of a directory are added in path order.
+     * 
+     * <p>Files are read in parallel on a fork-join pool, so building a poet
+     * from many files scales with the number of cores. A builder is not
+     * safe for use by multiple threads.
+     */
+    public static final class Builder {
+        private final List<Path> files = new ArrayList<>();
+        private GraphOptions options = DEFAULT_OPTIONS;
+        private Function<? super Graph<String>, ? extends BridgeTable<String>> bridgeTable;
+        private boolean keepCorpusWords = true;
+        private ForkJoinPool pool = ForkJoinPool.commonPool();
+        
+        private Builder() {
+        }
+        
+        /**
+         * Add a corpus file, or every regular file under a directory, to the
+         * end of the corpus.
+         * 
+         * @param corpus a text file or a directory
+         * @return this builder
+         * @throws IOException if corpus is a directory that cannot be listed
+         */
+        public Builder addCorpus(File corpus) throws IOException {
+            addPath(corpus.toPath());
+            return this;
+        }
+        
+        /**
+         * Add corpus files, or every regular file under directories, to the
+         * end of the corpus, in stream order.
+         * 
+         * @param corpus text files and directories
+         * @return this builder
+         * @throws IOException if corpus has a directory that cannot be listed,
+         *         or fails to list its own paths
+         */
+        public Builder addCorpus(Stream<Path> corpus) throws IOException {
+            try {
+                for (Iterator<Path> paths = corpus.iterator(); paths.hasNext(); ) {
+                    addPath(paths.next());
+                }
+            } catch (UncheckedIOException e) {
+                throw e.getCause();
+            }
+            return this;
+        }
+        
+        //helper code
+        private void addPath(Path path) throws IOException {
+            if ( !Files.isDirectory(path) ) {
+                files.add(path);
+                return;
+            }
+            try (Stream<Path> walk = Files.walk(path)) {
+                walk.filter(Files::isRegularFile).sorted().forEachOrdered(files::add);
+            } catch (UncheckedIOException e) {
+                throw e.getCause();
+            }
+        }
+        
+        /**
+         * @param options the engine and sizing of the affinity graph; size
+         *        estimates of 0 are taken from the corpus
+         * @return this builder
+         */
+        public Builder options(GraphOptions options) {
+            this.options = options;
+            return this;
+        }
+        
+        /**
+         * @param bridgeTable makes the table of heaviest two-edge paths of the
+         *        affinity graph, which must not modify the graph and must
+         *        break ties by word order, as TwoHopIndex::of and
+         *        MatrixBridgeTable::of do; or null to find bridges on each
+         *        call of poem()
+         * @return this builder
+         */
+        public Builder bridgeTable(Function<? super Graph<String>, ? extends BridgeTable<String>> bridgeTable) {
+            this.bridgeTable = bridgeTable;
+            return this;
+        }
+        
+        /**
+         * @param keepCorpusWords true to keep the words of the corpus, in
+         *        order, for {@link GraphPoet#getCorpusWords()}
+         * @return this builder
+         */
+        public Builder keepCorpusWords(boolean keepCorpusWords) {
+            this.keepCorpusWords = keepCorpusWords;
+            return this;
+        }
+        
+        /**
+         * @param pool the pool to read the corpus files on
+         * @return this builder
+         */
+        public Builder pool(ForkJoinPool pool) {
+            this.pool = pool;
+            return this;
+        }
+        
+        /**
+         * Make a poet from the corpus files added so far.
+         * 
+         * @return a new poet with the graph from the corpus (as described
+         *         above), made with the options of this builder
+         * @throws IOException if a corpus file cannot be found or read
+         */
+        public GraphPoet build() throws IOException {
+            return new GraphPoet(this);
+        }
     }
 }
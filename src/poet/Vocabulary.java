@@ -0,0 +1,161 @@
+/* Copyright (c) 2015-2016 MIT 6.005 course staff, all rights reserved.
+ * Redistribution of original or derived work requires permission of course staff.
+ */
+package poet;
+
+import java.nio.charset.StandardCharsets;
+import java.util.Arrays;
+
+/**
+ * Mutable dictionary that interns words, giving each distinct word an int
+ * id from 0 upwards. Words can be given as Strings, or as ASCII bytes
+ * straight from a file.
+ *
+ * <p>Each distinct word is stored once, as the String that word() returns
+ * and that becomes its vertex label. Looking up a word given as bytes
+ * compares the bytes with the chars of that String, so a word that is
+ * already known allocates nothing and a String is made only once per
+ * distinct word.
+ *
+ * This class is internal to the poet package.
+ */
+final class Vocabulary {
+    private static final int EMPTY = -1;
+
+    private int[] hashes = new int[64];
+    private String[] words = new String[64];
+    private int size;
+    // open addressing table of ids, EMPTY where unused
+    private int[] table = new int[128];
+
+    // Abstraction function:
+    //   represents the list of distinct words words[0 .. size)
+    // Representation invariant:
+    //   hashes.length == words.length >= size
+    //   hashes[id] == hash(words[id]), for every id < size
+    //   no two ids have equal words
+    //   table.length is a power of two and > 2 * size; every id < size is
+    //     in table, at or after (with wrap-around) the slot of its hash
+    //     with no EMPTY slot in between
+    // Safety from rep exposure:
+    //   All fields are private, the arrays are never returned, and word()
+    //   returns an immutable String
+
+    Vocabulary() {
+        Arrays.fill(table, EMPTY);
+    }
+
+    private void checkRep() {
+        assert hashes.length == words.length && words.length >= size;
+        assert table.length > 2 * size;
+    }
+
+    /** Returns the number of distinct words */
+    int size() {
+        return size;
+    }
+
+    /**
+     * @param id requires 0 <= id < size()
+     * @return the word with id
+     */
+    String word(int id) {
+        assert 0 <= id && id < size;
+        return words[id];
+    }
+
+    /**
+     * Get the id of a word of ASCII characters, adding it if it is new.
+     *
+     * @param bytes holds the word, one ASCII character per byte; requires
+     *        every byte of the word to be in 0 .. 127
+     * @param length number of bytes of the word, at the start of bytes
+     * @return the id of the word
+     */
+    int idOf(byte[] bytes, int length) {
+        int hash = 0;
+        for (int i = 0; i < length; i++) {
+            assert bytes[i] >= 0;
+            hash = 31 * hash + bytes[i];
+        }
+        hash = spread(hash);
+        final int mask = table.length - 1;
+        int slot = hash & mask;
+        for (int id = table[slot]; id != EMPTY; id = table[slot]) {
+            if ( hashes[id] == hash && sameChars(words[id], bytes, length) ) {
+                return id;
+            }
+            slot = (slot + 1) & mask;
+        }
+        return add(slot, hash, new String(bytes, 0, length, StandardCharsets.US_ASCII));
+    }
+
+    /**
+     * Get the id of a word, adding it if it is new; a new word keeps the
+     * given String.
+     *
+     * @param word the word
+     * @return the id of word
+     */
+    int idOf(String word) {
+        final int hash = spread(word.hashCode());
+        final int mask = table.length - 1;
+        int slot = hash & mask;
+        for (int id = table[slot]; id != EMPTY; id = table[slot]) {
+            if ( hashes[id] == hash && words[id].equals(word) ) {
+                return id;
+            }
+            slot = (slot + 1) & mask;
+        }
+        return add(slot, hash, word);
+    }
+
+    //helper code
+    /**
+     * Mixes the high bits of a String hash code into the low ones; the
+     * byte loop of idOf(byte[], int) computes String.hashCode() of the
+     * same characters, so both lookups agree
+     */
+    private static int spread(int hash) {
+        return hash ^ (hash >>> 16);
+    }
+    private static boolean sameChars(String word, byte[] bytes, int length) {
+        if ( word.length() != length ) {
+            return false;
+        }
+        for (int i = 0; i < length; i++) {
+            if ( word.charAt(i) != bytes[i] ) {
+                return false;
+            }
+        }
+        return true;
+    }
+    private int add(int slot, int hash, String word) {
+        final int id = size;
+        if ( id == words.length ) {
+            hashes = Arrays.copyOf(hashes, id * 2);
+            words = Arrays.copyOf(words, id * 2);
+        }
+        hashes[id] = hash;
+        words[id] = word;
+        table[slot] = id;
+        size++;
+        if ( 2 * size >= table.length ) {
+            rehash();
+        }
+        checkRep();
+        return id;
+    }
+    private void rehash() {
+        table = new int[table.length * 2];
+        Arrays.fill(table, EMPTY);
+        final int mask = table.length - 1;
+        for (int id = 0; id < size; id++) {
+            int slot = hashes[id] & mask;
+            while (table[slot] != EMPTY) {
+                slot = (slot + 1) & mask;
+            }
+            table[slot] = id;
+        }
+    }
+}
@@ -0,0 +1,180 @@
+/* Copyright (c) 2015-2016 MIT 6.005 course staff, all rights reserved.
+ * Redistribution of original or derived work requires permission of course staff.
+ */
+package graph;
+
+import static org.junit.Assert.*;
+
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.HashMap;
+import java.util.HashSet;
+import java.util.Map;
+import java.util.Random;
+
+import org.junit.Test;
+
+/**
+ * Tests for CompactEdgesGraph.
+ *
+ * This class runs the GraphInstanceTest tests against CompactEdgesGraph, as
+ * well as tests for that particular implementation.
+ *
+ * Tests against the Graph spec should be in GraphInstanceTest.
+ */
+public class CompactEdgesGraphTest extends GraphInstanceTest {
+
+    /*
+     * Provide a CompactEdgesGraph for tests in GraphInstanceTest.
+     */
+    @Override public Graph<String> emptyInstance() {
+        return new CompactEdgesGraph<>();
+    }
+
+    /*
+     * Testing CompactEdgesGraph...
+     */
+
+    // Testing strategy for CompactEdgesGraph
+    //   edges: self-loop, edge in the middle of a vertex's list of edges,
+    //          more edges than the presized capacity
+    //   slots and vertex ids: reused after set(.., 0) and remove()
+    //   edge index: many colliding edges added and removed in random order,
+    //               compared against ConcreteEdgesGraph
+    //   sources()/targets(): read after the vertex is removed and re-added,
+    //                        called again, called for a vertex with a reused id
+    //   toString(): empty graph, graph with edges
+
+    @Test
+    //covers self-loop
+    public void testSelfLoop() {
+        Graph<String> graph = emptyInstance();
+        graph.set("a", "a", 2);
+        graph.set("a", "b", 1);
+
+        assertEquals("Expected self-loop in targets", (Integer)2, graph.targets("a").get("a"));
+        assertEquals("Expected self-loop in sources", (Integer)2, graph.sources("a").get("a"));
+        assertTrue("Expected vertex removed", graph.remove("a"));
+        assertEquals("Expected no edges into b", Collections.emptyMap(), graph.sources("b"));
+        assertEquals("Expected only b left", Collections.singleton("b"), graph.vertices());
+    }
+
+    @Test
+    //covers edge in the middle of a vertex's list of edges
+    public void testRemoveEdgeInMiddleOfList() {
+        Graph<String> graph = emptyInstance();
+        graph.set("a", "b", 1);
+        graph.set("a", "c", 2);
+        graph.set("a", "d", 3);
+        graph.set("x", "c", 4);
+
+        assertEquals("Expected previous weight", 2, graph.set("a", "c", 0));
+        Map<String, Integer> expected = new HashMap<>();
+        expected.put("b", 1);
+        expected.put("d", 3);
+        assertEquals("Expected other targets kept", expected, graph.targets("a"));
+        assertEquals("Expected other sources kept",
+                Collections.singletonMap("x", 4), graph.sources("c"));
+    }
+
+    @Test
+    //covers slots and vertex ids reused after set(.., 0) and remove(),
+    //       more edges than the presized capacity
+    public void testChurnReusesSlots() {
+        Graph<Integer> graph = new CompactEdgesGraph<>(2, 2);
+        final int n = 40;
+        for (int round = 0; round < 3; round++) {
+            for (int i = 0; i < n; i++) {
+                graph.set(i, (i + 1) % n, i + 1);
+                graph.set(i, (i + 7) % n, 1);
+            }
+            for (int i = 0; i < n; i += 2) {
+                graph.set(i, (i + 7) % n, 0);
+            }
+            for (int i = 0; i < n; i += 5) {
+                graph.remove(i);
+            }
+        }
+
+        assertEquals("Expected removed vertices gone", n - n / 5, graph.vertices().size());
+        for (int i = 0; i < n; i++) {
+            final boolean present = i % 5 != 0 && (i + 1) % n % 5 != 0;
+            assertEquals("Expected edge " + i + " present only if both ends are",
+                    present ? (Integer)(i + 1) : null, graph.targets(i).get((i + 1) % n));
+            final boolean skipPresent = i % 2 == 1 && i % 5 != 0 && (i + 7) % n % 5 != 0;
+            assertEquals("Expected skip edge " + i + " present only if kept",
+                    skipPresent ? (Integer)1 : null, graph.targets(i).get((i + 7) % n));
+        }
+    }
+
+    @Test
+    //covers edge index with many edges added and removed in random order
+    public void testRandomChurnMatchesConcreteEdgesGraph() {
+        final Random random = new Random(7);
+        Graph<Integer> graph = new CompactEdgesGraph<>();
+        Graph<Integer> expected = new ConcreteEdgesGraph<>();
+        final int n = 30;
+        for (int i = 0; i < 20000; i++) {
+            final int source = random.nextInt(n);
+            final int target = random.nextInt(n);
+            final int weight = random.nextInt(3);
+            assertEquals("Expected same previous weight",
+                    expected.set(source, target, weight), graph.set(source, target, weight));
+            if ( random.nextInt(500) == 0 ) {
+                final int vertex = random.nextInt(n);
+                assertEquals("Expected same remove result", expected.remove(vertex), graph.remove(vertex));
+            }
+        }
+        
+        assertEquals("Expected same vertices", expected.vertices(), graph.vertices());
+        for (int source = 0; source < n; source++) {
+            for (int target = 0; target < n; target++) {
+                assertEquals("Expected same edge " + source + " -> " + target,
+                        expected.targets(source).get(target), graph.targets(source).get(target));
+            }
+        }
+    }
+
+    @Test
+    //covers sources()/targets() read after the vertex is removed and re-added
+    public void testViewAfterRemoveAndReadd() {
+        Graph<String> graph = emptyInstance();
+        graph.set("a", "b", 1);
+        Map<String, Integer> targets = graph.targets("a");
+        graph.remove("a");
+
+        assertTrue("Expected view to be empty", targets.isEmpty());
+        graph.set("c", "d", 5);
+        graph.set("a", "c", 3);
+        assertEquals("Expected view to show the re-added vertex",
+                Collections.singletonMap("c", 3), targets);
+        assertEquals("Expected all vertices",
+                new HashSet<>(Arrays.asList("a", "b", "c", "d")), graph.vertices());
+    }
+
+    @Test
+    //covers sources()/targets() called again, called for a vertex with a reused id
+    public void testViewsCached() {
+        Graph<String> graph = emptyInstance();
+        graph.set("a", "b", 1);
+
+        assertSame("Expected the same targets view", graph.targets("a"), graph.targets("a"));
+        assertSame("Expected the same sources view", graph.sources("b"), graph.sources("b"));
+        graph.remove("a");
+        graph.set("x", "b", 2);
+        assertEquals("Expected view of the vertex that reuses the id",
+                Collections.singletonMap("b", 2), graph.targets("x"));
+        assertEquals("Expected sources view to follow the edges",
+                Collections.singletonMap("x", 2), graph.sources("b"));
+    }
+
+    @Test
+    //covers toString() empty graph, graph with edges
+    public void testToString() {
+        Graph<String> graph = emptyInstance();
+
+        assertEquals("Expected empty graph rep", "Empty Graph", graph.toString());
+        graph.set("a", "b", 3);
+        assertEquals("Expected one line per edge", "a -> b: 3", graph.toString());
+    }
+}
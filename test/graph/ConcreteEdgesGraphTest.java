@@ -5,6 +5,9 @@ package graph;
 
 import static org.junit.Assert.*;
 
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.Map;
 import java.util.regex.Matcher;
 import java.util.regex.Pattern;
 
@@ -62,6 +65,113 @@ public class ConcreteEdgesGraphTest extends GraphInstanceTest {
                 graph.toString().matches(regex));
     }
     
+    // Testing strategy for ConcreteEdgesGraph edge index
+    //   removed edge: first, middle, last edge added
+    //   observe remaining edges with sources(), targets()
+    @Test
+    //covers removed edge is a middle edge
+    public void testSetRemoveMiddleEdgeKeepsOtherEdges(){
+        Graph<String> graph = emptyInstance();
+        
+        graph.set("a", "b", 1);
+        graph.set("b", "c", 2);
+        graph.set("c", "a", 3);
+        final int previousWeight = graph.set("b", "c", 0);
+        
+        assertEquals("Expected previous weight", 2, previousWeight);
+        assertEquals("Expected edge removed", Collections.emptyMap(), graph.targets("b"));
+        assertEquals("Expected other edges unchanged", (Integer)1, graph.targets("a").get("b"));
+        assertEquals("Expected other edges unchanged", (Integer)3, graph.sources("a").get("c"));
+        assertEquals("Expected moved edge to be updatable", 3, graph.set("c", "a", 4));
+        assertEquals("Expected moved edge updated", (Integer)4, graph.targets("c").get("a"));
+    }
+    @Test
+    //covers removed edge is the first and last edge added
+    public void testSetRemoveFirstAndLastEdges(){
+        Graph<String> graph = emptyInstance();
+        
+        graph.set("a", "b", 1);
+        graph.set("b", "c", 2);
+        graph.set("c", "a", 3);
+        graph.set("c", "a", 0);
+        graph.set("a", "b", 0);
+        
+        assertEquals("Expected one edge left", "b -> c: 2", graph.toString());
+        assertEquals("Expected remaining edge", (Integer)2, graph.sources("c").get("b"));
+    }
+    
+    // Testing strategy for ConcreteEdgesGraph.sources(), targets() views
+    //   graph mutated after the view is returned: set(), remove()
+    //   repeat calls for the same label
+    @Test
+    //covers graph mutated after the view is returned,
+    //       repeat calls for the same label
+    public void testTargetsIsLiveView(){
+        Graph<String> graph = emptyInstance();
+        graph.set("a", "b", 1);
+        Map<String, Integer> targets = graph.targets("a");
+        
+        graph.set("a", "c", 2);
+        graph.set("a", "b", 3);
+        graph.remove("c");
+        
+        assertSame("Expected the same view on repeat calls", targets, graph.targets("a"));
+        assertEquals("Expected view to reflect later edges", 1, targets.size());
+        assertEquals("Expected view to reflect new weight", (Integer)3, targets.get("b"));
+        assertEquals("Expected sources view to agree", (Integer)3, graph.sources("b").get("a"));
+    }
+    
+    // Testing strategy for ConcreteEdgesGraph.remove(), removeAll()
+    //   removed vertex: has an edge to itself, edges in the middle of edges
+    //   removeAll(): removed vertices touch few edges, most edges
+    @Test
+    //covers removed vertex has an edge to itself and edges in the middle
+    public void testRemoveVertexWithEdgeToItself(){
+        Graph<String> graph = emptyInstance();
+        graph.set("a", "b", 1);
+        graph.set("b", "b", 2);
+        graph.set("c", "b", 3);
+        graph.set("c", "a", 4);
+        graph.set("a", "c", 5);
+        
+        final boolean removed = graph.remove("b");
+        
+        assertTrue("Expected vertex removed", removed);
+        assertEquals("Expected remaining edges", (Integer)4, graph.targets("c").get("a"));
+        assertEquals("Expected remaining edges", (Integer)5, graph.sources("c").get("a"));
+        assertEquals("Expected two edges left", 2, graph.toString().split("\n").length);
+    }
+    @Test
+    //covers removeAll() removed vertices touch few edges
+    public void testRemoveAllFewEdges(){
+        Graph<String> graph = emptyInstance();
+        for (int i = 0; i < 10; i++) {
+            graph.set("v" + i, "v" + (i + 1), i + 1);
+        }
+        
+        graph.removeAll(Arrays.asList("v0", "v10"));
+        
+        assertEquals("Expected vertices left", 9, graph.vertices().size());
+        assertEquals("Expected inner edges kept", (Integer)5, graph.targets("v4").get("v5"));
+        assertEquals("Expected edge from removed vertex gone", Collections.emptyMap(), graph.sources("v1"));
+        assertEquals("Expected edges left", 8, graph.toString().split("\n").length);
+    }
+    @Test
+    //covers removeAll() removed vertices touch most edges
+    public void testRemoveAllMostEdges(){
+        Graph<String> graph = emptyInstance();
+        for (int i = 0; i < 10; i++) {
+            graph.set("hub", "v" + i, i + 1);
+        }
+        graph.set("v1", "v2", 7);
+        
+        graph.removeAll(Arrays.asList("hub", "v9"));
+        
+        assertEquals("Expected vertices left", 9, graph.vertices().size());
+        assertEquals("Expected only one edge left", "v1 -> v2: 7", graph.toString());
+        assertEquals("Expected edge index rebuilt", 7, graph.set("v1", "v2", 8));
+    }
+    
     // TODO tests for ConcreteEdgesGraph.toString()
     // TODO: include tests for postcondition, ie, structure of the string
    
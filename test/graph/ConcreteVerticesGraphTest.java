@@ -8,6 +8,7 @@ import static org.junit.Assert.*;
 import java.util.Arrays;
 import java.util.Collections;
 import java.util.Map;
+import java.util.Set;
 
 import org.junit.Test;
 
@@ -37,6 +38,26 @@ public class ConcreteVerticesGraphTest extends GraphInstanceTest {
     
     // TODO tests for ConcreteVerticesGraph.toString()
     
+    // Testing strategy for ConcreteVerticesGraph.vertices()
+    //   graph mutated after vertices() is called: add, remove
+    @Test
+    //covers graph mutated after vertices() is called
+    public void testVerticesReflectsLaterMutations(){
+        Graph<String> graph = emptyInstance();
+        Set<String> vertices = graph.vertices();
+        
+        graph.set("vertex1", "vertex2", 1);
+        graph.add("vertex3");
+        final int sizeAfterAdd = vertices.size();
+        graph.remove("vertex2");
+        
+        assertEquals("Expected view to include added vertices", 3, sizeAfterAdd);
+        assertFalse("Expected view to exclude removed vertex", vertices.contains("vertex2"));
+        assertSame("Expected the same view on repeat calls", vertices, graph.vertices());
+        assertEquals("Expected edge to removed vertex gone",
+                Collections.emptyMap(), graph.targets("vertex1"));
+    }
+    
     /*
      * Testing Vertex...
      */
@@ -0,0 +1,109 @@
+/* Copyright (c) 2015-2016 MIT 6.005 course staff, all rights reserved.
+ * Redistribution of original or derived work requires permission of course staff.
+ */
+package graph;
+
+import static org.junit.Assert.*;
+
+import java.util.ArrayList;
+import java.util.List;
+
+import org.junit.Test;
+
+/**
+ * Tests for ConcurrentGraph.
+ * 
+ * This class runs the GraphInstanceTest tests against ConcurrentGraph, as
+ * well as tests for that particular implementation.
+ * 
+ * Tests against the Graph spec should be in GraphInstanceTest.
+ */
+public class ConcurrentGraphTest extends GraphInstanceTest {
+    
+    /*
+     * Provide a ConcurrentGraph for tests in GraphInstanceTest.
+     */
+    @Override public Graph<String> emptyInstance() {
+        return new ConcurrentGraph<>();
+    }
+    
+    /*
+     * Testing ConcurrentGraph...
+     */
+    
+    // Testing strategy for concurrent use
+    //   writers: increment() the same edges from many threads,
+    //            remove() vertices while other threads increment()
+    //   observe with targets(), sources() after all threads finish
+    
+    //helper method
+    /** Runs every task on its own thread and waits for all of them */
+    private static void runInParallel(List<Runnable> tasks) throws InterruptedException {
+        List<Thread> threads = new ArrayList<>();
+        for (Runnable task : tasks) {
+            Thread thread = new Thread(task);
+            threads.add(thread);
+            thread.start();
+        }
+        for (Thread thread : threads) {
+            thread.join();
+        }
+    }
+    
+    @Test
+    //covers increment() the same edges from many threads
+    public void testConcurrentIncrementsAreNotLost() throws InterruptedException {
+        Graph<String> graph = emptyInstance();
+        final int threads = 8;
+        final int increments = 2000;
+        List<Runnable> tasks = new ArrayList<>();
+        for (int t = 0; t < threads; t++) {
+            tasks.add(() -> {
+                for (int i = 0; i < increments; i++) {
+                    graph.increment("a", "b", 1);
+                    graph.increment("b", "word" + (i % 10), 1);
+                }
+            });
+        }
+        runInParallel(tasks);
+        
+        assertEquals("Expected every increment counted",
+                (Integer)(threads * increments), graph.targets("a").get("b"));
+        assertEquals("Expected both directions to agree",
+                graph.targets("a").get("b"), graph.sources("b").get("a"));
+        for (int w = 0; w < 10; w++) {
+            assertEquals("Expected every increment counted",
+                    (Integer)(threads * increments / 10), graph.targets("b").get("word" + w));
+        }
+    }
+    
+    @Test
+    //covers remove() vertices while other threads increment()
+    public void testConcurrentRemoveLeavesNoDanglingEdges() throws InterruptedException {
+        Graph<String> graph = emptyInstance();
+        final int rounds = 500;
+        List<Runnable> tasks = new ArrayList<>();
+        for (int t = 0; t < 4; t++) {
+            tasks.add(() -> {
+                for (int i = 0; i < rounds; i++) {
+                    graph.increment("hub", "leaf" + (i % 20), 1);
+                    graph.increment("leaf" + (i % 20), "hub", 1);
+                }
+            });
+        }
+        tasks.add(() -> {
+            for (int i = 0; i < rounds; i++) {
+                graph.remove("hub");
+            }
+        });
+        runInParallel(tasks);
+        
+        for (String vertex : graph.vertices()) {
+            for (String target : graph.targets(vertex).keySet()) {
+                assertTrue("Expected edge to an existing vertex", graph.vertices().contains(target));
+                assertEquals("Expected both directions to agree",
+                        graph.targets(vertex).get(target), graph.sources(target).get(vertex));
+            }
+        }
+    }
+}
@@ -0,0 +1,151 @@
+/* Copyright (c) 2015-2016 MIT 6.005 course staff, all rights reserved.
+ * Redistribution of original or derived work requires permission of course staff.
+ */
+package graph;
+
+import static org.junit.Assert.*;
+
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.HashSet;
+
+import org.junit.Test;
+
+/**
+ * Tests for GraphBuilder.
+ */
+public class GraphBuilderTest {
+    
+    // Testing strategy for GraphBuilder
+    //   build() after: nothing added, vertices only, distinct edges,
+    //                  the same edge added more than once,
+    //                  more edges than the expected size
+    //   builder used again after build()
+    //   addAll(builder): vertices and edges only in one builder, edge in both
+    //   intern(), addEdgeById(): new vertex, known vertex, edge added by id
+    //                            and by label
+    //   build(options) with engine: IMMUTABLE_CSR, a mutable engine
+    //   observe with vertices(), sources(), targets()
+    
+    @Test(expected=AssertionError.class)
+    public void testAssertionsEnabled() {
+        assert false; // make sure assertions are enabled with VM argument: -ea
+    }
+    
+    @Test
+    //covers nothing added
+    public void testBuildEmpty() {
+        Graph<String> graph = new GraphBuilder<String>().build();
+        
+        assertEquals("Expected no vertices", Collections.emptySet(), graph.vertices());
+    }
+    
+    @Test
+    //covers vertices only
+    public void testBuildVerticesOnly() {
+        Graph<String> graph = new GraphBuilder<String>()
+                .addVertex("a")
+                .addVertex("b")
+                .addVertex("a")
+                .build();
+        
+        assertEquals("Expected distinct vertices",
+                new HashSet<>(Arrays.asList("a", "b")), graph.vertices());
+        assertEquals("Expected no edges", Collections.emptyMap(), graph.targets("a"));
+    }
+    
+    @Test
+    //covers distinct edges,
+    //       the same edge added more than once
+    public void testBuildSumsDuplicateEdges() {
+        Graph<String> graph = new GraphBuilder<String>()
+                .addEdge("a", "b", 1)
+                .addEdge("b", "a", 2)
+                .addEdge("a", "b", 3)
+                .addEdge("a", "a", 1)
+                .build();
+        
+        assertEquals("Expected vertices from edges", 2, graph.vertices().size());
+        assertEquals("Expected summed weight", (Integer)4, graph.targets("a").get("b"));
+        assertEquals("Expected summed weight", (Integer)4, graph.sources("b").get("a"));
+        assertEquals("Expected other edges", (Integer)2, graph.targets("b").get("a"));
+        assertEquals("Expected edge to itself", (Integer)1, graph.targets("a").get("a"));
+    }
+    
+    @Test
+    //covers more edges than the expected size
+    public void testBuildGrowsPastExpectedSize() {
+        GraphBuilder<Integer> builder = new GraphBuilder<>(0, 0);
+        final int n = 1000;
+        for (int i = 0; i < n; i++) {
+            builder.addEdge(i, (i + 1) % n, i + 1);
+        }
+        Graph<Integer> graph = builder.build();
+        
+        assertEquals("Expected all vertices", n, graph.vertices().size());
+        for (int i = 0; i < n; i++) {
+            assertEquals("Expected edge weight", (Integer)(i + 1), graph.targets(i).get((i + 1) % n));
+        }
+    }
+    
+    @Test
+    //covers builder used again after build()
+    public void testBuildIndependentOfLaterAdditions() {
+        GraphBuilder<String> builder = new GraphBuilder<String>().addEdge("a", "b", 1);
+        Graph<String> first = builder.build();
+        builder.addEdge("a", "b", 1).addVertex("c");
+        Graph<String> second = builder.build();
+        
+        assertEquals("Expected first graph unchanged", (Integer)1, first.targets("a").get("b"));
+        assertFalse("Expected first graph unchanged", first.vertices().contains("c"));
+        assertEquals("Expected second graph to include additions", (Integer)2, second.targets("a").get("b"));
+        assertTrue("Expected second graph to include additions", second.vertices().contains("c"));
+    }
+    
+    @Test
+    //covers build(options) with engine IMMUTABLE_CSR, a mutable engine
+    public void testBuildOptions() {
+        GraphBuilder<String> builder = new GraphBuilder<String>()
+                .addEdge("a", "b", 1).addEdge("a", "b", 2).addVertex("c");
+        Graph<String> frozen = builder.build(GraphOptions.defaults().withEngine(GraphOptions.Engine.IMMUTABLE_CSR));
+        Graph<String> mutable = builder.build(GraphOptions.defaults().withEngine(GraphOptions.Engine.VERTICES));
+        
+        assertTrue("Expected an immutable graph", frozen instanceof ImmutableCsrGraph);
+        assertEquals("Expected all vertices", frozen.vertices(), mutable.vertices());
+        assertEquals("Expected summed weight", (Integer)3, mutable.targets("a").get("b"));
+        mutable.set("c", "a", 1);
+        assertEquals("Expected a mutable graph", (Integer)1, mutable.sources("a").get("c"));
+    }
+    
+    @Test
+    //covers addAll(builder) vertices and edges only in one builder, edge in both
+    public void testAddAllBuilder() {
+        GraphBuilder<String> builder = new GraphBuilder<String>().addEdge("a", "b", 1).addVertex("c");
+        GraphBuilder<String> other = new GraphBuilder<String>().addEdge("a", "b", 2).addEdge("b", "d", 4);
+        Graph<String> graph = builder.addAll(other).build();
+        
+        assertEquals("Expected vertices of both builders",
+                new HashSet<>(Arrays.asList("a", "b", "c", "d")), graph.vertices());
+        assertEquals("Expected summed weight of shared edge", (Integer)3, graph.targets("a").get("b"));
+        assertEquals("Expected edge of other builder", (Integer)4, graph.targets("b").get("d"));
+        assertEquals("Expected other builder unchanged",
+                Collections.singletonMap("a", 2), other.build().sources("b"));
+    }
+    
+    @Test
+    //covers intern() new vertex and known vertex, edge added by id and by label
+    public void testAddEdgeById() {
+        GraphBuilder<String> builder = new GraphBuilder<>();
+        final int a = builder.intern("a");
+        final int b = builder.intern("b");
+        
+        assertEquals("Expected ids in order of first addition", 0, a);
+        assertEquals("Expected ids in order of first addition", 1, b);
+        assertEquals("Expected known vertex to keep its id", a, builder.intern("a"));
+        assertEquals("Expected one id per vertex", 2, builder.vertexCount());
+        builder.addEdgeById(a, b, 2).addEdge("a", "b", 3).addEdgeById(b, b, 1);
+        Graph<String> graph = builder.build();
+        assertEquals("Expected summed weight", (Integer)5, graph.targets("a").get("b"));
+        assertEquals("Expected self-loop by id", (Integer)1, graph.targets("b").get("b"));
+    }
+}
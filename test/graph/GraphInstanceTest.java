@@ -7,6 +7,8 @@ import static org.junit.Assert.*;
 
 import java.util.Arrays;
 import java.util.Collections;
+import java.util.HashMap;
+import java.util.HashSet;
 import java.util.Map;
 import java.util.Set;
 
@@ -45,6 +47,11 @@ public abstract class GraphInstanceTest {
     //              else graph unmodified
     //      observe with vertices(), sources(), targets()
     //   
+    //   Partition for graph.removeAll(labels) -> removedAny
+    //      labels: empty, none in graph, some in graph, all in graph
+    //      removed vertices: have edges to each other, to kept vertices
+    //      observe with vertices(), sources(), targets()
+    //   
     //   Partition for graph.set(source,target,weight) -> previousWeight
     //      graph: empty, contains multiple vertices    
     //      source: exists in graph, doesn't exist in graph
@@ -52,6 +59,7 @@ public abstract class GraphInstanceTest {
     //      No edge exists from source to target,
     //      An edge exists from source to target,
     //      weight: 0, > 0
+    //      source and target: different, the same vertex (self-loop)
     //      observe with sources(), targets(), vertices()
     //    
     //   Partition for graph.vertices() -> allVertices
@@ -69,6 +77,33 @@ public abstract class GraphInstanceTest {
     //             has no targets, has multiple targets
     //      sourceTargets contains all target vertices from source
     //
+    //   Partition for graph.forEachEdge(visitor) -> completed
+    //      graph: empty, contains multiple edges
+    //      visitor: visits all edges, stops early
+    //
+    //   Partition for graph.sourcesCopy(target), graph.targetsCopy(source)
+    //      label: doesn't exist in graph, has multiple edges
+    //      graph mutated after the copy is made, copy mutated
+    //
+    //   Partition for graph.increment(source, target, delta) -> previousWeight
+    //      No edge exists from source to target, an edge exists
+    //      source, target: exist in graph, don't exist in graph
+    //      previousWeight + delta: 0, > 0
+    //      delta: 0, != 0
+    //      observe with sources(), targets(), vertices()
+    //
+    //   Partition for graph.forEachSource(target, action),
+    //                 graph.forEachTarget(source, action)
+    //      label: doesn't exist in graph, has no edges, has multiple edges
+    //      observe the labels and weights passed to action
+    //
+    //   Partition for graph.commonNeighbors(from, to),
+    //                 graph.forEachCommonNeighbor(from, to, action)
+    //      from, to: don't exist in graph, exist in graph
+    //      common neighbours: none, one, many
+    //      targets(from) smaller than sources(to), larger than sources(to)
+    //      observe the labels and path weights passed to action
+    //
     
     /**
      * Overridden by implementation-specific test classes.
@@ -426,6 +461,25 @@ public abstract class GraphInstanceTest {
         assertEquals("Expected no new edge in graph", Collections.emptyMap(), sources);
     }
     
+    @Test
+    //covers source and target the same vertex, weight > 0, weight = 0
+    public void testSetSelfLoop(){
+        Graph<String> graph = emptyInstance();
+        graph.set("vertex", "other", 1);
+
+        assertEquals("Expected no previous weight", 0, graph.set("vertex", "vertex", 2));
+        assertEquals("Expected previous weight", 2, graph.increment("vertex", "vertex", 3));
+        assertEquals("Expected self-loop as a target", (Integer)5, graph.targets("vertex").get("vertex"));
+        assertEquals("Expected self-loop as a source", (Integer)5, graph.sources("vertex").get("vertex"));
+        assertEquals("Expected previous weight", 5, graph.set("vertex", "vertex", 0));
+        assertEquals("Expected self-loop removed", Collections.singletonMap("other", 1), graph.targets("vertex"));
+
+        graph.set("vertex", "vertex", 4);
+        assertTrue("Expected vertex removed", graph.remove("vertex"));
+        assertEquals("Expected only the other vertex", Collections.singleton("other"), graph.vertices());
+        assertEquals("Expected no edges left", Collections.emptyMap(), graph.sources("other"));
+    }
+    
     @Test
     //covers enpty graph
     public void testVerticesEmptyGraph() {
@@ -577,4 +631,290 @@ public abstract class GraphInstanceTest {
         assertTrue("Expected targets to containe vertex1, vertex2", 
                 Arrays.asList(vertex1,vertex2).containsAll(targets.keySet()));
     }
+    
+    @Test
+    //covers label doesn't exist in graph,
+    //       label has no edges
+    public void testForEachNeighbourNoEdges(){
+        Graph<String> graph = emptyInstance();
+        graph.add("vertex1");
+        Map<String, Integer> visited = new HashMap<>();
+        
+        graph.forEachTarget("vertex1", visited::put);
+        graph.forEachSource("vertex1", visited::put);
+        graph.forEachTarget("vertex2", visited::put);
+        graph.forEachSource("vertex2", visited::put);
+        
+        assertEquals("Expected no neighbours visited", Collections.emptyMap(), visited);
+    }
+    
+    @Test
+    //covers label has multiple edges
+    public void testForEachNeighbourMultipleEdges(){
+        Graph<String> graph = emptyInstance();
+        graph.set("vertex", "vertex1", 1);
+        graph.set("vertex", "vertex2", 2);
+        graph.set("vertex3", "vertex", 3);
+        Map<String, Integer> visitedTargets = new HashMap<>();
+        Map<String, Integer> visitedSources = new HashMap<>();
+        
+        graph.forEachTarget("vertex", visitedTargets::put);
+        graph.forEachSource("vertex", visitedSources::put);
+        
+        assertEquals("Expected all targets and weights visited",
+                graph.targets("vertex"), visitedTargets);
+        assertEquals("Expected all sources and weights visited",
+                graph.sources("vertex"), visitedSources);
+    }
+    
+    @Test
+    //covers no edge exists from source to target,
+    //       source and target don't exist in graph,
+    //       previousWeight + delta > 0
+    public void testIncrementNewEdge(){
+        Graph<String> graph = emptyInstance();
+        
+        final int previousWeight = graph.increment("vertex1", "vertex2", 2);
+        
+        assertEquals("Expected no previous weight", 0, previousWeight);
+        assertEquals("Expected vertices added", 2, graph.vertices().size());
+        assertEquals("Expected edge added with delta", (Integer)2, graph.targets("vertex1").get("vertex2"));
+        assertEquals("Expected edge added with delta", (Integer)2, graph.sources("vertex2").get("vertex1"));
+    }
+    
+    @Test
+    //covers an edge exists from source to target,
+    //       source and target exist in graph,
+    //       previousWeight + delta > 0
+    public void testIncrementExistingEdge(){
+        Graph<String> graph = emptyInstance();
+        graph.set("vertex1", "vertex2", 3);
+        
+        final int previousWeight = graph.increment("vertex1", "vertex2", 1);
+        
+        assertEquals("Expected previous weight", 3, previousWeight);
+        assertEquals("Expected weight increased", (Integer)4, graph.targets("vertex1").get("vertex2"));
+        assertEquals("Expected weight increased", (Integer)4, graph.sources("vertex2").get("vertex1"));
+    }
+    
+    @Test
+    //covers an edge exists from source to target,
+    //       previousWeight + delta = 0
+    public void testIncrementToZeroRemovesEdge(){
+        Graph<String> graph = emptyInstance();
+        graph.set("vertex1", "vertex2", 3);
+        
+        final int previousWeight = graph.increment("vertex1", "vertex2", -3);
+        
+        assertEquals("Expected previous weight", 3, previousWeight);
+        assertEquals("Expected edge removed", Collections.emptyMap(), graph.targets("vertex1"));
+        assertEquals("Expected edge removed", Collections.emptyMap(), graph.sources("vertex2"));
+        assertEquals("Expected vertices kept", 2, graph.vertices().size());
+    }
+    
+    @Test
+    //covers no edge exists from source to target,
+    //       source and target don't exist in graph, delta = 0
+    public void testIncrementZeroDeltaAddsNoVertex(){
+        Graph<String> graph = emptyInstance();
+
+        final int previousWeight = graph.increment("vertex1", "vertex2", 0);
+
+        assertEquals("Expected no previous weight", 0, previousWeight);
+        assertEquals("Expected no vertices added", Collections.emptySet(), graph.vertices());
+        assertEquals("Expected no vertices added by set(.., 0)", 0, graph.set("vertex1", "vertex2", 0));
+        assertEquals("Expected no vertices added by set(.., 0)", Collections.emptySet(), graph.vertices());
+    }
+
+    @Test
+    //covers an edge exists from source to target, delta = 0
+    public void testIncrementZeroDeltaKeepsEdge(){
+        Graph<String> graph = emptyInstance();
+        graph.set("vertex1", "vertex2", 3);
+
+        final int previousWeight = graph.increment("vertex1", "vertex2", 0);
+
+        assertEquals("Expected previous weight", 3, previousWeight);
+        assertEquals("Expected weight unchanged", (Integer)3, graph.targets("vertex1").get("vertex2"));
+        assertEquals("Expected no vertices added", 2, graph.vertices().size());
+    }
+
+    @Test
+    //covers label doesn't exist in graph
+    public void testCopiesNoEdges(){
+        Graph<String> graph = emptyInstance();
+        
+        assertEquals("Expected empty copy", Collections.emptyMap(), graph.sourcesCopy("vertex"));
+        assertEquals("Expected empty copy", Collections.emptyMap(), graph.targetsCopy("vertex"));
+    }
+    
+    @Test
+    //covers label has multiple edges,
+    //       graph mutated after the copy is made, copy mutated
+    public void testCopiesDetachedFromGraph(){
+        Graph<String> graph = emptyInstance();
+        graph.set("vertex", "vertex1", 1);
+        graph.set("vertex", "vertex2", 2);
+        graph.set("vertex3", "vertex", 3);
+        
+        Map<String, Integer> targets = graph.targetsCopy("vertex");
+        Map<String, Integer> sources = graph.sourcesCopy("vertex");
+        final Map<String, Integer> expectedTargets = new HashMap<>(targets);
+        graph.set("vertex", "vertex1", 0);
+        graph.remove("vertex3");
+        targets.put("vertex4", 4);
+        
+        assertEquals("Expected copy of targets unaffected by graph", 3, targets.size());
+        assertEquals("Expected copy of sources unaffected by graph", (Integer)3, sources.get("vertex3"));
+        assertEquals("Expected graph unaffected by copy", 1, graph.targets("vertex").size());
+        assertEquals("Expected copy equal to targets when made", 2, expectedTargets.size());
+    }
+    
+    @Test
+    //covers empty graph
+    public void testForEachEdgeEmptyGraph(){
+        Graph<String> graph = emptyInstance();
+        graph.add("vertex");
+        
+        final boolean completed = graph.forEachEdge((source, target, weight) -> {
+            fail("Expected no edges visited");
+            return true;
+        });
+        
+        assertTrue("Expected traversal completed", completed);
+    }
+    
+    @Test
+    //covers graph contains multiple edges,
+    //       visitor visits all edges
+    public void testForEachEdgeVisitsAllEdges(){
+        Graph<String> graph = emptyInstance();
+        graph.set("vertex1", "vertex2", 1);
+        graph.set("vertex2", "vertex3", 2);
+        graph.set("vertex3", "vertex1", 3);
+        graph.add("vertex4");
+        Map<String, Integer> visited = new HashMap<>();
+        
+        final boolean completed = graph.forEachEdge((source, target, weight) -> {
+            visited.put(source + "->" + target, weight);
+            return true;
+        });
+        
+        assertTrue("Expected traversal completed", completed);
+        assertEquals("Expected every edge visited once", 3, visited.size());
+        assertEquals("Expected correct weight", (Integer)2, visited.get("vertex2->vertex3"));
+    }
+    
+    @Test
+    //covers graph contains multiple edges,
+    //       visitor stops early
+    public void testForEachEdgeStopsEarly(){
+        Graph<String> graph = emptyInstance();
+        graph.set("vertex1", "vertex2", 1);
+        graph.set("vertex2", "vertex3", 2);
+        graph.set("vertex3", "vertex1", 3);
+        final int[] visits = { 0 };
+        
+        final boolean completed = graph.forEachEdge((source, target, weight) -> {
+            visits[0]++;
+            return false;
+        });
+        
+        assertFalse("Expected traversal stopped", completed);
+        assertEquals("Expected one edge visited", 1, visits[0]);
+    }
+    
+    @Test
+    //covers labels empty, none in graph
+    public void testRemoveAllNoneInGraph(){
+        Graph<String> graph = emptyInstance();
+        graph.set("vertex1", "vertex2", 1);
+        
+        final boolean removedEmpty = graph.removeAll(Collections.emptyList());
+        final boolean removedAbsent = graph.removeAll(Arrays.asList("vertex3", "vertex4"));
+        
+        assertFalse("Expected nothing removed", removedEmpty);
+        assertFalse("Expected nothing removed", removedAbsent);
+        assertEquals("Expected same vertices", 2, graph.vertices().size());
+        assertEquals("Expected edge kept", (Integer)1, graph.targets("vertex1").get("vertex2"));
+    }
+    
+    @Test
+    //covers labels some in graph,
+    //       removed vertices have edges to each other and to kept vertices
+    public void testRemoveAllSomeInGraph(){
+        Graph<String> graph = emptyInstance();
+        graph.set("vertex1", "vertex2", 1);
+        graph.set("vertex2", "vertex3", 2);
+        graph.set("vertex3", "vertex4", 3);
+        graph.set("vertex4", "vertex1", 4);
+        graph.set("vertex1", "vertex3", 5);
+        graph.set("vertex4", "vertex2", 6);
+        
+        final boolean removed = graph.removeAll(Arrays.asList("vertex2", "vertex4", "vertex5"));
+        
+        assertTrue("Expected vertices removed", removed);
+        assertEquals("Expected kept vertices",
+                new HashSet<>(Arrays.asList("vertex1", "vertex3")), graph.vertices());
+        assertEquals("Expected only edge between kept vertices",
+                Collections.singletonMap("vertex3", 5), graph.targets("vertex1"));
+        assertEquals("Expected only edge between kept vertices",
+                Collections.singletonMap("vertex1", 5), graph.sources("vertex3"));
+        assertEquals("Expected no edges to removed vertices", Collections.emptyMap(), graph.targets("vertex3"));
+        assertEquals("Expected no edges from removed vertices", Collections.emptyMap(), graph.sources("vertex1"));
+    }
+    
+    @Test
+    //covers labels all in graph
+    public void testRemoveAllEveryVertex(){
+        Graph<String> graph = emptyInstance();
+        graph.set("vertex1", "vertex2", 1);
+        graph.set("vertex2", "vertex1", 2);
+        graph.add("vertex3");
+        
+        final boolean removed = graph.removeAll(Arrays.asList("vertex1", "vertex2", "vertex3"));
+        
+        assertTrue("Expected vertices removed", removed);
+        assertEquals("Expected no vertices", Collections.emptySet(), graph.vertices());
+        assertEquals("Expected no edges", Collections.emptyMap(), graph.targets("vertex1"));
+    }
+    
+    @Test
+    //covers from, to don't exist in graph, common neighbours none
+    public void testCommonNeighborsNone(){
+        Graph<String> graph = emptyInstance();
+        graph.set("vertex1", "vertex2", 1);
+        graph.set("vertex3", "vertex4", 1);
+        
+        assertEquals("Expected no common neighbours",
+                Collections.emptySet(), graph.commonNeighbors("vertex1", "vertex4"));
+        assertEquals("Expected no common neighbours of missing vertices",
+                Collections.emptySet(), graph.commonNeighbors("vertex5", "vertex6"));
+    }
+    
+    @Test
+    //covers common neighbours one, many,
+    //       targets(from) smaller than sources(to), larger than sources(to)
+    public void testForEachCommonNeighbor(){
+        Graph<String> graph = emptyInstance();
+        graph.set("from", "b1", 1);
+        graph.set("from", "b2", 2);
+        graph.set("b1", "to", 10);
+        graph.set("b2", "to", 20);
+        graph.set("b3", "to", 30);
+        graph.set("b4", "to", 40);
+        graph.set("from", "other", 5);
+        graph.set("other", "b1", 7);
+        Map<String, Integer> paths = new HashMap<>();
+        
+        graph.forEachCommonNeighbor("from", "to", (bridge, weight) -> paths.put(bridge, weight));
+        Map<String, Integer> expected = new HashMap<>();
+        expected.put("b1", 11);
+        expected.put("b2", 22);
+        assertEquals("Expected both bridges with summed weights", expected, paths);
+        assertEquals("Expected one common neighbour through the other side",
+                Collections.singleton("b1"), graph.commonNeighbors("other", "to"));
+        assertEquals("Expected common neighbours",
+                new HashSet<>(Arrays.asList("b1", "b2")), graph.commonNeighbors("from", "to"));
+    }
 }
@@ -0,0 +1,190 @@
+/* Copyright (c) 2015-2016 MIT 6.005 course staff, all rights reserved.
+ * Redistribution of original or derived work requires permission of course staff.
+ */
+package graph;
+
+import static org.junit.Assert.*;
+
+import java.io.ByteArrayOutputStream;
+import java.io.DataOutputStream;
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.HashMap;
+import java.util.Map;
+import java.util.Set;
+import java.util.zip.CRC32;
+
+import org.junit.Test;
+
+/**
+ * Tests for GraphSnapshot.
+ */
+public class GraphSnapshotTest {
+
+    // Testing strategy for GraphSnapshot
+    //   graph: empty, vertices without edges, self-loop, weights and ids that
+    //          take several varint bytes, non-ASCII labels
+    //   labels: String, other type with labelText/labelOf
+    //   source: file, buffer with a snapshot followed by other data
+    //   damage: flipped byte, truncated, not a snapshot, repeated label with
+    //           a correct checksum
+    //   writeVarInt/readVarInt: 0, one byte, five bytes, Integer.MAX_VALUE
+    //   observe with vertices(), sources(), targets() of the loaded graph
+
+    @Test(expected=AssertionError.class)
+    public void testAssertionsEnabled() {
+        assert false; // make sure assertions are enabled with VM argument: -ea
+    }
+
+    //helper code
+    private static <L> void assertSameGraph(Graph<L> expected, Graph<L> actual) {
+        assertEquals("Expected same vertices", expected.vertices(), actual.vertices());
+        for (L vertex : expected.vertices()) {
+            assertEquals("Expected same targets of " + vertex, expected.targets(vertex), actual.targets(vertex));
+        }
+    }
+    private static Graph<String> sampleGraph() {
+        Graph<String> graph = Graph.empty();
+        graph.add("alone");
+        graph.set("a", "a", 1);
+        graph.set("a", "b", 300);
+        graph.set("b", "caf\u00e9", Integer.MAX_VALUE);
+        for (int i = 0; i < 200; i++) {
+            graph.set("hub", "v" + i, i + 1);
+        }
+        return graph;
+    }
+
+    @Test
+    //covers empty graph, source file
+    public void testEmptyGraph() throws IOException {
+        final Path file = Files.createTempFile("graph", ".bin");
+        try {
+            GraphSnapshot.write(Graph.<String>empty(), file);
+
+            assertEquals("Expected no vertices", Collections.emptySet(), GraphSnapshot.read(file).vertices());
+        } finally {
+            Files.delete(file);
+        }
+    }
+
+    @Test
+    //covers vertices without edges, self-loop, multi-byte weights and ids,
+    //       non-ASCII labels, String labels, source file
+    public void testRoundTrip() throws IOException {
+        final Graph<String> graph = sampleGraph();
+        final Path file = Files.createTempFile("graph", ".bin");
+        try {
+            GraphSnapshot.write(graph, file);
+            Graph<String> loaded = GraphSnapshot.read(file);
+
+            assertSameGraph(graph, loaded);
+            assertTrue("Expected an immutable graph", loaded instanceof ImmutableCsrGraph);
+        } finally {
+            Files.delete(file);
+        }
+    }
+
+    @Test
+    //covers other label type, buffer with a snapshot followed by other data
+    public void testIntegerLabelsInBuffer() throws IOException {
+        Graph<Integer> graph = Graph.empty();
+        graph.set(1, 2, 3);
+        graph.set(2, 1, 4);
+        graph.add(7);
+        final ByteArrayOutputStream out = new ByteArrayOutputStream();
+        GraphSnapshot.write(graph, new ArrayList<>(Arrays.asList(7, 2, 1)), String::valueOf, out);
+        out.write(42);
+        final ByteBuffer in = ByteBuffer.wrap(out.toByteArray());
+        Graph<Integer> loaded = GraphSnapshot.read(in, Integer::valueOf);
+
+        assertSameGraph(graph, loaded);
+        assertEquals("Expected position after the snapshot", 1, in.remaining());
+        assertEquals("Expected data after the snapshot", 42, in.get());
+    }
+
+    @Test
+    //covers flipped byte, truncated, not a snapshot
+    public void testDamagedSnapshots() throws IOException {
+        final ByteArrayOutputStream out = new ByteArrayOutputStream();
+        final Graph<String> graph = sampleGraph();
+        GraphSnapshot.write(graph, new ArrayList<>(graph.vertices()), label -> label, out);
+        final byte[] bytes = out.toByteArray();
+
+        final byte[] flipped = bytes.clone();
+        flipped[bytes.length / 2] ^= 0x10;
+        final byte[] truncated = Arrays.copyOf(bytes, bytes.length - 3);
+        final byte[] notSnapshot = "not a graph at all".getBytes("US-ASCII");
+        for (byte[] damaged : Arrays.asList(flipped, truncated, notSnapshot)) {
+            try {
+                GraphSnapshot.read(ByteBuffer.wrap(damaged), label -> label);
+                fail("Expected IOException");
+            } catch (IOException e) {
+                // expected
+            }
+        }
+    }
+
+    @Test
+    //covers repeated label with a correct checksum
+    public void testDuplicateLabel() throws IOException {
+        final ByteArrayOutputStream body = new ByteArrayOutputStream();
+        final DataOutputStream data = new DataOutputStream(body);
+        data.writeInt(0x47524150);
+        data.writeByte(1);
+        GraphSnapshot.writeVarInt(data, 2);
+        for (int i = 0; i < 2; i++) {
+            GraphSnapshot.writeVarInt(data, 1);
+            data.writeByte('a');
+        }
+        GraphSnapshot.writeVarInt(data, 0);
+        GraphSnapshot.writeVarInt(data, 0);
+        GraphSnapshot.writeVarInt(data, 0);
+        final CRC32 crc = new CRC32();
+        crc.update(body.toByteArray());
+        data.writeInt((int) crc.getValue());
+        try {
+            GraphSnapshot.read(ByteBuffer.wrap(body.toByteArray()), label -> label);
+            fail("Expected IOException");
+        } catch (IOException e) {
+            assertEquals("Expected duplicate label reported",
+                    "corrupt graph snapshot: duplicate label", e.getMessage());
+        }
+    }
+
+    @Test
+    //covers writeVarInt/readVarInt 0, one byte, five bytes, Integer.MAX_VALUE
+    public void testVarInts() throws IOException {
+        final int[] values = { 0, 127, 128, 1 << 28, Integer.MAX_VALUE };
+        final ByteArrayOutputStream out = new ByteArrayOutputStream();
+        for (int value : values) {
+            GraphSnapshot.writeVarInt(out, value);
+        }
+
+        assertEquals("Expected 1 + 1 + 2 + 5 + 5 bytes", 14, out.size());
+        final ByteBuffer in = ByteBuffer.wrap(out.toByteArray());
+        for (int value : values) {
+            assertEquals("Expected value back", value, GraphSnapshot.readVarInt(in));
+        }
+    }
+
+    @Test
+    //covers vertices without edges, source buffer; observe sources()
+    public void testSourcesOfLoadedGraph() throws IOException {
+        final Graph<String> graph = sampleGraph();
+        final ByteArrayOutputStream out = new ByteArrayOutputStream();
+        GraphSnapshot.write(graph, new ArrayList<>(graph.vertices()), label -> label, out);
+        Graph<String> loaded = GraphSnapshot.read(ByteBuffer.wrap(out.toByteArray()), label -> label);
+
+        final Map<String, Integer> intoCafe = new HashMap<>();
+        intoCafe.put("b", Integer.MAX_VALUE);
+        assertEquals("Expected sources", intoCafe, loaded.sources("caf\u00e9"));
+        final Set<String> vertices = loaded.vertices();
+        assertTrue("Expected isolated vertex", vertices.contains("alone"));
+    }
+}
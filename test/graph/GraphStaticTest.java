@@ -5,7 +5,9 @@ package graph;
 
 import static org.junit.Assert.*;
 
+import java.util.Arrays;
 import java.util.Collections;
+import java.util.HashSet;
 
 import org.junit.Test;
 
@@ -21,6 +23,13 @@ public class GraphStaticTest {
     //   empty()
     //     no inputs, only output is empty graph
     //     observe with vertices()
+    //   empty(options)
+    //     engine: AUTO, each mutable engine, IMMUTABLE_CSR
+    //     concurrent: true, false
+    //     expected sizes: none, smaller than the graph grows to
+    //   GraphOptions
+    //     concurrent with an engine that is not thread-safe
+    //     negative expected sizes
     
     @Test(expected=AssertionError.class)
     public void testAssertionsEnabled() {
@@ -63,4 +72,55 @@ public class GraphStaticTest {
         System.out.println(graph);
   
     }
+    
+    @Test
+    //covers empty(options) engine AUTO, concurrent false and true
+    public void testEmptyOptionsAuto() {
+        Graph<String> plain = Graph.empty(GraphOptions.defaults());
+        Graph<String> concurrent = Graph.empty(GraphOptions.defaults().withConcurrent(true));
+        
+        assertTrue("Expected defaults to give the engine of empty()",
+                plain instanceof ConcreteEdgesGraph);
+        assertTrue("Expected a thread-safe graph",
+                concurrent instanceof ConcurrentGraph);
+        assertEquals("Expected empty graph", Collections.emptySet(), concurrent.vertices());
+    }
+    
+    @Test
+    //covers empty(options) each mutable engine, expected sizes smaller than the graph
+    public void testEmptyOptionsEachMutableEngine() {
+        for (GraphOptions.Engine engine : GraphOptions.Engine.values()) {
+            if ( !engine.isMutable() ) {
+                continue;
+            }
+            GraphOptions options = GraphOptions.defaults().withEngine(engine)
+                    .withExpectedVertices(1).withExpectedEdges(1);
+            Graph<String> graph = Graph.empty(options);
+            graph.set("a", "b", 1);
+            graph.set("b", "c", 2);
+            
+            assertEquals("Expected empty graph to grow past its expected size for " + engine,
+                    new HashSet<>(Arrays.asList("a", "b", "c")), graph.vertices());
+            assertEquals("Expected edge weight for " + engine,
+                    (Integer)2, graph.targets("b").get("c"));
+        }
+    }
+    
+    @Test(expected=IllegalArgumentException.class)
+    //covers empty(options) engine IMMUTABLE_CSR
+    public void testEmptyOptionsImmutableEngine() {
+        Graph.empty(GraphOptions.defaults().withEngine(GraphOptions.Engine.IMMUTABLE_CSR));
+    }
+    
+    @Test(expected=IllegalArgumentException.class)
+    //covers concurrent with an engine that is not thread-safe
+    public void testOptionsConcurrentNotThreadSafe() {
+        GraphOptions.defaults().withEngine(GraphOptions.Engine.VERTICES).withConcurrent(true);
+    }
+    
+    @Test(expected=IllegalArgumentException.class)
+    //covers negative expected sizes
+    public void testOptionsNegativeSize() {
+        GraphOptions.defaults().withExpectedEdges(-1);
+    }
 }
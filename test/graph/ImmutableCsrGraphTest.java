@@ -0,0 +1,188 @@
+/* Copyright (c) 2015-2016 MIT 6.005 course staff, all rights reserved.
+ * Redistribution of original or derived work requires permission of course staff.
+ */
+package graph;
+
+import static org.junit.Assert.*;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Random;
+
+import org.junit.Test;
+
+/**
+ * Tests for ImmutableCsrGraph.
+ * 
+ * ImmutableCsrGraph cannot be mutated, so it does not run the
+ * GraphInstanceTest tests; instances are made by freezing a mutable graph.
+ */
+public class ImmutableCsrGraphTest {
+    
+    // Testing strategy for graph.freeze()
+    //   graph: empty, contains multiple vertices and edges,
+    //          contains a vertex with an edge to itself
+    //   graph mutated after freeze()
+    //   observe with vertices(), sources(), targets()
+    //
+    // Testing strategy for ImmutableCsrGraph.forEachCommonNeighbor()
+    //   rows: similar lengths (merged), one row much longer than the other
+    //         (galloped), either way round
+    //   compared against the mutable graph it was frozen from
+    //
+    // Testing strategy for ImmutableCsrGraph.forEachEdge()
+    //   visitor visits all edges, stops early
+    //
+    // Testing strategy for mutators
+    //   add(), set(), remove() on a frozen graph
+    //
+    // Testing strategy for ImmutableCsrGraph.toString()
+    //   graph: empty, contains multiple edges
+    
+    @Test(expected=AssertionError.class)
+    public void testAssertionsEnabled() {
+        assert false; // make sure assertions are enabled with VM argument: -ea
+    }
+    
+    //helper method
+    /** Returns a mutable graph a -> b: 1, a -> c: 2, c -> b: 3, b -> b: 4, plus vertex d */
+    private static Graph<String> sampleGraph() {
+        Graph<String> graph = new ConcreteEdgesGraph<>();
+        graph.set("a", "b", 1);
+        graph.set("a", "c", 2);
+        graph.set("c", "b", 3);
+        graph.set("b", "b", 4);
+        graph.add("d");
+        return graph;
+    }
+    
+    @Test
+    //covers empty graph
+    public void testFreezeEmptyGraph() {
+        Graph<String> frozen = Graph.<String>empty().freeze();
+        
+        assertEquals("Expected no vertices", Collections.emptySet(), frozen.vertices());
+        assertEquals("Expected no targets", Collections.emptyMap(), frozen.targets("a"));
+        assertEquals("Expected 'Empty Graph'", "Empty Graph", frozen.toString());
+    }
+    
+    @Test
+    //covers graph contains multiple vertices and edges,
+    //       vertex with an edge to itself
+    public void testFreezeCopiesVerticesAndEdges() {
+        Graph<String> graph = sampleGraph();
+        Graph<String> frozen = graph.freeze();
+        
+        Map<String, Integer> expectedSourcesOfB = new HashMap<>();
+        expectedSourcesOfB.put("a", 1);
+        expectedSourcesOfB.put("c", 3);
+        expectedSourcesOfB.put("b", 4);
+        
+        assertEquals("Expected same vertices", graph.vertices(), frozen.vertices());
+        for (String vertex : graph.vertices()) {
+            assertEquals("Expected same targets", graph.targets(vertex), frozen.targets(vertex));
+            assertEquals("Expected same sources", graph.sources(vertex), frozen.sources(vertex));
+        }
+        assertEquals("Expected all sources of b", expectedSourcesOfB, frozen.sources("b"));
+        assertEquals("Expected weight of a -> c", (Integer)2, frozen.targets("a").get("c"));
+        assertNull("Expected no edge c -> a", frozen.targets("c").get("a"));
+        assertEquals("Expected no targets of d", Collections.emptyMap(), frozen.targets("d"));
+    }
+    
+    @Test
+    //covers graph mutated after freeze()
+    public void testFreezeIndependentOfOriginal() {
+        Graph<String> graph = sampleGraph();
+        Graph<String> frozen = graph.freeze();
+        
+        graph.set("a", "b", 0);
+        graph.remove("c");
+        
+        assertTrue("Expected frozen graph to keep c", frozen.vertices().contains("c"));
+        assertEquals("Expected frozen graph to keep a -> b", (Integer)1, frozen.targets("a").get("b"));
+        assertSame("Expected freezing a frozen graph to return it", frozen, frozen.freeze());
+    }
+    
+    @Test(expected=UnsupportedOperationException.class)
+    public void testAddUnsupported() {
+        sampleGraph().freeze().add("e");
+    }
+    
+    @Test(expected=UnsupportedOperationException.class)
+    public void testSetUnsupported() {
+        sampleGraph().freeze().set("a", "b", 2);
+    }
+    
+    @Test(expected=UnsupportedOperationException.class)
+    public void testRemoveUnsupported() {
+        sampleGraph().freeze().remove("a");
+    }
+    
+    @Test
+    //covers graph contains multiple edges
+    public void testToStringMultipleEdges() {
+        Graph<String> graph = new ConcreteEdgesGraph<>();
+        graph.set("a", "b", 1);
+        graph.set("b", "a", 2);
+        final String rep = graph.freeze().toString();
+        
+        assertTrue("Expected edge a -> b", rep.contains("a -> b: 1"));
+        assertTrue("Expected edge b -> a", rep.contains("b -> a: 2"));
+        assertEquals("Expected one line per edge", 2, rep.split("\n").length);
+    }
+    
+    @Test
+    //covers visitor visits all edges, stops early
+    public void testForEachEdge() {
+        Graph<String> frozen = sampleGraph().freeze();
+        Map<String, Integer> visited = new HashMap<>();
+        
+        final boolean completed = frozen.forEachEdge((source, target, weight) -> {
+            visited.put(source + "->" + target, weight);
+            return true;
+        });
+        final boolean stopped = !frozen.forEachEdge((source, target, weight) -> false);
+        
+        assertTrue("Expected traversal completed", completed);
+        assertEquals("Expected every edge visited", 4, visited.size());
+        assertEquals("Expected edge to itself", (Integer)4, visited.get("b->b"));
+        assertTrue("Expected traversal stopped", stopped);
+    }
+    
+    @Test
+    //covers rows of similar lengths, one row much longer either way round,
+    //       compared against the mutable graph
+    public void testForEachCommonNeighborMatchesMutable() {
+        Graph<Integer> graph = new ConcreteEdgesGraph<>();
+        Random random = new Random(2016);
+        final int hub = 0;
+        for (int i = 1; i < 400; i++) {
+            graph.set(hub, i, i);
+            graph.set(i, hub + 1000, i + 1);
+        }
+        for (int i = 0; i < 2000; i++) {
+            graph.set(random.nextInt(400), random.nextInt(400), 1 + random.nextInt(5));
+        }
+        Graph<Integer> frozen = graph.freeze();
+        List<Integer> vertices = new ArrayList<>(graph.vertices());
+        
+        for (int from : vertices) {
+            for (int to : Arrays.asList(hub, hub + 1000, random.nextInt(400), random.nextInt(400))) {
+                Map<Integer, Integer> expected = new HashMap<>();
+                graph.forEachCommonNeighbor(from, to, expected::put);
+                Map<Integer, Integer> actual = new HashMap<>();
+                List<Integer> order = new ArrayList<>();
+                frozen.forEachCommonNeighbor(from, to, (bridge, weight) -> {
+                    actual.put(bridge, weight);
+                    order.add(bridge);
+                });
+                assertEquals("Expected same paths from " + from + " to " + to, expected, actual);
+                assertEquals("Expected each bridge once", actual.size(), order.size());
+            }
+        }
+    }
+}
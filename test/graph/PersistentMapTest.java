@@ -0,0 +1,115 @@
+/* Copyright (c) 2015-2016 MIT 6.005 course staff, all rights reserved.
+ * Redistribution of original or derived work requires permission of course staff.
+ */
+package graph;
+
+import static org.junit.Assert.*;
+
+import java.util.HashMap;
+import java.util.Map;
+import java.util.Random;
+
+import org.junit.Test;
+
+/**
+ * Tests for PersistentMap.
+ */
+public class PersistentMapTest {
+    
+    // Testing strategy for PersistentMap
+    //   plus(), minus(): key new, key present with same value, with new value,
+    //                    key absent
+    //   keys: distinct hashes, equal hashes (collisions)
+    //   map: empty, one pair, many pairs (several trie levels)
+    //   older versions observed after newer versions are made
+    //   observe with get(), size(), entrySet(), equals()
+    
+    @Test(expected=AssertionError.class)
+    public void testAssertionsEnabled() {
+        assert false; // make sure assertions are enabled with VM argument: -ea
+    }
+    
+    /** Key type whose hash is chosen by the test, to force collisions */
+    private static final class Key {
+        private final int id;
+        private final int hash;
+        
+        Key(int id, int hash) {
+            this.id = id;
+            this.hash = hash;
+        }
+        @Override public boolean equals(Object that) {
+            return that instanceof Key && ((Key) that).id == id;
+        }
+        @Override public int hashCode() {
+            return hash;
+        }
+    }
+    
+    @Test
+    //covers key new, key present with same value and with new value
+    public void testPlusReturnsNewVersion() {
+        PersistentMap<String, Integer> empty = PersistentMap.empty();
+        PersistentMap<String, Integer> one = empty.plus("a", 1);
+        PersistentMap<String, Integer> same = one.plus("a", 1);
+        PersistentMap<String, Integer> changed = one.plus("a", 2);
+        
+        assertEquals("Expected empty map unchanged", 0, empty.size());
+        assertEquals("Expected one pair", 1, one.size());
+        assertSame("Expected no new version for an equal value", one, same);
+        assertEquals("Expected old version unchanged", (Integer)1, one.get("a"));
+        assertEquals("Expected new value", (Integer)2, changed.get("a"));
+        assertEquals("Expected size unchanged when replacing", 1, changed.size());
+    }
+    
+    @Test
+    //covers key absent, minus() to empty
+    public void testMinus() {
+        PersistentMap<String, Integer> one = PersistentMap.<String, Integer>empty().plus("a", 1);
+        
+        assertSame("Expected no new version for absent key", one, one.minus("b"));
+        assertEquals("Expected empty after removing only key", 0, one.minus("a").size());
+        assertEquals("Expected old version unchanged", (Integer)1, one.get("a"));
+    }
+    
+    @Test
+    //covers equal hashes
+    public void testCollidingKeys() {
+        PersistentMap<Key, Integer> map = PersistentMap.empty();
+        for (int i = 0; i < 5; i++) {
+            map = map.plus(new Key(i, 42), i);
+        }
+        map = map.plus(new Key(99, 42 + (1 << 20)), 99);
+        PersistentMap<Key, Integer> removed = map.minus(new Key(2, 42));
+        
+        assertEquals("Expected all colliding keys", 6, map.size());
+        for (int i = 0; i < 5; i++) {
+            assertEquals("Expected colliding key's value", (Integer)i, map.get(new Key(i, 42)));
+        }
+        assertEquals("Expected key with nearby hash", (Integer)99, map.get(new Key(99, 42 + (1 << 20))));
+        assertNull("Expected key removed", removed.get(new Key(2, 42)));
+        assertEquals("Expected one less pair", 5, removed.size());
+    }
+    
+    @Test
+    //covers many pairs, random plus() and minus() compared to HashMap
+    public void testMatchesHashMap() {
+        Random random = new Random(6005);
+        Map<Integer, Integer> expected = new HashMap<>();
+        PersistentMap<Integer, Integer> map = PersistentMap.empty();
+        for (int i = 0; i < 20000; i++) {
+            final int key = random.nextInt(3000);
+            if ( random.nextInt(3) == 0 ) {
+                expected.remove(key);
+                map = map.minus(key);
+            } else {
+                expected.put(key, i);
+                map = map.plus(key, i);
+            }
+        }
+        
+        assertEquals("Expected same size", expected.size(), map.size());
+        assertEquals("Expected same pairs", expected, map);
+        assertEquals("Expected same pairs from iteration", expected, new HashMap<>(map));
+    }
+}
@@ -0,0 +1,120 @@
+/* Copyright (c) 2015-2016 MIT 6.005 course staff, all rights reserved.
+ * Redistribution of original or derived work requires permission of course staff.
+ */
+package graph;
+
+import static org.junit.Assert.*;
+
+import java.util.Comparator;
+
+import org.junit.Test;
+
+/**
+ * Tests for TwoHopIndex.
+ */
+public class TwoHopIndexTest {
+    
+    // Testing strategy for TwoHopIndex.of(graph)
+    //   graph: empty, one two-edge path, several paths between one pair
+    //          with different weights, several paths between one pair
+    //          with equal weights, path through a self-loop
+    //   order: natural order of the labels, given comparator
+    //   path weight: fits an int, overflows an int
+    //   pair: joined by a path, joined only by a single edge,
+    //         not in the graph
+    //   graph mutated after the index is made
+    //   observe with bridge(), weight(), size()
+    
+    @Test(expected=AssertionError.class)
+    public void testAssertionsEnabled() {
+        assert false; // make sure assertions are enabled with VM argument: -ea
+    }
+    
+    @Test
+    //covers empty graph, pair not in the graph
+    public void testEmptyGraph() {
+        TwoHopIndex<String> index = TwoHopIndex.of(Graph.<String>empty());
+        
+        assertEquals("Expected no pairs", 0, index.size());
+        assertNull("Expected no bridge", index.bridge("a", "b"));
+        assertEquals("Expected no weight", 0, index.weight("a", "b"));
+    }
+    
+    @Test
+    //covers one two-edge path, pair joined only by a single edge
+    public void testOnePath() {
+        Graph<String> graph = Graph.empty();
+        graph.set("a", "b", 2);
+        graph.set("b", "c", 3);
+        TwoHopIndex<String> index = TwoHopIndex.of(graph);
+        
+        assertEquals("Expected one pair", 1, index.size());
+        assertEquals("Expected bridge", "b", index.bridge("a", "c"));
+        assertEquals("Expected summed weight", 5, index.weight("a", "c"));
+        assertNull("Expected no bridge over a single edge", index.bridge("a", "b"));
+    }
+    
+    @Test
+    //covers several paths between one pair with different weights,
+    //       graph mutated after the index is made
+    public void testHeaviestPathWins() {
+        Graph<String> graph = Graph.empty();
+        graph.set("a", "x", 1);
+        graph.set("x", "c", 1);
+        graph.set("a", "y", 1);
+        graph.set("y", "c", 5);
+        graph.set("a", "z", 3);
+        graph.set("z", "c", 2);
+        TwoHopIndex<String> index = TwoHopIndex.of(graph);
+        graph.set("x", "c", 10);
+        
+        assertEquals("Expected heaviest bridge", "y", index.bridge("a", "c"));
+        assertEquals("Expected heaviest weight", 6, index.weight("a", "c"));
+    }
+    
+    @Test
+    //covers path through a self-loop
+    public void testSelfLoop() {
+        Graph<String> graph = Graph.empty();
+        graph.set("a", "a", 4);
+        graph.set("a", "b", 1);
+        TwoHopIndex<String> index = TwoHopIndex.of(graph);
+        
+        assertEquals("Expected the loop as bridge", "a", index.bridge("a", "b"));
+        assertEquals("Expected loop weight plus edge weight", 5, index.weight("a", "b"));
+        assertEquals("Expected the loop twice", 8, index.weight("a", "a"));
+    }
+    
+    @Test
+    //covers several paths between one pair with equal weights,
+    //       natural order of the labels, given comparator
+    public void testEquallyHeavyPathsInLabelOrder() {
+        Graph<String> graph = Graph.empty();
+        for (String bridge : new String[] { "z", "m", "b", "q" }) {
+            graph.set("a", bridge, 2);
+            graph.set(bridge, "c", 3);
+        }
+        
+        assertEquals("Expected smallest bridge", "b", TwoHopIndex.of(graph).bridge("a", "c"));
+        assertEquals("Expected smallest bridge in the given order",
+                "z", TwoHopIndex.of(graph, Comparator.<String>reverseOrder()).bridge("a", "c"));
+        assertEquals("Expected tied weight", 5, TwoHopIndex.of(graph).weight("a", "c"));
+    }
+    
+    @Test
+    //covers path weight fits an int, overflows an int
+    public void testPathWeightOverflow() {
+        Graph<String> graph = Graph.empty();
+        graph.set("a", "b", Integer.MAX_VALUE - 1);
+        graph.set("b", "c", 1);
+        
+        assertEquals("Expected the largest int weight", Integer.MAX_VALUE, TwoHopIndex.of(graph).weight("a", "c"));
+        graph.set("b", "c", 2);
+        try {
+            TwoHopIndex.of(graph);
+            fail("Expected ArithmeticException");
+        } catch (ArithmeticException e) {
+            // expected, as MatrixBridgeTable does
+        }
+    }
+}
@@ -0,0 +1,95 @@
+/* Copyright (c) 2015-2016 MIT 6.005 course staff, all rights reserved.
+ * Redistribution of original or derived work requires permission of course staff.
+ */
+package graph;
+
+import static org.junit.Assert.*;
+
+import java.util.Collections;
+
+import org.junit.Test;
+
+/**
+ * Tests for VersionedGraph.
+ * 
+ * This class runs the GraphInstanceTest tests against VersionedGraph, as
+ * well as tests for that particular implementation.
+ * 
+ * Tests against the Graph spec should be in GraphInstanceTest.
+ */
+public class VersionedGraphTest extends GraphInstanceTest {
+    
+    /*
+     * Provide a VersionedGraph for tests in GraphInstanceTest.
+     */
+    @Override public Graph<String> emptyInstance() {
+        return new VersionedGraph<>();
+    }
+    
+    /*
+     * Testing VersionedGraph...
+     */
+    
+    // Testing strategy for VersionedGraph.snapshot()
+    //   graph: empty, contains multiple vertices and edges
+    //   graph mutated after snapshot(): set(), increment(), remove(), add()
+    //   mutators called on a snapshot
+    //
+    // Testing strategy for VersionedGraph.version()
+    //   write changes the graph, write leaves the graph unchanged
+    
+    @Test
+    //covers graph empty
+    public void testSnapshotEmpty() {
+        VersionedGraph<String> graph = new VersionedGraph<>();
+        
+        assertEquals("Expected no vertices", Collections.emptySet(), graph.snapshot().vertices());
+        assertEquals("Expected 'Empty Graph'", "Empty Graph", graph.snapshot().toString());
+    }
+    
+    @Test
+    //covers graph contains multiple vertices and edges,
+    //       graph mutated after snapshot()
+    public void testSnapshotUnaffectedByLaterWrites() {
+        VersionedGraph<String> graph = new VersionedGraph<>();
+        graph.set("a", "b", 1);
+        graph.set("b", "c", 2);
+        graph.set("c", "c", 3);
+        Graph<String> snapshot = graph.snapshot();
+        
+        graph.set("a", "b", 5);
+        graph.increment("b", "c", 1);
+        graph.remove("c");
+        graph.add("d");
+        
+        assertEquals("Expected snapshot vertices unchanged", 3, snapshot.vertices().size());
+        assertEquals("Expected snapshot weight unchanged", (Integer)1, snapshot.targets("a").get("b"));
+        assertEquals("Expected snapshot weight unchanged", (Integer)2, snapshot.sources("c").get("b"));
+        assertEquals("Expected snapshot edge to itself", (Integer)3, snapshot.targets("c").get("c"));
+        assertEquals("Expected graph updated", (Integer)5, graph.targets("a").get("b"));
+        assertEquals("Expected removed vertex's edges gone", Collections.emptyMap(), graph.targets("b"));
+        assertFalse("Expected removed vertex gone", graph.vertices().contains("c"));
+    }
+    
+    @Test(expected=UnsupportedOperationException.class)
+    //covers mutators called on a snapshot
+    public void testSnapshotSetUnsupported() {
+        VersionedGraph<String> graph = new VersionedGraph<>();
+        graph.snapshot().set("a", "b", 1);
+    }
+    
+    @Test
+    //covers write changes the graph,
+    //       write leaves the graph unchanged
+    public void testVersionCountsChangingWrites() {
+        VersionedGraph<String> graph = new VersionedGraph<>();
+        final long initialVersion = graph.version();
+        
+        graph.set("a", "b", 1);
+        graph.set("a", "b", 1);
+        graph.add("a");
+        graph.remove("z");
+        
+        assertEquals("Expected one version per changing write", initialVersion + 1, graph.version());
+    }
+}
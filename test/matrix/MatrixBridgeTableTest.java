@@ -0,0 +1,84 @@
+/* Copyright (c) 2015-2016 MIT 6.005 course staff, all rights reserved.
+ * Redistribution of original or derived work requires permission of course staff.
+ */
+package matrix;
+
+import static org.junit.Assert.*;
+
+import java.util.Comparator;
+import java.util.Random;
+import java.util.concurrent.ForkJoinPool;
+
+import org.junit.Test;
+
+import graph.BridgeTable;
+import graph.Graph;
+import graph.TwoHopIndex;
+
+/**
+ * Tests for MatrixBridgeTable.
+ */
+public class MatrixBridgeTableTest {
+    
+    // Testing strategy for MatrixBridgeTable.of(graph, pool)
+    //   graph: empty, random with many ties, equally heavy paths between
+    //          one pair
+    //   order: natural order of the labels, given comparator
+    //   pair: joined by a path, not joined, not in the graph
+    //   compared against TwoHopIndex
+    
+    @Test(expected=AssertionError.class)
+    public void testAssertionsEnabled() {
+        assert false; // make sure assertions are enabled with VM argument: -ea
+    }
+    
+    @Test
+    //covers graph empty, pair not in the graph
+    public void testEmpty() {
+        BridgeTable<String> table = MatrixBridgeTable.of(Graph.<String>empty());
+        
+        assertEquals("Expected no pairs", 0, table.size());
+        assertNull("Expected no bridge", table.bridge("a", "b"));
+        assertEquals("Expected no weight", 0, table.weight("a", "b"));
+    }
+    
+    @Test
+    //covers random with many ties, pair joined and not joined, compared against TwoHopIndex
+    public void testMatchesTwoHopIndex() {
+        Random random = new Random(42);
+        Graph<Integer> graph = Graph.empty();
+        final int n = 120;
+        for (int i = 0; i < 900; i++) {
+            graph.set(random.nextInt(n), random.nextInt(n), 1 + random.nextInt(3));
+        }
+        BridgeTable<Integer> expected = TwoHopIndex.of(graph);
+        BridgeTable<Integer> actual = MatrixBridgeTable.of(graph, new ForkJoinPool(3));
+        
+        assertEquals("Expected same number of pairs", expected.size(), actual.size());
+        for (int from = 0; from < n; from++) {
+            for (int to = 0; to < n; to++) {
+                assertEquals("Expected same weight", expected.weight(from, to), actual.weight(from, to));
+                assertEquals("Expected same bridge", expected.bridge(from, to), actual.bridge(from, to));
+            }
+        }
+    }
+    
+    @Test
+    //covers equally heavy paths between one pair, natural order of the
+    //       labels, given comparator
+    public void testEquallyHeavyPathsInLabelOrder() {
+        Graph<String> graph = Graph.empty();
+        for (String bridge : new String[] { "z", "m", "b", "q" }) {
+            graph.set("a", bridge, 2);
+            graph.set(bridge, "c", 3);
+        }
+        final ForkJoinPool pool = new ForkJoinPool(2);
+        try {
+            assertEquals("Expected smallest bridge", "b", MatrixBridgeTable.of(graph, pool).bridge("a", "c"));
+            assertEquals("Expected smallest bridge in the given order", "z",
+                    MatrixBridgeTable.of(graph, Comparator.<String>reverseOrder(), pool).bridge("a", "c"));
+        } finally {
+            pool.shutdown();
+        }
+    }
+}
@@ -0,0 +1,159 @@
+/* Copyright (c) 2015-2016 MIT 6.005 course staff, all rights reserved.
+ * Redistribution of original or derived work requires permission of course staff.
+ */
+package matrix;
+
+import static org.junit.Assert.*;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.List;
+import java.util.Random;
+import java.util.concurrent.ForkJoinPool;
+
+import org.junit.Test;
+
+import graph.Graph;
+
+/**
+ * Tests for SparseMatrix and SparseProduct.
+ */
+public class SparseMatrixTest {
+    
+    // Testing strategy for SparseMatrix.fromGraph(graph, order)
+    //   graph: empty, edges given out of column order, self-loop
+    //   observe with rows(), columns(), nonZeros(), get()
+    //
+    // Testing strategy for transpose()
+    //   matrix: empty, square with entries
+    //
+    // Testing strategy for multiply(right, semiring, pool)
+    //   semiring: MAX_PLUS, SUM_PRODUCT
+    //   pool: one worker, several workers
+    //   entry: absent, one term, several terms with a tie for the largest
+    //   product overflows
+    //   observe with values().get(), witness()
+    
+    @Test(expected=AssertionError.class)
+    public void testAssertionsEnabled() {
+        assert false; // make sure assertions are enabled with VM argument: -ea
+    }
+    
+    //helper method
+    /** Returns the graph a -> b: 2, a -> c: 1, b -> d: 3, c -> d: 5, d -> d: 1 */
+    private static Graph<String> sampleGraph() {
+        Graph<String> graph = Graph.empty();
+        graph.set("a", "c", 1);
+        graph.set("a", "b", 2);
+        graph.set("b", "d", 3);
+        graph.set("c", "d", 5);
+        graph.set("d", "d", 1);
+        return graph;
+    }
+    private static final List<String> ORDER = Arrays.asList("a", "b", "c", "d");
+    
+    @Test
+    //covers graph empty, matrix empty
+    public void testEmpty() {
+        SparseMatrix matrix = SparseMatrix.fromGraph(Graph.<String>empty(), Collections.emptyList());
+        
+        assertEquals("Expected no rows", 0, matrix.rows());
+        assertEquals("Expected no entries", 0, matrix.transpose().nonZeros());
+        assertEquals("Expected empty product", 0,
+                matrix.multiply(matrix, Semiring.MAX_PLUS).values().nonZeros());
+    }
+    
+    @Test
+    //covers edges given out of column order, self-loop
+    public void testFromGraph() {
+        SparseMatrix matrix = SparseMatrix.fromGraph(sampleGraph(), ORDER);
+        
+        assertEquals("Expected a row per vertex", 4, matrix.rows());
+        assertEquals("Expected a column per vertex", 4, matrix.columns());
+        assertEquals("Expected an entry per edge", 5, matrix.nonZeros());
+        assertEquals("Expected edge weight", 2, matrix.get(0, 1));
+        assertEquals("Expected edge weight", 1, matrix.get(0, 2));
+        assertEquals("Expected self-loop weight", 1, matrix.get(3, 3));
+        assertEquals("Expected absent entry", 0, matrix.get(1, 0));
+    }
+    
+    @Test
+    //covers transpose square with entries
+    public void testTranspose() {
+        SparseMatrix matrix = SparseMatrix.fromGraph(sampleGraph(), ORDER);
+        SparseMatrix transposed = matrix.transpose();
+        
+        for (int row = 0; row < 4; row++) {
+            for (int column = 0; column < 4; column++) {
+                assertEquals("Expected mirrored entry", matrix.get(row, column), transposed.get(column, row));
+            }
+        }
+        assertEquals("Expected same entries", matrix.nonZeros(), transposed.nonZeros());
+    }
+    
+    @Test
+    //covers MAX_PLUS, one worker, entry absent, one term, several terms with a tie
+    public void testMaxPlus() {
+        SparseMatrix matrix = SparseMatrix.fromGraph(sampleGraph(), ORDER);
+        SparseProduct product = matrix.multiply(matrix, Semiring.MAX_PLUS, new ForkJoinPool(1));
+        
+        assertEquals("Expected heaviest path a -> c -> d", 6, product.values().get(0, 3));
+        assertEquals("Expected witness c", 2, product.witness(0, 3));
+        assertEquals("Expected path b -> d -> d", 4, product.values().get(1, 3));
+        assertEquals("Expected no path a -> ? -> b", -1, product.witness(0, 1));
+        
+        Graph<String> tie = sampleGraph();
+        tie.set("a", "b", 4);
+        tie.set("c", "d", 6);
+        matrix = SparseMatrix.fromGraph(tie, ORDER);
+        product = matrix.multiply(matrix, Semiring.MAX_PLUS, new ForkJoinPool(1));
+        assertEquals("Expected tie weight", 7, product.values().get(0, 3));
+        assertEquals("Expected first witness of a tie", 1, product.witness(0, 3));
+    }
+    
+    @Test
+    //covers SUM_PRODUCT, several terms
+    public void testSumProduct() {
+        SparseMatrix matrix = SparseMatrix.fromGraph(sampleGraph(), ORDER);
+        SparseProduct product = matrix.multiply(matrix, Semiring.SUM_PRODUCT);
+        
+        assertEquals("Expected 2*3 + 1*5", 11, product.values().get(0, 3));
+        assertEquals("Expected witness of the largest term", 1, product.witness(0, 3));
+    }
+    
+    @Test(expected=ArithmeticException.class)
+    //covers product overflows
+    public void testOverflow() {
+        Graph<String> graph = Graph.empty();
+        graph.set("a", "a", Integer.MAX_VALUE);
+        SparseMatrix matrix = SparseMatrix.fromGraph(graph, Collections.singletonList("a"));
+        matrix.multiply(matrix, Semiring.SUM_PRODUCT);
+    }
+    
+    @Test
+    //covers several workers
+    public void testParallelMatchesSequential() {
+        Random random = new Random(6005);
+        Graph<Integer> graph = Graph.empty();
+        final int n = 300;
+        for (int i = 0; i < 3000; i++) {
+            graph.set(random.nextInt(n), random.nextInt(n), 1 + random.nextInt(9));
+        }
+        List<Integer> order = new ArrayList<>(graph.vertices());
+        SparseMatrix matrix = SparseMatrix.fromGraph(graph, order);
+        SparseProduct sequential = matrix.multiply(matrix, Semiring.MAX_PLUS, new ForkJoinPool(1));
+        SparseProduct parallel = matrix.multiply(matrix, Semiring.MAX_PLUS, new ForkJoinPool(4));
+        
+        assertEquals("Expected same number of entries",
+                sequential.values().nonZeros(), parallel.values().nonZeros());
+        for (int row = 0; row < order.size(); row++) {
+            for (int column = 0; column < order.size(); column++) {
+                assertEquals("Expected same entry", sequential.values().get(row, column),
+                        parallel.values().get(row, column));
+                assertEquals("Expected same witness", sequential.witness(row, column),
+                        parallel.witness(row, column));
+            }
+        }
+    }
+}
@@ -0,0 +1,159 @@
+/* Copyright (c) 2015-2016 MIT 6.005 course staff, all rights reserved.
+ * Redistribution of original or derived work requires permission of course staff.
+ */
+package poet;
+
+import static org.junit.Assert.*;
+
+import java.io.IOException;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.Paths;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.List;
+
+import org.junit.Test;
+
+/**
+ * Tests for CorpusTokenizer and Vocabulary.
+ */
+public class CorpusTokenizerTest {
+    // Partitions for tokenize(file, vocabulary, sink)
+    //   file: empty, only whitespace, one word, many words
+    //   words: lowercase, mixed case, non-ASCII letters, repeated
+    //   whitespace: spaces, tabs and newlines, runs of it, non-ASCII
+    //               whitespace inside a word of non-ASCII bytes
+    //   last word: followed by whitespace, ends the file
+    //   file size: smaller than one chunk, word across two chunks
+    //   file: missing
+    //
+    // Partitions for Vocabulary
+    //   idOf: new word, known word, more words than the initial capacity
+    //   word given as: String, ASCII bytes, both for the same word
+
+    @Test(expected=AssertionError.class)
+    public void testAssertionsEnabled() {
+        assert false; // make sure assertions are enabled with VM argument: -ea
+    }
+
+    //helper code
+    private static List<String> tokenize(String text) throws IOException {
+        final Path file = Files.createTempFile("corpus", ".txt");
+        try {
+            Files.write(file, text.getBytes(StandardCharsets.UTF_8));
+            final Vocabulary vocabulary = new Vocabulary();
+            final List<String> words = new ArrayList<>();
+            CorpusTokenizer.tokenize(file, vocabulary, id -> words.add(vocabulary.word(id)));
+            return words;
+        } finally {
+            Files.delete(file);
+        }
+    }
+
+    @Test
+    //covers file empty, only whitespace
+    public void testEmptyFile() throws IOException {
+        assertEquals("Expected no words", Collections.emptyList(), tokenize(""));
+        assertEquals("Expected no words", Collections.emptyList(), tokenize(" \t\n\r\n  "));
+    }
+
+    @Test
+    //covers one word that ends the file
+    public void testOneWord() throws IOException {
+        assertEquals("Expected one word", Arrays.asList("word"), tokenize("word"));
+    }
+
+    @Test
+    //covers many words, mixed case, repeated words, runs of whitespace,
+    //       last word followed by whitespace
+    public void testMixedCaseAndWhitespace() throws IOException {
+        assertEquals("Expected lowercase words split at any whitespace",
+                Arrays.asList("hello,", "hello,", "hello,", "goodbye!"),
+                tokenize("  Hello,\tHELLO,\n\n hello,\r\ngoodbye!\n"));
+    }
+
+    @Test
+    //covers non-ASCII letters, non-ASCII whitespace inside a word
+    public void testNonAscii() throws IOException {
+        assertEquals("Expected non-ASCII words lowercased",
+                Arrays.asList("\u00e9cole", "don\u2019t", "stra\u00dfe"),
+                tokenize("\u00c9coLE Don\u2019t STRA\u00dfE"));
+        assertEquals("Expected split at non-ASCII whitespace",
+                Arrays.asList("caf\u00e9", "au", "lait"),
+                tokenize("Caf\u00e9\u2003au\u2029lait"));
+    }
+
+    @Test
+    //covers word across two chunks
+    public void testWordAcrossChunks() throws IOException {
+        final StringBuilder text = new StringBuilder();
+        while (text.length() < (1 << 16) - 3) {
+            text.append("a ");
+        }
+        text.setLength((1 << 16) - 3);
+        text.append(" Spanning words");
+        final List<String> words = tokenize(text.toString());
+
+        assertEquals("Expected word across the chunk boundary kept whole",
+                Arrays.asList("spanning", "words"), words.subList(words.size() - 2, words.size()));
+    }
+
+    @Test
+    //covers the corpus files of GraphPoetTest
+    public void testCorpusFile() throws IOException {
+        final Vocabulary vocabulary = new Vocabulary();
+        final List<String> words = new ArrayList<>();
+        CorpusTokenizer.tokenize(Paths.get("test/poet/TestOneLine.txt"), vocabulary,
+                id -> words.add(vocabulary.word(id)));
+
+        final List<String> expected = new ArrayList<>();
+        for (String line : Files.readAllLines(Paths.get("test/poet/TestOneLine.txt"), StandardCharsets.UTF_8)) {
+            for (String word : line.trim().split("\\s+")) {
+                if ( !word.isEmpty() ) {
+                    expected.add(word.toLowerCase());
+                }
+            }
+        }
+        assertEquals("Expected the words of the file", expected, words);
+    }
+
+    @Test(expected=IOException.class)
+    //covers missing file
+    public void testMissingFile() throws IOException {
+        CorpusTokenizer.tokenize(Paths.get("test/poet/NoSuchCorpus.txt"), new Vocabulary(), id -> {});
+    }
+
+    @Test
+    //covers Vocabulary new word, known word, more words than the initial capacity
+    public void testVocabularyIds() {
+        final Vocabulary vocabulary = new Vocabulary();
+        final int n = 1000;
+        for (int i = 0; i < n; i++) {
+            assertEquals("Expected new word to get the next id", i, vocabulary.idOf("w" + i));
+        }
+        for (int i = 0; i < n; i++) {
+            assertEquals("Expected known word to keep its id", i, vocabulary.idOf("w" + i));
+            assertEquals("Expected word of id", "w" + i, vocabulary.word(i));
+        }
+        assertEquals("Expected one id per distinct word", n, vocabulary.size());
+    }
+
+    @Test
+    //covers Vocabulary word given as String then bytes, bytes then String,
+    //       bytes longer than the word
+    public void testVocabularyBytesAndStrings() {
+        final Vocabulary vocabulary = new Vocabulary();
+        final byte[] hello = "hello".getBytes(StandardCharsets.US_ASCII);
+        final byte[] worlds = "worlds".getBytes(StandardCharsets.US_ASCII);
+        final int helloId = vocabulary.idOf("hello");
+        assertEquals("Expected bytes of a known word to give its id", helloId, vocabulary.idOf(hello, hello.length));
+        final int worldId = vocabulary.idOf(worlds, "world".length());
+        assertEquals("Expected String of a known word to give its id", worldId, vocabulary.idOf("world"));
+        assertEquals("Expected word made from bytes", "world", vocabulary.word(worldId));
+        assertNotEquals("Expected a longer word to get a new id", worldId, vocabulary.idOf(worlds, worlds.length));
+        assertEquals("Expected one id per distinct word", 3, vocabulary.size());
+    }
+}
@@ -5,12 +5,40 @@ package poet;
 
 import static org.junit.Assert.*;
 
+import java.io.ByteArrayOutputStream;
+import java.io.DataOutputStream;
 import java.io.File;
+import java.io.FilterReader;
 import java.io.IOException;
+import java.io.Reader;
+import java.io.StringReader;
+import java.io.StringWriter;
+import java.nio.ByteBuffer;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.NoSuchFileException;
+import java.nio.file.Path;
+import java.util.ArrayList;
+import java.util.Arrays;
 import java.util.Collections;
 import java.util.List;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.ForkJoinPool;
+import java.util.concurrent.Future;
+import java.util.function.Function;
+import java.util.stream.Collectors;
+import java.util.stream.Stream;
+import java.util.zip.CRC32;
 import org.junit.Test;
 
+import graph.BridgeTable;
+import graph.Graph;
+import graph.GraphOptions;
+import graph.GraphSnapshot;
+import graph.TwoHopIndex;
+import matrix.MatrixBridgeTable;
+
 /**
  * Tests for GraphPoet.
  */
@@ -18,11 +46,57 @@ public class GraphPoetTest {
     // Partitions for GraphPoet(corpus)
     //   corpus contains: one word, one line, multiple lines
     //   include words whose adjacency count > 1
+    //   include a word that follows itself
+    //   options: none, each engine
+    //   bridges: found on each call, precomputed by TwoHopIndex,
+    //            precomputed by MatrixBridgeTable
+    //   corpus words: kept, not kept
     // 
     // Partitions for poem(input) -> poeticOutput
     //   input: one word, multiple words
     //        : word pairs with adjacency count > 1
     //
+    //        : pair with bridges of different weights, equally heavy bridges
+    //        : repeated word, whitespace other than single spaces
+    //   output: returned as a String, appended to an Appendable,
+    //           streamed from a Reader to a Writer
+    //
+    // Partitions for poems(inputs), poems(inputs, executor), poems(stream)
+    //   inputs: empty, one, many more than the number of threads
+    //   executor: common pool, fixed thread pool
+    //   stream: sequential, parallel
+    //   observe that the poems come back in input order
+    //
+    //   streamed input: empty, word split across read() chunks,
+    //                   ends with and without whitespace
+    //
+    // Partitions for GraphPoet.builder()
+    //   corpus: files, directory, stream of paths, empty file among files
+    //   files: fewer than, more than the number of blocks of the pool
+    //   adjacency across file boundaries
+    //   file: missing
+    //
+    // Partitions for addCorpus(corpus)
+    //   corpus: file, Reader; empty, one word, many words
+    //   engine: mutable, IMMUTABLE_CSR
+    //   bridges: found on each call, precomputed by a table
+    //   observe: poems and corpus words equal those of the joined corpus,
+    //            earlier getCorpusWords() list unchanged,
+    //            poet unchanged when the Reader fails
+    //   callers: one thread, many threads adding and reading at once
+    //
+    // Partitions for save(file), load(file[, options, bridgeTable])
+    //   corpus words: kept, not kept
+    //   engine after load: IMMUTABLE_CSR, mutable then addCorpus()
+    //   file: whole, damaged, poet section with a correct checksum whose
+    //         last word is not the last of its words or is missing
+    //   observe: poems, bridges and corpus words equal those of the saved poet
+    //
+    // Partitions for topBridges(word1, word2, k) -> ranked
+    //   k: 0, less than the number of bridges, more than the number of bridges
+    //   bridges: none, different weights, equal weights
+    //   words: lowercase, mixed case
+    //
     // Exhaustive Cartesian coverage of partitions
     @Test(expected=AssertionError.class)
     public void testAssertionsEnabled() {
@@ -77,6 +151,37 @@ public class GraphPoetTest {
                 corpusWords.contains("angelou"));
     }
     
+    @Test
+    // covers corpus words kept
+    public void testGraphPoet_CorpusWordsView() {
+        List<String> corpusWords = graphOneLine.getCorpusWords();
+        
+        assertEquals("Expected words in corpus order",
+                Arrays.asList("to", "explore", "strange"), corpusWords.subList(0, 3));
+        try {
+            corpusWords.set(0, "from");
+            fail("Expected read-only view");
+        } catch (UnsupportedOperationException e) {
+            // expected
+        }
+    }
+    @Test
+    // covers corpus words not kept
+    public void testGraphPoet_CorpusWordsNotKept() throws IOException {
+        final File corpus = new File("test/poet/TestOneLine.txt");
+        GraphPoet poet = new GraphPoet(corpus, GraphOptions.defaults(), null, false);
+        
+        assertEquals("Expected same graph as when words are kept",
+                graphOneLine.poem("Seek to explore new and exciting synergies!"),
+                poet.poem("Seek to explore new and exciting synergies!"));
+        try {
+            poet.getCorpusWords();
+            fail("Expected corpus words not kept");
+        } catch (IllegalStateException e) {
+            // expected
+        }
+    }
+    
     // Tests for poem()
     @Test
     // covers one word
@@ -114,4 +219,578 @@ public class GraphPoetTest {
                 || output.contains("cut")
                 || output.contains("shoot"));
     }
-}
\ No newline at end of file
+    
+    @Test
+    // covers options each engine
+    public void testGraphPoet_EachEngine() throws IOException {
+        final File corpus = new File("test/poet/TestOneLine.txt");
+        final String input = "Seek to explore new and exciting synergies!";
+        final String expected = "Seek to explore strange new life and exciting synergies!";
+        for (GraphOptions.Engine engine : GraphOptions.Engine.values()) {
+            GraphPoet poet = new GraphPoet(corpus, GraphOptions.defaults().withEngine(engine));
+            
+            assertEquals("Expected the same poem with engine " + engine,
+                    expected, poet.poem(input));
+        }
+    }
+    
+    @Test
+    // covers each engine, a word that follows itself
+    public void testGraphPoet_RepeatedWordEachEngine() throws IOException {
+        final Path dir = Files.createTempDirectory("corpus");
+        try {
+            final File corpus = writeCorpus(dir, Arrays.asList("Hello, HELLO, hello, goodbye!")).get(0).toFile();
+            for (GraphOptions.Engine engine : GraphOptions.Engine.values()) {
+                GraphPoet poet = new GraphPoet(corpus, GraphOptions.defaults().withEngine(engine));
+                
+                assertEquals("Expected the repeated word as its own bridge with engine " + engine,
+                        "Hello, hello, goodbye!", poet.poem("Hello, goodbye!"));
+            }
+        } finally {
+            deleteCorpus(dir);
+        }
+    }
+    
+    @Test
+    // covers bridges precomputed
+    public void testGraphPoet_IndexedBridges() throws IOException {
+        final File corpus = new File("test/poet/TestMultipleLines.txt");
+        GraphPoet poet = new GraphPoet(corpus, GraphOptions.defaults(), true);
+        
+        assertEquals("Expected the same poem as without the index",
+                graphOneLine.poem("Seek to explore new and exciting synergies!"),
+                new GraphPoet(new File("test/poet/TestOneLine.txt"), GraphOptions.defaults(), true)
+                        .poem("Seek to explore new and exciting synergies!"));
+        assertEquals("Expected the heaviest bridge",
+                "Shoulders falling down like teardrops,", poet.poem("Shoulders falling like teardrops,"));
+        assertEquals("Expected unchanged input without bridges", "rise up", poet.poem("rise up"));
+    }
+    
+    @Test
+    // covers bridges precomputed by MatrixBridgeTable
+    public void testGraphPoet_MatrixBridges() throws IOException {
+        final File corpus = new File("test/poet/TestMultipleLines.txt");
+        GraphPoet indexed = new GraphPoet(corpus, GraphOptions.defaults(), true);
+        GraphPoet matrix = new GraphPoet(corpus, GraphOptions.defaults(), MatrixBridgeTable::of);
+        final String input = "You may me with your words, I rise up from a past";
+        
+        assertEquals("Expected the same bridges as TwoHopIndex",
+                indexed.poem(input), matrix.poem(input));
+    }
+    
+    @Test
+    // covers pair with equally heavy bridges
+    public void testPoem_EquallyHeavyBridgesInWordOrder() {
+        String output = graphMultipleLines.poem("you MAY me");
+        
+        assertEquals("Expected the first equally heavy bridge in word order",
+                "you MAY cut me", output);
+        assertEquals("Expected the same poem every time", output, graphMultipleLines.poem("you MAY me"));
+    }
+    
+    @Test
+    // covers pair with equally heavy bridges, bridges precomputed by
+    //        TwoHopIndex and by MatrixBridgeTable, each engine
+    public void testPoem_EquallyHeavyBridgesIndexed() throws IOException {
+        final File corpus = new File("test/poet/TestMultipleLines.txt");
+        final String input = "You may me with your words, I rise up from a past";
+        final List<Function<Graph<String>, BridgeTable<String>>> tables =
+                Arrays.asList(TwoHopIndex::of, MatrixBridgeTable::of);
+        for (GraphOptions.Engine engine : GraphOptions.Engine.values()) {
+            for (Function<Graph<String>, BridgeTable<String>> table : tables) {
+                GraphPoet indexed = new GraphPoet(corpus, GraphOptions.defaults().withEngine(engine), table);
+                
+                assertEquals("Expected the first equally heavy bridge in word order with engine " + engine,
+                        "you MAY cut me", indexed.poem("you MAY me"));
+                assertEquals("Expected the same poem as without a table with engine " + engine,
+                        graphMultipleLines.poem(input), indexed.poem(input));
+            }
+        }
+    }
+    
+    @Test
+    // covers pair with bridges of different weights,
+    //        topBridges k less than and more than the number of bridges,
+    //        bridges different weights and equal weights, words mixed case
+    public void testTopBridges() {
+        List<String> all = graphMultipleLines.topBridges("MAY", "Me", 10);
+        
+        assertEquals("Expected every bridge, in word order among equal weights",
+                Arrays.asList("cut", "kill", "shoot", "trod", "write"), all);
+        assertEquals("Expected the best two",
+                all.subList(0, 2), graphMultipleLines.topBridges("may", "me", 2));
+        assertEquals("Expected heaviest bridge first",
+                Arrays.asList("with", "in"), graphMultipleLines.topBridges("me", "the", 5));
+        assertEquals("Expected heaviest bridge in the poem",
+                "me with the", graphMultipleLines.poem("me the"));
+    }
+    
+    @Test
+    // covers topBridges k 0, bridges none
+    public void testTopBridges_Empty() {
+        assertEquals("Expected no bridges for k = 0",
+                Collections.emptyList(), graphMultipleLines.topBridges("may", "me", 0));
+        assertEquals("Expected no bridges",
+                Collections.emptyList(), graphMultipleLines.topBridges("rise", "nothing", 3));
+    }
+    
+    @Test
+    // covers repeated word
+    public void testPoem_RepeatedWord() {
+        assertEquals("Expected bridge before the second occurrence",
+                "the me with the", graphMultipleLines.poem("the me the"));
+    }
+    
+    @Test
+    // covers whitespace other than single spaces, appended to an Appendable
+    public void testPoem_Appendable() throws IOException {
+        StringBuilder out = new StringBuilder("poem: ");
+        graphMultipleLines.poem("  me\tthe\n\nme   the ", out);
+        
+        assertEquals("Expected single spaces between words, appended after existing text",
+                "poem: me with the me with the", out.toString());
+    }
+    
+    @Test
+    // covers many words
+    public void testPoem_LongInput() {
+        StringBuilder input = new StringBuilder();
+        StringBuilder expected = new StringBuilder();
+        for (int i = 0; i < 20000; i++) {
+            input.append("me the ");
+            expected.append(i == 0 ? "" : " ").append("me with the");
+        }
+        
+        assertEquals("Expected bridges throughout a long input",
+                expected.toString(), graphMultipleLines.poem(input.toString()));
+    }
+    
+    @Test
+    // covers streamed from a Reader to a Writer, streamed input empty,
+    //        ends with and without whitespace
+    public void testPoem_Stream() throws IOException {
+        StringWriter out = new StringWriter();
+        graphMultipleLines.poem(new StringReader(""), out);
+        assertEquals("Expected empty poem", "", out.toString());
+        
+        out = new StringWriter();
+        graphMultipleLines.poem(new StringReader("\tme the\nMAY Me  "), out);
+        assertEquals("Expected the same poem as poem(String)",
+                graphMultipleLines.poem("me the MAY Me"), out.toString());
+        
+        out = new StringWriter();
+        graphMultipleLines.poem(new StringReader("me the"), out);
+        assertEquals("Expected last word written", "me with the", out.toString());
+    }
+    
+    @Test
+    // covers word split across read() chunks
+    public void testPoem_StreamInSmallChunks() throws IOException {
+        // a reader that returns at most 3 chars per read()
+        Reader trickle = new FilterReader(new StringReader("Seek to explore new and exciting synergies!")) {
+            @Override public int read(char[] buffer, int offset, int length) throws IOException {
+                return super.read(buffer, offset, Math.min(length, 3));
+            }
+        };
+        StringWriter out = new StringWriter();
+        graphOneLine.poem(trickle, out);
+        
+        assertEquals("Expected words rejoined across chunks",
+                "Seek to explore strange new life and exciting synergies!", out.toString());
+    }
+    
+    @Test
+    // covers poems inputs empty, one, common pool
+    public void testPoems_CommonPool() {
+        assertEquals("Expected no poems", Collections.emptyList(),
+                graphMultipleLines.poems(Collections.emptyList()));
+        assertEquals("Expected one poem", Collections.singletonList("me with the"),
+                graphMultipleLines.poems(Collections.singletonList("me the")));
+    }
+    
+    @Test
+    // covers poems inputs many, fixed thread pool, input order
+    public void testPoems_Executor() {
+        List<String> inputs = new ArrayList<>();
+        List<String> expected = new ArrayList<>();
+        for (int i = 0; i < 1000; i++) {
+            String input = i % 2 == 0 ? "me the " + i : "MAY me " + i;
+            inputs.add(input);
+            expected.add(graphMultipleLines.poem(input));
+        }
+        ExecutorService executor = Executors.newFixedThreadPool(4);
+        try {
+            assertEquals("Expected every poem in input order",
+                    expected, graphMultipleLines.poems(inputs, executor));
+        } finally {
+            executor.shutdown();
+        }
+    }
+    
+    @Test
+    // covers poems stream sequential, parallel
+    public void testPoems_Stream() {
+        List<String> inputs = new ArrayList<>();
+        for (int i = 0; i < 200; i++) {
+            inputs.add("me the " + i);
+        }
+        List<String> sequential = graphMultipleLines.poems(inputs.stream()).collect(Collectors.toList());
+        List<String> parallel = graphMultipleLines.poems(inputs.parallelStream()).collect(Collectors.toList());
+        
+        assertEquals("Expected first poem", "me with the 0", sequential.get(0));
+        assertEquals("Expected parallel poems in encounter order", sequential, parallel);
+    }
+    
+    //helper code
+    /** Writes one file per text into dir, named so that path order is text order */
+    private static List<Path> writeCorpus(Path dir, List<String> texts) throws IOException {
+        final List<Path> files = new ArrayList<>();
+        for (int i = 0; i < texts.size(); i++) {
+            final Path file = dir.resolve(String.format("part-%05d.txt", i));
+            Files.write(file, texts.get(i).getBytes(StandardCharsets.UTF_8));
+            files.add(file);
+        }
+        return files;
+    }
+    private static void deleteCorpus(Path dir) throws IOException {
+        try (Stream<Path> files = Files.list(dir)) {
+            for (Path file : files.collect(Collectors.toList())) {
+                Files.delete(file);
+            }
+        }
+        Files.delete(dir);
+    }
+    
+    // Tests for GraphPoet.builder()
+    @Test
+    // covers corpus files, adjacency across file boundaries,
+    //        empty file among files
+    public void testBuilder_Files() throws IOException {
+        final Path dir = Files.createTempDirectory("corpus");
+        try {
+            final List<Path> files = writeCorpus(dir, Arrays.asList("Seek out", "", "new LIFE\n"));
+            GraphPoet poet = GraphPoet.builder()
+                    .addCorpus(files.get(0).toFile())
+                    .addCorpus(files.get(1).toFile())
+                    .addCorpus(files.get(2).toFile())
+                    .build();
+            
+            assertEquals("Expected words of all files in order",
+                    Arrays.asList("seek", "out", "new", "life"), poet.getCorpusWords());
+            assertEquals("Expected bridge across file boundary",
+                    "Out new life", poet.poem("Out life"));
+        } finally {
+            deleteCorpus(dir);
+        }
+    }
+    
+    @Test
+    // covers corpus directory, stream of paths,
+    //        more files than the number of blocks of the pool
+    public void testBuilder_ParallelMatchesSingleFile() throws IOException {
+        final List<String> lines = new ArrayList<>();
+        for (String line : Files.readAllLines(new File("test/poet/TestMultipleLines.txt").toPath(),
+                                              StandardCharsets.UTF_8)) {
+            if ( !line.trim().isEmpty() ) {
+                lines.add(line);
+            }
+        }
+        final Path dir = Files.createTempDirectory("corpus");
+        final ForkJoinPool pool = new ForkJoinPool(2);
+        try {
+            final List<Path> files = writeCorpus(dir, lines);
+            GraphPoet fromDirectory = GraphPoet.builder().addCorpus(dir.toFile()).pool(pool).build();
+            GraphPoet fromStream = GraphPoet.builder().addCorpus(files.stream())
+                    .options(GraphOptions.defaults()).bridgeTable(TwoHopIndex::of).build();
+            
+            assertEquals("Expected same words as one file",
+                    graphMultipleLines.getCorpusWords(), fromDirectory.getCorpusWords());
+            assertEquals("Expected same words as one file",
+                    graphMultipleLines.getCorpusWords(), fromStream.getCorpusWords());
+            for (String input : Arrays.asList("you MAY me", "me the", "Like")) {
+                assertEquals("Expected same poem as one file",
+                        graphMultipleLines.poem(input), fromDirectory.poem(input));
+                assertEquals("Expected same poem as one file",
+                        graphMultipleLines.poem(input), fromStream.poem(input));
+            }
+            assertEquals("Expected same bridges as one file",
+                    graphMultipleLines.topBridges("me", "the", 5), fromDirectory.topBridges("me", "the", 5));
+        } finally {
+            pool.shutdown();
+            deleteCorpus(dir);
+        }
+    }
+    
+    @Test(expected=NoSuchFileException.class)
+    // covers file missing
+    public void testBuilder_MissingFile() throws IOException {
+        GraphPoet.builder()
+                .addCorpus(new File("test/poet/TestOneLine.txt"))
+                .addCorpus(new File("test/poet/NoSuchCorpus.txt"))
+                .pool(new ForkJoinPool(1))
+                .build();
+    }
+    
+    // Tests for addCorpus()
+    @Test
+    // covers corpus Reader with many words, file with one word, empty Reader;
+    //        engine mutable, IMMUTABLE_CSR; bridges found on each call;
+    //        poems and corpus words equal those of the joined corpus
+    public void testAddCorpus_MatchesJoinedCorpus() throws IOException {
+        final List<String> lines = Files.readAllLines(new File("test/poet/TestMultipleLines.txt").toPath(),
+                                                      StandardCharsets.UTF_8);
+        final int half = lines.size() / 2;
+        final Path dir = Files.createTempDirectory("corpus");
+        try {
+            final List<Path> files = writeCorpus(dir, Arrays.asList(
+                    String.join("\n", lines.subList(0, half)), "Like"));
+            final GraphPoet joined = GraphPoet.builder().addCorpus(new File("test/poet/TestMultipleLines.txt"))
+                    .addCorpus(files.get(1).toFile()).build();
+            for (GraphOptions.Engine engine : Arrays.asList(GraphOptions.Engine.COMPACT,
+                                                            GraphOptions.Engine.IMMUTABLE_CSR)) {
+                GraphPoet poet = new GraphPoet(files.get(0).toFile(), GraphOptions.defaults().withEngine(engine));
+                poet.addCorpus(new StringReader(String.join("\n", lines.subList(half, lines.size()))));
+                poet.addCorpus(new StringReader(" \n"));
+                poet.addCorpus(files.get(1).toFile());
+                
+                assertEquals("Expected words of the joined corpus with " + engine,
+                        joined.getCorpusWords(), poet.getCorpusWords());
+                for (String input : Arrays.asList("you MAY me", "me the", "angelou Like")) {
+                    assertEquals("Expected poem of the joined corpus with " + engine,
+                            joined.poem(input), poet.poem(input));
+                }
+                assertEquals("Expected bridges of the joined corpus with " + engine,
+                        joined.topBridges("me", "the", 5), poet.topBridges("me", "the", 5));
+            }
+        } finally {
+            deleteCorpus(dir);
+        }
+    }
+    
+    @Test
+    // covers corpus Reader with one word many times; engine IMMUTABLE_CSR by
+    //        default; bridges precomputed by a table;
+    //        poems and corpus words equal those of the joined corpus
+    public void testAddCorpus_ManyAdditionsToDefaultPoet() throws IOException {
+        final List<String> words = new GraphPoet(new File("test/poet/TestMultipleLines.txt")).getCorpusWords();
+        final GraphPoet joined = new GraphPoet(new File("test/poet/TestMultipleLines.txt"),
+                GraphOptions.defaults(), TwoHopIndex::of);
+        final GraphPoet poet = GraphPoet.builder().addCorpus(new File("test/poet/TestOneLine.txt"))
+                .bridgeTable(TwoHopIndex::of).build();
+        final GraphPoet empty = GraphPoet.builder().bridgeTable(TwoHopIndex::of).build();
+        final int before = poet.getCorpusWords().size();
+        for (int i = 0; i < words.size(); i++) {
+            poet.addCorpus(new StringReader(words.get(i)));
+            empty.addCorpus(new StringReader(words.get(i)));
+            assertEquals("Expected every added word kept", i + 1, empty.getCorpusWords().size());
+            assertEquals("Expected bridge only once the corpus has one", i < 2 ? "you write" : "you may write",
+                    empty.poem("you write"));
+        }
+        
+        assertEquals("Expected words of the joined corpus", joined.getCorpusWords(), empty.getCorpusWords());
+        assertEquals("Expected new words at the end", words,
+                poet.getCorpusWords().subList(before, poet.getCorpusWords().size()));
+        for (String input : Arrays.asList("you MAY me", "me the", "angelou Like")) {
+            assertEquals("Expected poem of the joined corpus", joined.poem(input), empty.poem(input));
+        }
+    }
+    
+    @Test
+    // covers bridges precomputed by a table, earlier getCorpusWords() list unchanged
+    public void testAddCorpus_RemakesBridgeTable() throws IOException {
+        GraphPoet poet = new GraphPoet(new File("test/poet/TestOneLine.txt"),
+                GraphOptions.defaults(), MatrixBridgeTable::of);
+        List<String> before = poet.getCorpusWords();
+        
+        assertEquals("Expected no bridge yet", "civilizations seek", poet.poem("civilizations seek"));
+        poet.addCorpus(new StringReader("Civilizations ALWAYS seek"));
+        assertEquals("Expected bridge from the new text", "civilizations always seek",
+                poet.poem("civilizations seek"));
+        assertEquals("Expected earlier list unchanged", 13, before.size());
+        assertEquals("Expected new words at the end", "always",
+                poet.getCorpusWords().get(14));
+    }
+    
+    @Test
+    // covers poet unchanged when the Reader fails
+    public void testAddCorpus_FailingReader() throws IOException {
+        GraphPoet poet = new GraphPoet(new File("test/poet/TestOneLine.txt"));
+        Reader failing = new FilterReader(new StringReader("civilizations always seek")) {
+            @Override public int read(char[] buffer, int offset, int length) throws IOException {
+                throw new IOException("disk gone");
+            }
+        };
+        try {
+            poet.addCorpus(failing);
+            fail("Expected IOException");
+        } catch (IOException e) {
+            // expected
+        }
+        assertEquals("Expected corpus unchanged", 13, poet.getCorpusWords().size());
+        assertEquals("Expected graph unchanged", "civilizations seek", poet.poem("civilizations seek"));
+    }
+    
+    @Test
+    // covers many threads adding and reading at once, engine mutable,
+    //        bridges precomputed by a table
+    public void testAddCorpus_Concurrent() throws Exception {
+        GraphPoet poet = new GraphPoet(new File("test/poet/TestOneLine.txt"),
+                GraphOptions.defaults().withEngine(GraphOptions.Engine.CONCURRENT), TwoHopIndex::of, true);
+        final int writers = 4;
+        final int additions = 50;
+        final ExecutorService executor = Executors.newFixedThreadPool(writers + 1);
+        try {
+            final List<Future<?>> done = new ArrayList<>();
+            for (int w = 0; w < writers; w++) {
+                done.add(executor.submit(() -> {
+                    for (int i = 0; i < additions; i++) {
+                        poet.addCorpus(new StringReader("seek out"));
+                    }
+                    return null;
+                }));
+            }
+            done.add(executor.submit(() -> {
+                for (int i = 0; i < additions; i++) {
+                    final List<String> words = poet.getCorpusWords();
+                    assertEquals("Expected whole additions only", 1, words.size() % 2);
+                    poet.poem("new worlds");
+                }
+                return null;
+            }));
+            for (Future<?> future : done) {
+                future.get();
+            }
+        } finally {
+            executor.shutdown();
+        }
+        
+        assertEquals("Expected every added word once",
+                13 + writers * additions * 2, poet.getCorpusWords().size());
+        assertEquals("Expected the bridges of the joined corpus",
+                "seek out new", poet.poem("seek new"));
+    }
+    
+    // Tests for save() and load()
+    @Test
+    // covers corpus words kept, engine after load IMMUTABLE_CSR, file whole
+    public void testSaveLoad_RoundTrip() throws IOException {
+        final Path file = Files.createTempFile("poet", ".bin");
+        try {
+            graphMultipleLines.save(file);
+            GraphPoet loaded = GraphPoet.load(file);
+            
+            assertEquals("Expected same corpus words",
+                    graphMultipleLines.getCorpusWords(), loaded.getCorpusWords());
+            for (String input : Arrays.asList("you MAY me", "me the", "Like")) {
+                assertEquals("Expected same poem", graphMultipleLines.poem(input), loaded.poem(input));
+            }
+            assertEquals("Expected same bridges",
+                    graphMultipleLines.topBridges("me", "the", 5), loaded.topBridges("me", "the", 5));
+        } finally {
+            Files.delete(file);
+        }
+    }
+    
+    @Test
+    // covers corpus words not kept, engine after load mutable then addCorpus()
+    public void testSaveLoad_MutableEngine() throws IOException {
+        final Path file = Files.createTempFile("poet", ".bin");
+        try {
+            new GraphPoet(new File("test/poet/TestOneLine.txt"), GraphOptions.defaults(), null, false).save(file);
+            GraphPoet loaded = GraphPoet.load(file,
+                    GraphOptions.defaults().withEngine(GraphOptions.Engine.COMPACT), TwoHopIndex::of);
+            
+            assertEquals("Expected same poem", graphOneLine.poem("Seek to explore new and exciting synergies!"),
+                    loaded.poem("Seek to explore new and exciting synergies!"));
+            loaded.addCorpus(new StringReader("always seek"));
+            assertEquals("Expected last saved word adjacent to new text", "civilizations always seek",
+                    loaded.poem("civilizations seek"));
+            try {
+                loaded.getCorpusWords();
+                fail("Expected corpus words not kept");
+            } catch (IllegalStateException e) {
+                // expected
+            }
+        } finally {
+            Files.delete(file);
+        }
+    }
+    
+    @Test
+    // covers file damaged
+    public void testSaveLoad_Damaged() throws IOException {
+        final Path file = Files.createTempFile("poet", ".bin");
+        try {
+            graphOneLine.save(file);
+            final byte[] bytes = Files.readAllBytes(file);
+            bytes[bytes.length - 6] ^= 0x01;
+            Files.write(file, bytes);
+            try {
+                GraphPoet.load(file);
+                fail("Expected IOException");
+            } catch (IOException e) {
+                // expected
+            }
+        } finally {
+            Files.delete(file);
+        }
+    }
+    
+    @Test
+    // covers poet section with a correct checksum whose last word is not the
+    //        last of its words or is missing
+    public void testSaveLoad_BadLastWord() throws IOException {
+        final Path file = Files.createTempFile("poet", ".bin");
+        try {
+            graphOneLine.save(file);
+            final byte[] saved = Files.readAllBytes(file);
+            final ByteBuffer graphPart = ByteBuffer.wrap(saved);
+            GraphSnapshot.read(graphPart, word -> word);
+            final byte[] graphBytes = Arrays.copyOf(saved, graphPart.position());
+            final int[] words = { 0, 1, 2 };
+            final List<byte[]> damaged = Arrays.asList(
+                    poetFile(graphBytes, 1, words),   // last word 0, last of words 2
+                    poetFile(graphBytes, 0, words),   // no last word, but words
+                    poetFile(graphBytes, 3, new int[0]),
+                    poetFile(graphBytes, 0, null));   // no last word, but a vocabulary
+            Files.write(file, poetFile(graphBytes, 3, words));
+            assertEquals("Expected a crafted section to load", Arrays.asList("to", "explore", "strange"),
+                    GraphPoet.load(file).getCorpusWords());
+            for (byte[] bytes : damaged) {
+                Files.write(file, bytes);
+                try {
+                    GraphPoet.load(file);
+                    fail("Expected IOException");
+                } catch (IOException e) {
+                    // expected
+                }
+            }
+        } finally {
+            Files.delete(file);
+        }
+    }
+    
+    //helper code
+    /** Returns graphBytes followed by a poet section of lastWord + 1 and words, or none if null */
+    private static byte[] poetFile(byte[] graphBytes, int lastWordPlusOne, int[] words) throws IOException {
+        final ByteArrayOutputStream section = new ByteArrayOutputStream();
+        final DataOutputStream data = new DataOutputStream(section);
+        data.writeInt(0x504f4554);
+        data.writeByte(1);
+        GraphSnapshot.writeVarInt(data, lastWordPlusOne);
+        data.writeBoolean(words != null);
+        if ( words != null ) {
+            GraphSnapshot.writeVarInt(data, words.length);
+            for (int word : words) {
+                GraphSnapshot.writeVarInt(data, word);
+            }
+        }
+        final CRC32 crc = new CRC32();
+        crc.update(section.toByteArray());
+        data.writeInt((int) crc.getValue());
+        final ByteArrayOutputStream file = new ByteArrayOutputStream();
+        file.write(graphBytes);
+        file.write(section.toByteArray());
+        return file.toByteArray();
+    }
+}